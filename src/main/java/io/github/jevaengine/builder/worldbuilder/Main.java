@@ -176,6 +176,7 @@ public class Main implements WindowListener, Runnable
 		protected void configure()
 		{
 			bind(URI.class).annotatedWith(Names.named("BASE_DIRECTORY")).toInstance(m_assetSource);
+			bind(Boolean.class).annotatedWith(Names.named("ENABLE_CACHE")).toInstance(m_enableCache);
 			bind(WorldBuilderConfiguration.class).toInstance(m_config);
 			bind(IInputSource.class).toInstance(FrameInputSource.create(m_frame));
 			bind(IScriptBuilder.class).toInstance(new NullScriptBuilder());
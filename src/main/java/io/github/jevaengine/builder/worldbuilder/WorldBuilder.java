@@ -18,7 +18,9 @@
  */
 package io.github.jevaengine.builder.worldbuilder;
 
+import io.github.jevaengine.IEngineThreadPool;
 import io.github.jevaengine.builder.worldbuilder.ui.FloatingToolbarFactory;
+import io.github.jevaengine.builder.worldbuilder.world.EditorWorldFactory;
 import io.github.jevaengine.config.IConfigurationFactory;
 import io.github.jevaengine.game.DefaultGame;
 import io.github.jevaengine.graphics.IFontFactory;
@@ -31,7 +33,6 @@ import io.github.jevaengine.math.Vector2D;
 import io.github.jevaengine.ui.IWindowFactory;
 import io.github.jevaengine.ui.IWindowFactory.WindowConstructionException;
 import io.github.jevaengine.world.IEffectMapFactory;
-import io.github.jevaengine.world.IParallelWorldFactory;
 import io.github.jevaengine.world.IWeatherFactory;
 import io.github.jevaengine.world.scene.ISceneBufferFactory;
 import io.github.jevaengine.world.scene.model.ISceneModelFactory;
@@ -46,7 +47,7 @@ public class WorldBuilder extends DefaultGame
 	
 	private Logger m_logger = LoggerFactory.getLogger(WorldBuilder.class);
 	
-	public WorldBuilder(IInputSource inputSource, IConfigurationFactory configurationFactory, ISceneBufferFactory sceneBufferFactory, ISpriteFactory spriteFactory, IWindowFactory windowFactory, IParallelWorldFactory worldFactory, IFontFactory fontFactory, ISceneModelFactory sceneModelFactory, IWeatherFactory weatherFactory, IEffectMapFactory effectMapFactory, Vector2D resolution, URI baseDirectory, WorldBuilderConfiguration config)
+	public WorldBuilder(IInputSource inputSource, IConfigurationFactory configurationFactory, ISceneBufferFactory sceneBufferFactory, ISpriteFactory spriteFactory, IWindowFactory windowFactory, EditorWorldFactory editorWorldFactory, IFontFactory fontFactory, ISceneModelFactory sceneModelFactory, IWeatherFactory weatherFactory, IEffectMapFactory effectMapFactory, IEngineThreadPool threadPool, Vector2D resolution, URI baseDirectory, WorldBuilderConfiguration config)
 	{
 		super(inputSource, resolution);
 		
@@ -61,7 +62,7 @@ public class WorldBuilder extends DefaultGame
 		
 		try
 		{
-			new FloatingToolbarFactory(getWindowManager(), windowFactory, sceneBufferFactory, sceneModelFactory, worldFactory, fontFactory, weatherFactory, effectMapFactory, baseDirectory, config).create().center();
+			new FloatingToolbarFactory(getWindowManager(), windowFactory, sceneBufferFactory, sceneModelFactory, editorWorldFactory, fontFactory, weatherFactory, effectMapFactory, threadPool, baseDirectory, config).create().center();
 		} catch (WindowConstructionException e)
 		{
 			m_logger.error("Error constructing world builder toolbar.", e);
@@ -19,6 +19,7 @@
 package io.github.jevaengine.builder.worldbuilder;
 
 import io.github.jevaengine.IEngineThreadPool;
+import io.github.jevaengine.builder.worldbuilder.world.EditorWorldFactory;
 import io.github.jevaengine.config.IConfigurationFactory;
 import io.github.jevaengine.game.IGame;
 import io.github.jevaengine.game.IGameFactory;
@@ -48,15 +49,16 @@ public final class WorldBuilderFactory implements IGameFactory
 	private final ISceneBufferFactory m_sceneBufferFactory;
 	private final ISpriteFactory m_spriteFactory;
 	private final IWindowFactory m_windowFactory;
-	private final IParallelWorldFactory m_worldFactory;
+	private final EditorWorldFactory m_editorWorldFactory;
 	private final IFontFactory m_fontFactory;
 	private final IConfigurationFactory m_configurationFactory;
 	private final ISceneModelFactory m_sceneModelFactory;
 	private final IWeatherFactory m_weatherFactory;
 	private final IEffectMapFactory m_effectMapFactory;
+	private final IEngineThreadPool m_threadPool;
 	
 	@Inject
-	public WorldBuilderFactory(IInputSource inputSource, IConfigurationFactory configurationFactory, IRenderer renderer, ISceneBufferFactory sceneBufferFactory, ISpriteFactory spriteFactory, IWindowFactory windowFactory, IWorldFactory worldFactory, IEngineThreadPool engineThreadPool, IFontFactory fontFactory, ISceneModelFactory sceneModelFactory, IWeatherFactory weatherFactory, IEffectMapFactory effectMapFactory, WorldBuilderConfiguration config)
+	public WorldBuilderFactory(IInputSource inputSource, IConfigurationFactory configurationFactory, IRenderer renderer, ISceneBufferFactory sceneBufferFactory, ISpriteFactory spriteFactory, IWindowFactory windowFactory, EditorWorldFactory worldFactory, IFontFactory fontFactory, ISceneModelFactory sceneModelFactory, IWeatherFactory weatherFactory, IEffectMapFactory effectMapFactory, IEngineThreadPool threadPool, WorldBuilderConfiguration config)
 	{
 		m_inputSource = inputSource;
 		m_configurationFactory = configurationFactory;
@@ -64,11 +66,12 @@ public final class WorldBuilderFactory implements IGameFactory
 		m_sceneBufferFactory = sceneBufferFactory;
 		m_spriteFactory = spriteFactory;
 		m_windowFactory = windowFactory;
-		m_worldFactory = new ThreadPooledWorldFactory(worldFactory, engineThreadPool);
+		m_editorWorldFactory = worldFactory;
 		m_fontFactory = fontFactory;
 		m_sceneModelFactory = sceneModelFactory;
 		m_weatherFactory = weatherFactory;
 		m_effectMapFactory = effectMapFactory;
+		m_threadPool = threadPool;
 		m_config = config;
 	}
 	
@@ -79,6 +82,6 @@ public final class WorldBuilderFactory implements IGameFactory
 		//it will not be injected. The implementation assumes that it will be.
 		assert m_baseDirectory != null: "BASE_DIRECTORY was not injected into WorldBuilder";
 		
-		return new WorldBuilder(m_inputSource, m_configurationFactory, m_sceneBufferFactory, m_spriteFactory, m_windowFactory, m_worldFactory, m_fontFactory, m_sceneModelFactory, m_weatherFactory, m_effectMapFactory, m_renderer.getResolution(), m_baseDirectory, m_config);
+		return new WorldBuilder(m_inputSource, m_configurationFactory, m_sceneBufferFactory, m_spriteFactory, m_windowFactory, m_editorWorldFactory, m_fontFactory, m_sceneModelFactory, m_weatherFactory, m_effectMapFactory, m_threadPool, m_renderer.getResolution(), m_baseDirectory, m_config);
 	}
 }
@@ -20,6 +20,7 @@ package io.github.jevaengine.builder.worldbuilder.ui;
 
 import io.github.jevaengine.FutureResult;
 import io.github.jevaengine.IDisposable;
+import io.github.jevaengine.IEngineThreadPool;
 import io.github.jevaengine.IInitializationMonitor;
 import io.github.jevaengine.builder.ui.MessageBoxFactory;
 import io.github.jevaengine.builder.ui.MessageBoxFactory.IMessageBoxObserver;
@@ -35,14 +36,15 @@ import io.github.jevaengine.builder.worldbuilder.ui.worldeditor.EditorWorldView;
 import io.github.jevaengine.builder.worldbuilder.ui.worldeditor.EditorWorldViewFactory;
 import io.github.jevaengine.builder.worldbuilder.ui.worldeditor.EditorWorldViewFactory.IEditorWorldViewObserver;
 import io.github.jevaengine.builder.worldbuilder.world.EditorWorld;
+import io.github.jevaengine.builder.worldbuilder.world.EditorWorldFactory;
 import io.github.jevaengine.graphics.IFontFactory;
 import io.github.jevaengine.math.Vector2D;
 import io.github.jevaengine.script.NullScriptBuilder;
 import io.github.jevaengine.ui.*;
 import io.github.jevaengine.ui.Button.IButtonPressObserver;
 import io.github.jevaengine.ui.IWindowFactory.WindowConstructionException;
+import io.github.jevaengine.util.Nullable;
 import io.github.jevaengine.world.IEffectMapFactory;
-import io.github.jevaengine.world.IParallelWorldFactory;
 import io.github.jevaengine.world.IWeatherFactory;
 import io.github.jevaengine.world.IWeatherFactory.NullWeather;
 import io.github.jevaengine.world.IWorldFactory.WorldConstructionException;
@@ -64,7 +66,7 @@ public final class FloatingToolbarFactory
 	private final WindowManager m_windowManager;
 	private final IWindowFactory m_windowFactory;
 	private final ISceneModelFactory m_modelFactory;
-	private final IParallelWorldFactory m_worldFactory;
+	private final EditorWorldFactory m_editorWorldFactory;
 	
 	private final ISceneBufferFactory m_sceneBufferFactory;
 	
@@ -74,20 +76,23 @@ public final class FloatingToolbarFactory
 	
 	private final IEffectMapFactory m_effectMapFactory;
 	
+	private final IEngineThreadPool m_threadPool;
+	
 	private final URI m_baseDirectory;
 
 	private final Map<String, Float> m_layers;
 	
-	public FloatingToolbarFactory(WindowManager windowManager, IWindowFactory windowFactory, ISceneBufferFactory sceneBufferFactory, ISceneModelFactory modelFactory, IParallelWorldFactory worldFactory, IFontFactory fontFactory, IWeatherFactory weatherFactory, IEffectMapFactory effectMapFactory, URI baseDirectory, WorldBuilderConfiguration config)
+	public FloatingToolbarFactory(WindowManager windowManager, IWindowFactory windowFactory, ISceneBufferFactory sceneBufferFactory, ISceneModelFactory modelFactory, EditorWorldFactory editorWorldFactory, IFontFactory fontFactory, IWeatherFactory weatherFactory, IEffectMapFactory effectMapFactory, IEngineThreadPool threadPool, URI baseDirectory, WorldBuilderConfiguration config)
 	{
 		m_windowManager = windowManager;
 		m_windowFactory = windowFactory;
 		m_sceneBufferFactory = sceneBufferFactory;
 		m_modelFactory = modelFactory;
-		m_worldFactory = worldFactory;
+		m_editorWorldFactory = editorWorldFactory;
 		m_fontFactory = fontFactory;
 		m_weatherFactory = weatherFactory;
 		m_effectMapFactory = effectMapFactory;
+		m_threadPool = threadPool;
 		m_baseDirectory = baseDirectory;
 		m_layers = config.layers;
 	}
@@ -152,11 +157,19 @@ public final class FloatingToolbarFactory
 			}
 		}
 		
-		private void createEditorView(World world)
+		private void createEditorView(World world, @Nullable URI source)
+		{
+			createEditorView(new EditorWorld(world, m_fontFactory), source);
+		}
+		
+		private void createEditorView(EditorWorld world, @Nullable URI source)
 		{
+			if(source != null && !world.isLoading())
+				recoverJournal(world, source);
+			
 			try
 			{
-				final EditorWorldView worldView = new EditorWorldViewFactory(m_windowManager, m_windowFactory, m_sceneBufferFactory, m_modelFactory, m_fontFactory, m_weatherFactory, m_baseDirectory).create(m_layers, new EditorWorld(world, m_fontFactory));
+				final EditorWorldView worldView = new EditorWorldViewFactory(m_windowManager, m_windowFactory, m_sceneBufferFactory, m_modelFactory, m_fontFactory, m_weatherFactory, m_threadPool, m_baseDirectory).create(m_layers, world, source);
 			
 				worldView.getObservers().add(new IEditorWorldViewObserver() {
 					@Override
@@ -164,40 +177,74 @@ public final class FloatingToolbarFactory
 						worldView.dispose();
 					}
 				});
+				
+				world.getObservers().add(new EditorWorld.ILoadObserver() {
+					@Override
+					public void loadFailed(WorldConstructionException e) {
+						worldView.dispose();
+						displayLoadFailure(e);
+					}
+				});
 			} catch (WindowConstructionException e)
 			{
 				m_logger.error("Unable to construct world editor view window", e);
 			}
 		}
 
-		private void loadWorld(URI name)
+		private void recoverJournal(EditorWorld world, URI source)
+		{
+			try
+			{
+				if(m_editorWorldFactory.replayJournal(world, source))
+					displayMessage("Edits made to this world which were not saved before the editor last closed have been recovered. Save the world to keep them.");
+			} catch (WorldConstructionException e)
+			{
+				displayMessage("Unable to recover all of the edits made to this world which were not saved before the editor last closed. View error log for further details.");
+				m_logger.error("Unable to replay world journal", e);
+			}
+		}
+		
+		private void displayLoadFailure(WorldConstructionException e)
+		{
+			displayMessage("Unable to load the specified world. Assure all of its dependencies are accessible via the editor and that the world is proerply formatted. View error log for further details.");
+			m_logger.info("Unable to load world", e);
+		}
+		
+		/*
+		 * Worlds are opened as soon as their bounds are known and their content placed as it is read, unless
+		 * there are journaled edits to recover, which can only be replayed once the entire world is read.
+		 */
+		private void loadWorld(final URI name)
 		{
 			try
 			{
 				final StatusDialogue statusDialogue = new StatusDialogueFactory(m_windowManager, m_windowFactory).create();	
 				
-				m_worldFactory.create(name, new IInitializationMonitor<World, WorldConstructionException>() {
+				IInitializationMonitor<EditorWorld, WorldConstructionException> monitor = new IInitializationMonitor<EditorWorld, WorldConstructionException>() {
 					
 					@Override
 					public void statusChanged(float progress, String status)
 					{
-						if(statusDialogue != null)
-							statusDialogue.setStatus(status, progress);
+						statusDialogue.setStatus(status, progress);
 					}
 					
 					@Override
-					public void completed(FutureResult<World, WorldConstructionException> result) {
+					public void completed(FutureResult<EditorWorld, WorldConstructionException> result) {
 						statusDialogue.dispose();
 						try
 						{
-							createEditorView(result.get());
+							createEditorView(result.get(), name);
 						} catch (WorldConstructionException e)
 						{
-							displayMessage("Unable to load the specified world. Assure all of its dependencies are accessible via the editor and that the world is proerply formatted. View error log for further details.");
-							m_logger.info("Unable to load world", e);
+							displayLoadFailure(e);
 						}
 					}
-				});
+				};
+				
+				if(m_editorWorldFactory.hasJournaledEdits(name))
+					m_editorWorldFactory.createEditorWorld(name, monitor);
+				else
+					m_editorWorldFactory.openEditorWorld(name, monitor);
 			} catch (WindowConstructionException e)
 			{
 				m_logger.error("Unable to construct status dialogue to display progress of world loading.", e);
@@ -248,7 +295,7 @@ public final class FloatingToolbarFactory
 							public void okay(int width, int height, float friction, float metersPerUnit, float logicPerUnit)
 							{
 								World baseWorld = new World(width, height, friction, metersPerUnit, logicPerUnit, new NullWeather(), new NullPhysicsWorldFactory(), m_effectMapFactory, new NullEntityFactory(), new NullScriptBuilder());
-								createEditorView(baseWorld);
+								createEditorView(baseWorld, null);
 								query.dispose();
 							}
 							
@@ -18,6 +18,7 @@
  */
 package io.github.jevaengine.builder.worldbuilder.ui.worldeditor;
 
+import io.github.jevaengine.IEngineThreadPool;
 import io.github.jevaengine.builder.worldbuilder.ui.SelectBrushQuery;
 import io.github.jevaengine.builder.worldbuilder.ui.SelectLayerQuery;
 import io.github.jevaengine.builder.worldbuilder.ui.worldeditor.behavior.*;
@@ -30,6 +31,7 @@ import io.github.jevaengine.ui.IWindowFactory.WindowConstructionException;
 import io.github.jevaengine.ui.NoSuchControlException;
 import io.github.jevaengine.ui.Window;
 import io.github.jevaengine.ui.WindowManager;
+import io.github.jevaengine.util.Nullable;
 import io.github.jevaengine.util.Observers;
 import io.github.jevaengine.world.IWeatherFactory;
 import io.github.jevaengine.world.scene.ISceneBufferFactory;
@@ -53,11 +55,13 @@ public class EditorWorldViewFactory
 	
 	private final IFontFactory m_fontFactory;
 	
+	private final IEngineThreadPool m_threadPool;
+	
 	private final URI m_baseDirectory;
 	
 	public EditorWorldViewFactory(WindowManager windowManager, IWindowFactory windowFactory,
 									ISceneBufferFactory sceneBufferFactory, ISceneModelFactory modelFactory, IFontFactory fontFactory,
-									IWeatherFactory weatherFactory,
+									IWeatherFactory weatherFactory, IEngineThreadPool threadPool,
 									URI baseDirectory)
 	{
 		m_windowManager = windowManager;
@@ -65,12 +69,14 @@ public class EditorWorldViewFactory
 		
 		m_weatherFactory = new EditorWeatherFactory(weatherFactory);
 		m_fontFactory = fontFactory;
+		m_threadPool = threadPool;
 		m_sceneBufferFactory = sceneBufferFactory;
 		m_modelFactory = modelFactory;
 		m_baseDirectory = baseDirectory;
 	}
 	
-	public EditorWorldView create(Map<String, Float> layers, EditorWorld world) throws WindowConstructionException
+	//The source is the world the EditorWorld was loaded from, or null if it has not yet been saved.
+	public EditorWorldView create(Map<String, Float> layers, EditorWorld world, @Nullable URI source) throws WindowConstructionException
 	{
 		Observers observers = new Observers();
 		
@@ -81,8 +87,8 @@ public class EditorWorldViewFactory
 		SelectLayerQuery selectLayerQuery = new SelectLayerQuery(layers, world);
 
 		CommandBehaviourInjector commandInjector = new CommandBehaviourInjector(m_windowManager, m_windowFactory, m_weatherFactory, 
-					m_baseDirectory, m_fontFactory, observers, world, m_sceneBufferFactory, 
-					m_modelFactory, brush, selectBrushQuery, selectLayerQuery);
+					m_baseDirectory, m_fontFactory, observers, world, source, m_sceneBufferFactory, 
+					m_modelFactory, m_threadPool, brush, selectBrushQuery, selectLayerQuery);
 		
 		BrushBehaviorInjector brushInjector = new BrushBehaviorInjector(m_windowManager, m_windowFactory, world, brush);
 
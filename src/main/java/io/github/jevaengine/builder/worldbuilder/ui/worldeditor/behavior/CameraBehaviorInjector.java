@@ -26,6 +26,7 @@ import io.github.jevaengine.world.scene.model.IImmutableSceneModel;
 import java.awt.*;
 import java.awt.event.KeyEvent;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * @author Jeremy
@@ -47,7 +48,9 @@ public class CameraBehaviorInjector extends BasicBehaviorInjector {
         final WorldView worldView = getControl(WorldView.class, "worldView");
         final Label lblCursorCoordinates = getControl(Label.class, "lblCursorCoordinates");
         final Label lblIsTraversable = getControl(Label.class, "lblIsTraversable");
+        final Label lblWorldStatistics = getControl(Label.class, "lblWorldStatistics");
         final CameraController cameraController = new CameraController(worldView);
+        final TraversableLabel traversableLabel = new TraversableLabel(lblIsTraversable);
 
         m_world.attachCamera(m_camera);
 
@@ -57,16 +60,37 @@ public class CameraBehaviorInjector extends BasicBehaviorInjector {
         m_camera.addEffect(new HideHiddenLayersEffect());
 
         logicTimer.getObservers().add(cameraController);
+        logicTimer.getObservers().add(traversableLabel);
+        m_world.getObservers().add(traversableLabel);
         worldView.getObservers().add(cameraController);
         getObservers().add(cameraController);
 
         logicTimer.getObservers().add(new Timer.ITimerObserver() {
             @Override
             public void update(int deltaTime) {
+                m_world.setFocus(m_camera.getLookAt(), getVisibleBounds(worldView));
+
                 Vector3F coordinates = m_world.getEditCursor().getLocation();
                 lblCursorCoordinates.setText(String.format("%f, %f, %f; Snap: %f", coordinates.x, coordinates.y, coordinates.z, cameraController.getCursorSnapGridSize()));
-                EditorSceneArtifact tile = m_world.getTile(coordinates);
-                lblIsTraversable.setText(tile == null || tile.isTraversable() ? "true" : "false");
+            }
+        });
+
+        logicTimer.getObservers().add(new Timer.ITimerObserver() {
+            private static final int REFRESH_INTERVAL = 1000;
+            private int elapsed = REFRESH_INTERVAL;
+
+            @Override
+            public void update(int deltaTime) {
+                elapsed += deltaTime;
+
+                if (elapsed >= REFRESH_INTERVAL) {
+                    elapsed = 0;
+
+                    if (m_world.isLoading())
+                        lblWorldStatistics.setText(m_world.getLoadProgress() + "; " + m_world.getStatistics());
+                    else
+                        lblWorldStatistics.setText(m_world.getStatistics().toString());
+                }
             }
         });
 
@@ -109,6 +133,26 @@ public class CameraBehaviorInjector extends BasicBehaviorInjector {
         });
     }
 
+    //The view's rectangle is skewed by the projection, so the world bounds it shows are those of its four corners.
+    private static Rect2F getVisibleBounds(WorldView worldView) {
+        Rect2D bounds = worldView.getBounds();
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+
+        for (int corner = 0; corner < 4; corner++) {
+            Vector2F location = worldView.translateScreenToWorld(new Vector2F(bounds.x + (corner % 2) * bounds.width, bounds.y + (corner / 2) * bounds.height));
+
+            minX = Math.min(minX, location.x);
+            minY = Math.min(minY, location.y);
+            maxX = Math.max(maxX, location.x);
+            maxY = Math.max(maxY, location.y);
+        }
+
+        return new Rect2F(minX, minY, maxX - minX, maxY - minY);
+    }
+
     private final class AdjustZoomListener implements ITextInputQueryObserver {
 
         @Override
@@ -165,33 +209,74 @@ public class CameraBehaviorInjector extends BasicBehaviorInjector {
         }
     }
 
+    /*
+     * The tile under the cursor is only looked up again once the cursor moves, or once the world reports
+     * an edit to a region containing it.
+     */
+    private final class TraversableLabel implements Timer.ITimerObserver, EditorWorld.IDirtyRegionObserver {
+
+        private static final float TOLERANCE = 0.001F;
+
+        private final Label m_label;
+        private final Vector3F m_location = new Vector3F();
+        private boolean m_isStale = true;
+
+        public TraversableLabel(Label label) {
+            m_label = label;
+        }
+
+        @Override
+        public void update(int deltaTime) {
+            Vector3F location = m_world.getEditCursor().getLocation();
+
+            if (!m_isStale && location.x == m_location.x && location.y == m_location.y && location.z == m_location.z)
+                return;
+
+            m_location.x = location.x;
+            m_location.y = location.y;
+            m_location.z = location.z;
+            m_isStale = false;
+
+            EditorSceneArtifact tile = m_world.getTile(location);
+            m_label.setText(tile == null || tile.isTraversable() ? "true" : "false");
+        }
+
+        @Override
+        public void regionsChanged(List<Rect3F> regions) {
+            for (Rect3F r : regions) {
+                if (m_location.x >= r.x - TOLERANCE && m_location.x <= r.x + r.width + TOLERANCE &&
+                    m_location.y >= r.y - TOLERANCE && m_location.y <= r.y + r.height + TOLERANCE &&
+                    m_location.z >= r.z - TOLERANCE && m_location.z <= r.z + r.depth + TOLERANCE) {
+                    m_isStale = true;
+                    return;
+                }
+            }
+        }
+    }
+
     private class HideHiddenLayersEffect implements ISceneBuffer.ISceneBufferEffect {
         @Override
         public ISceneBuffer.ISceneComponentEffect[] getComponentEffect(final Graphics2D g, int offsetX, int offsetY, float scale, Vector2D renderLocation, Matrix3X3 projection, ISceneBuffer.ISceneBufferEntry subject, Collection<ISceneBuffer.ISceneBufferEntry> beneath) {
             IEntity dispatcher = subject.getDispatcher();
 
-            if(dispatcher != null) {
-                for (float f : m_world.getHiddenLayers()) {
-                    if (Math.abs(dispatcher.getBody().getLocation().z - f) < 0.0001) {
-                        return new ISceneComponentEffect[]{
-                                new ISceneComponentEffect() {
-                                    @Override
-                                    public void prerender() {
-                                    }
-
-                                    @Override
-                                    public boolean ignore(IEntity dispatcher, IImmutableSceneModel.ISceneModelComponent c) {
-                                        return true;
-                                    }
-
-                                    @Override
-                                    public void postrender() {
-
-                                    }
-                                }
-                        };
-                    }
-                }
+            if(dispatcher != null && m_world.isLayerHidden(dispatcher.getBody().getLocation().z)) {
+                return new ISceneComponentEffect[]{
+                        new ISceneComponentEffect() {
+                            @Override
+                            public void prerender() {
+                            }
+
+                            @Override
+                            public boolean ignore(IEntity dispatcher, IImmutableSceneModel.ISceneModelComponent c) {
+                                return true;
+                            }
+
+                            @Override
+                            public void postrender() {
+
+                            }
+                        }
+                };
             }
 
             return new ISceneComponentEffect[0];
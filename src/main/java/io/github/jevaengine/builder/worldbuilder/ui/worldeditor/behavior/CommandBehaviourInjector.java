@@ -5,7 +5,11 @@
  */
 package io.github.jevaengine.builder.worldbuilder.ui.worldeditor.behavior;
 
+import io.github.jevaengine.IEngineThreadPool;
+import io.github.jevaengine.IEngineThreadPool.Purpose;
 import io.github.jevaengine.builder.ui.FileInputQueryFactory;
+import io.github.jevaengine.builder.ui.StatusDialogueFactory;
+import io.github.jevaengine.builder.ui.StatusDialogueFactory.StatusDialogue;
 import io.github.jevaengine.builder.worldbuilder.ui.SelectBrushQuery;
 import io.github.jevaengine.builder.worldbuilder.ui.SelectLayerQuery;
 import io.github.jevaengine.builder.worldbuilder.ui.worldeditor.EditorWorldViewFactory;
@@ -14,15 +18,14 @@ import io.github.jevaengine.builder.worldbuilder.world.brush.Brush;
 import io.github.jevaengine.builder.worldbuilder.world.brush.MoveEntityBrushBehaviour;
 import io.github.jevaengine.builder.worldbuilder.world.brush.NullBrushBehaviour;
 import io.github.jevaengine.config.ValueSerializationException;
-import io.github.jevaengine.config.json.JsonVariable;
 import io.github.jevaengine.graphics.IFontFactory;
 import io.github.jevaengine.joystick.InputKeyEvent;
 import io.github.jevaengine.joystick.InputMouseEvent;
 import io.github.jevaengine.math.Rect3F;
 import io.github.jevaengine.math.Vector2D;
 import io.github.jevaengine.ui.*;
+import io.github.jevaengine.util.Nullable;
 import io.github.jevaengine.util.Observers;
-import io.github.jevaengine.world.DefaultWorldFactory;
 import io.github.jevaengine.world.IWeatherFactory;
 import io.github.jevaengine.world.entity.IEntity;
 import io.github.jevaengine.world.scene.ISceneBufferFactory;
@@ -31,14 +34,13 @@ import io.github.jevaengine.world.scene.model.ISceneModelFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.nio.file.Files;
 
 /**
  *
@@ -46,6 +48,8 @@ import java.util.Set;
  */
 public class CommandBehaviourInjector extends BasicBehaviorInjector {
 
+	private static final int JOURNAL_FLUSH_INTERVAL = 1000;
+
 	private final Brush m_workingBrush;
 	private final SelectBrushQuery m_selectBrushQuery;
 	private final SelectLayerQuery m_selectLayerQuery;
@@ -56,9 +60,23 @@ public class CommandBehaviourInjector extends BasicBehaviorInjector {
 	private final Observers m_observers;
 	private final EditorWeatherFactory m_weatherFactory;
 	private final URI m_baseDirectory;
+	private final IEngineThreadPool m_threadPool;
 	private final Logger m_logger = LoggerFactory.getLogger(CommandBehaviourInjector.class);
 
-	public CommandBehaviourInjector(WindowManager windowManager, IWindowFactory windowFactory, EditorWeatherFactory weatherFactory, URI baseDirectory, IFontFactory fontFactory, Observers observers, EditorWorld world, ISceneBufferFactory sceneBufferFactory, ISceneModelFactory modelFactory, Brush workingBrush, SelectBrushQuery selectBrushQuery, SelectLayerQuery selectLayerQuery) {
+	@Nullable
+	private IncrementalWorldWriter m_incrementalWriter;
+
+	@Nullable
+	private WorldSave m_save;
+
+	@Nullable
+	private StatusDialogue m_saveDialogue;
+
+	@Nullable
+	private EditorWorldJournal m_journal;
+	private int m_sinceJournalFlush = 0;
+
+	public CommandBehaviourInjector(WindowManager windowManager, IWindowFactory windowFactory, EditorWeatherFactory weatherFactory, URI baseDirectory, IFontFactory fontFactory, Observers observers, EditorWorld world, @Nullable URI source, ISceneBufferFactory sceneBufferFactory, ISceneModelFactory modelFactory, IEngineThreadPool threadPool, Brush workingBrush, SelectBrushQuery selectBrushQuery, SelectLayerQuery selectLayerQuery) {
 		super(windowManager, windowFactory);
 
 		m_selectLayerQuery = selectLayerQuery;
@@ -70,27 +88,30 @@ public class CommandBehaviourInjector extends BasicBehaviorInjector {
 		m_camera = new ControlledCamera(sceneBufferFactory);
 		world.attachCamera(m_camera);
 		m_modelFactory = modelFactory;
+		m_threadPool = threadPool;
 		m_selectBrushQuery = selectBrushQuery;
 		m_workingBrush = workingBrush;
-	}
-
-	private EditorZone createUnnamedZone() {
-		Set<String> usedNames = new HashSet<>();
-
-		for (EditorZone z : m_world.getZones()) {
-			usedNames.add(z.getName());
-		}
 
-		for (int i = 0;; i++) {
-			String name = "Unnamed" + i;
-			if (!usedNames.contains(name)) {
-				EditorZone z = new EditorZone(m_fontFactory, name);
-				z.setBounds(new Rect3F(1,1,0));
-				return z;
+		//Edits are journaled beside the world they were loaded from, so they can be recovered after a crash.
+		if (source != null) {
+			try {
+				m_journal = EditorWorldJournal.open(getWorldFile(source), world);
+			} catch (IOException e) {
+				m_logger.error("Unable to open world journal, edits will not be journaled until the world is saved.", e);
 			}
 		}
 	}
 
+	private File getWorldFile(URI world) {
+		return new File(m_baseDirectory.resolve(URI.create("/").relativize(world)));
+	}
+
+	private EditorZone createUnnamedZone() {
+		EditorZone z = new EditorZone(m_fontFactory, m_world.getUnusedZoneName());
+		z.setBounds(new Rect3F(1,1,0));
+		return z;
+	}
+
 	private void moveEntity(final IEntity entity) {
 		m_camera.lookAt(entity.getBody().getLocation());
 		m_workingBrush.setBehaviour(new MoveEntityBrushBehaviour(entity, new MoveEntityBrushBehaviour.IEntityMovementBrushBehaviorHandler() {
@@ -125,52 +146,115 @@ public class CommandBehaviourInjector extends BasicBehaviorInjector {
 	}
 
 	private void saveWorld(URI destination) {
-		DefaultWorldFactory.WorldConfiguration config = m_world.createWorldConfiguration();
-		try (final FileOutputStream fos = new FileOutputStream(new File(m_baseDirectory.resolve(URI.create("/").relativize(destination))))) {
-			JsonVariable var = new JsonVariable();
-			var.setValue(config);
-			var.serialize(fos, true);
+		if (m_save != null) {
+			displayMessage("The world is still being saved. Please wait for the save to complete before saving again.");
+			return;
+		}
+
+		StatusDialogue dialogue = null;
+		try {
+			dialogue = new StatusDialogueFactory(m_windowManager, m_windowFactory).create();
+		} catch (IWindowFactory.WindowConstructionException e) {
+			m_logger.error("Unable to construct status dialogue to display progress of world saving.", e);
+		}
+		m_saveDialogue = dialogue;
+
+		File file = getWorldFile(destination);
+		boolean isBinary = EditorWorldBinaryWriter.isBinaryWorld(destination.getPath());
+
+		//Edits made after the snapshot is taken remain in the journal once the save completes.
+		File previousJournalWorld = m_journal == null || m_journal.getWorldFile().equals(file) ? null : m_journal.getWorldFile();
+		long checkpoint = -1;
+		try {
+			if (previousJournalWorld != null) {
+				m_journal.close();
+				m_journal = null;
+			}
+			if (m_journal == null) {
+				m_journal = EditorWorldJournal.create(file, m_world);
+			}
+			checkpoint = m_journal.checkpoint();
+		} catch (IOException e) {
+			m_logger.error("Unable to prepare world journal for save, edits will not be journaled.", e);
+		}
+
+		//The snapshot is written on the engine's thread pool, so the world can continue to be edited during the save.
+		EditorWorldSnapshot snapshot = m_world.createSnapshot();
+
+		//Repeated saves to the same binary world only append what has changed since the last.
+		if (isBinary && (m_incrementalWriter == null || !m_incrementalWriter.getFile().equals(file))) {
+			m_incrementalWriter = new IncrementalWorldWriter(file);
+		}
+
+		m_save = new WorldSave(snapshot, file, isBinary ? m_incrementalWriter : null, EditorWorldJsonWriter.isRegionWorld(destination.getPath()), m_journal, checkpoint, previousJournalWorld);
+
+		//The engine's pool has no purpose for saving, so saves share the loading threads, being the same long running file work.
+		m_threadPool.execute(Purpose.Loading, m_save);
+	}
+
+	//Polled from the logic timer, so the status dialogue is only ever updated from the thread running the editor's logic.
+	private void pollSave() {
+		if (m_save == null) {
+			return;
+		}
+
+		WorldSave save = m_save;
+		boolean isComplete = save.isComplete();
+
+		if (m_saveDialogue != null) {
+			if (isComplete) {
+				m_saveDialogue.dispose();
+				m_saveDialogue = null;
+			} else {
+				m_saveDialogue.setStatus(save.getStatus(), save.getProgress());
+			}
+		}
+
+		if (!isComplete) {
+			return;
+		}
+
+		m_save = null;
+
+		if (save.isSuccessful()) {
+			completeJournal(save.m_journal, save.m_journalCheckpoint, save.m_previousJournalWorld);
 			displayMessage("World has been saved successfully.");
-		} catch (IOException | ValueSerializationException e) {
-			m_logger.error("Unable to save world", e);
+		} else {
 			displayMessage("Error occured attmepting to save world. View log for more details.");
 		}
 	}
 
+	//Discards the journaled edits which have now been saved, along with any journal left for a world saved under another name.
+	private void completeJournal(@Nullable EditorWorldJournal journal, long checkpoint, @Nullable File previousWorld) {
+		try {
+			if (journal != null && checkpoint >= 0) {
+				journal.truncate(checkpoint);
+			}
+			if (previousWorld != null) {
+				Files.deleteIfExists(EditorWorldJournal.getJournalFile(previousWorld).toPath());
+			}
+		} catch (IOException e) {
+			m_logger.error("Unable to truncate world journal", e);
+		}
+	}
+
 	private void verifyAndSaveWorld(URI destination) {
-		Map<String, EditorEntity> usedEntityNames = new HashMap<>();
-		Map<String, EditorZone> usedZoneNames = new HashMap<>();
 		final String message = "Due to a %s name conflict with the name '%s', the world could not be saved. Please resolve this issue before attempting to save again.";
-		for (EditorEntity e : m_world.getEntities()) {
-			if (usedEntityNames.containsKey(e.getName())) {
-				displayMessage(String.format(message, "entity", e.getName()));
-				return;
-			} else {
-				usedEntityNames.put(e.getName(), e);
-			}
+		String entityConflict = m_world.getConflictingEntityName();
+		if (entityConflict != null) {
+			displayMessage(String.format(message, "entity", entityConflict));
+			return;
 		}
-		for (EditorZone z : m_world.getZones()) {
-			if (usedZoneNames.containsKey(z.getName())) {
-				displayMessage(String.format(message, "zone", z.getName()));
-				return;
-			} else {
-				usedZoneNames.put(z.getName(), z);
-			}
+		String zoneConflict = m_world.getConflictingZoneName();
+		if (zoneConflict != null) {
+			displayMessage(String.format(message, "zone", zoneConflict));
+			return;
 		}
 		saveWorld(destination);
 	}
 
 	private EditorEntity createUnnamedEntity() {
-		Set<String> usedNames = new HashSet<>();
-		for (EditorEntity e : m_world.getEntities()) {
-			usedNames.add(e.getName());
-		}
-		for (int i = 0;; i++) {
-			String name = "Unnamed" + i;
-			if (!usedNames.contains(name)) {
-				return new EditorEntity(m_fontFactory, m_modelFactory, name, "");
-			}
-		}
+		return new EditorEntity(m_fontFactory, m_modelFactory, m_world.getUnusedEntityName(), "");
 	}
 
 	@Override
@@ -194,6 +278,13 @@ public class CommandBehaviourInjector extends BasicBehaviorInjector {
 				m_selectBrushQuery.poll();
 				m_selectLayerQuery.poll();
 				m_world.update(deltaTime);
+				pollSave();
+
+				m_sinceJournalFlush += deltaTime;
+				if (m_journal != null && m_sinceJournalFlush >= JOURNAL_FLUSH_INTERVAL) {
+					m_journal.flush();
+					m_sinceJournalFlush = 0;
+				}
 			}
 		});
 
@@ -257,6 +348,10 @@ public class CommandBehaviourInjector extends BasicBehaviorInjector {
 		getControl(Button.class, "btnClose").getObservers().add(new Button.IButtonPressObserver() {
 			@Override
 			public void onPress() {
+				if (m_journal != null) {
+					m_journal.close();
+					m_journal = null;
+				}
 				m_observers.raise(EditorWorldViewFactory.IEditorWorldViewObserver.class).close();
 			}
 		});
@@ -293,4 +388,72 @@ public class CommandBehaviourInjector extends BasicBehaviorInjector {
 		});
 	}
 
+	private final class WorldSave implements Runnable, IWorldWriteMonitor {
+		private final EditorWorldSnapshot m_snapshot;
+		private final File m_file;
+		@Nullable
+		private final IncrementalWorldWriter m_incrementalWriter;
+		private final boolean m_writesRegions;
+
+		@Nullable
+		private final EditorWorldJournal m_journal;
+		private final long m_journalCheckpoint;
+		@Nullable
+		private final File m_previousJournalWorld;
+
+		private volatile String m_status = "Saving world";
+		private volatile float m_progress = 0;
+		private volatile boolean m_isComplete = false;
+		private volatile boolean m_isSuccessful = false;
+
+		public WorldSave(EditorWorldSnapshot snapshot, File file, @Nullable IncrementalWorldWriter incrementalWriter, boolean writesRegions, @Nullable EditorWorldJournal journal, long journalCheckpoint, @Nullable File previousJournalWorld) {
+			m_snapshot = snapshot;
+			m_file = file;
+			m_incrementalWriter = incrementalWriter;
+			m_writesRegions = writesRegions;
+			m_journal = journal;
+			m_journalCheckpoint = journalCheckpoint;
+			m_previousJournalWorld = previousJournalWorld;
+		}
+
+		public String getStatus() {
+			return m_status;
+		}
+
+		public float getProgress() {
+			return m_progress;
+		}
+
+		public boolean isComplete() {
+			return m_isComplete;
+		}
+
+		public boolean isSuccessful() {
+			return m_isSuccessful;
+		}
+
+		@Override
+		public void statusChanged(float progress, String status) {
+			m_status = status;
+			m_progress = progress;
+		}
+
+		@Override
+		public void run() {
+			try {
+				if (m_incrementalWriter != null) {
+					m_incrementalWriter.save(m_snapshot, this);
+				} else {
+					try (final OutputStream out = new BufferedOutputStream(new FileOutputStream(m_file))) {
+						new EditorWorldJsonWriter(m_writesRegions).write(m_snapshot, out, this);
+					}
+				}
+				m_isSuccessful = true;
+			} catch (IOException | ValueSerializationException e) {
+				m_logger.error("Unable to save world", e);
+			} finally {
+				m_isComplete = true;
+			}
+		}
+	}
 }
@@ -24,8 +24,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  *
@@ -95,16 +93,7 @@ public class EntityBehaviorInjector extends BasicBehaviorInjector {
 	}
 
 	private EditorEntity createUnnamedEntity() {
-		Set<String> usedNames = new HashSet<>();
-		for (EditorEntity e : m_world.getEntities()) {
-			usedNames.add(e.getName());
-		}
-		for (int i = 0;; i++) {
-			String name = "Unnamed" + i;
-			if (!usedNames.contains(name)) {
-				return new EditorEntity(m_fontFactory, m_modelFactory, name, "");
-			}
-		}
+		return new EditorEntity(m_fontFactory, m_modelFactory, m_world.getUnusedEntityName(), "");
 	}
 
 	@Nullable
@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.worldbuilder.world;
+
+import io.github.jevaengine.util.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Chunks of a world whose tiles have not been placed, each recorded as the position of its cells in a
+ * binary world and the prototype tiles its palette indices refer to (see EditorWorld#deferChunks). Chunks
+ * of JSON worlds instead refer to a grid of indices into their prototypes, filled as the world was read.
+ *
+ * Neither the binary world nor the grid is written to once read, so a chunk may be read from any thread.
+ * The collection itself is only safe to use from one thread; snapshots take a copy.
+ */
+final class DeferredChunks
+{
+	private final LongObjectHashMap<LongObjectHashMap<Chunk>> m_layers;
+	private final List<EditorSceneArtifact[]> m_palettes;
+	private int m_size = 0;
+
+	public DeferredChunks()
+	{
+		m_layers = new LongObjectHashMap<>();
+		m_palettes = new ArrayList<>();
+	}
+
+	public DeferredChunks(DeferredChunks source)
+	{
+		m_layers = new LongObjectHashMap<>(source.m_layers.size());
+		m_palettes = source.m_palettes;
+		m_size = source.m_size;
+
+		for(int i = 0; i < source.m_layers.capacity(); i++)
+		{
+			LongObjectHashMap<Chunk> layer = source.m_layers.getValueAt(i);
+
+			if(layer != null)
+				m_layers.put(source.m_layers.getKeyAt(i), new LongObjectHashMap<>(layer));
+		}
+	}
+
+	private static long packChunk(int chunkX, int chunkY)
+	{
+		return ((long)chunkX << 32) | (chunkY & 0xFFFFFFFFL);
+	}
+
+	//Returns the chunk holding the given coordinate, saturating for very large or infinite values.
+	public static int getChunk(float value)
+	{
+		return (int)Math.floor(Math.max(-1.0E9, Math.min(1.0E9, value)) / TileGrid.CHUNK_SIZE);
+	}
+
+	public int size()
+	{
+		return m_size;
+	}
+
+	public boolean isEmpty()
+	{
+		return m_size == 0;
+	}
+
+	//Palettes are only ever added while a world is being loaded, before the chunks are deferred.
+	public void addPalette(EditorSceneArtifact[] prototypes)
+	{
+		m_palettes.add(prototypes);
+	}
+
+	public List<EditorSceneArtifact[]> getPalettes()
+	{
+		return Collections.unmodifiableList(m_palettes);
+	}
+
+	public void put(Chunk chunk)
+	{
+		long depth = TileGrid.quantize(chunk.z);
+		LongObjectHashMap<Chunk> layer = m_layers.get(depth);
+
+		if(layer == null)
+		{
+			layer = new LongObjectHashMap<>();
+			m_layers.put(depth, layer);
+		}
+
+		if(layer.put(packChunk(chunk.chunkX, chunk.chunkY), chunk) == null)
+			m_size++;
+	}
+
+	public boolean contains(float z, int chunkX, int chunkY)
+	{
+		LongObjectHashMap<Chunk> layer = m_layers.get(TileGrid.quantize(z));
+
+		return layer != null && layer.containsKey(packChunk(chunkX, chunkY));
+	}
+
+	@Nullable
+	public Chunk remove(float z, int chunkX, int chunkY)
+	{
+		long depth = TileGrid.quantize(z);
+		LongObjectHashMap<Chunk> layer = m_layers.get(depth);
+
+		if(layer == null)
+			return null;
+
+		Chunk removed = layer.remove(packChunk(chunkX, chunkY));
+
+		if(removed != null)
+			m_size--;
+
+		if(layer.isEmpty())
+			m_layers.remove(depth);
+
+		return removed;
+	}
+
+	public void removeLayer(float z)
+	{
+		LongObjectHashMap<Chunk> layer = m_layers.remove(TileGrid.quantize(z));
+
+		if(layer != null)
+			m_size -= layer.size();
+	}
+
+	public List<Float> getLayers()
+	{
+		List<Float> depths = new ArrayList<>(m_layers.size());
+
+		for(int i = 0; i < m_layers.capacity(); i++)
+		{
+			if(m_layers.getValueAt(i) != null)
+				depths.add(TileGrid.dequantize((int)m_layers.getKeyAt(i)));
+		}
+
+		return depths;
+	}
+
+	public List<Chunk> getChunks()
+	{
+		return getChunks(Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY);
+	}
+
+	public List<Chunk> getLayerChunks(float z)
+	{
+		float depth = TileGrid.dequantize(TileGrid.quantize(z));
+
+		return getChunks(Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, depth, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, depth);
+	}
+
+	/*
+	 * Returns the chunks holding cells within the given region, inclusive of its far edges. Small regions
+	 * look up each chunk they cover, larger ones scan the chunks of each layer they span.
+	 */
+	public List<Chunk> getChunks(float minX, float minY, float minZ, float maxX, float maxY, float maxZ)
+	{
+		ArrayList<Chunk> chunks = new ArrayList<>();
+
+		if(m_size == 0)
+			return chunks;
+
+		int minChunkX = getChunk(minX);
+		int minChunkY = getChunk(minY);
+		int maxChunkX = getChunk(maxX);
+		int maxChunkY = getChunk(maxY);
+
+		long area = ((long)maxChunkX - minChunkX + 1) * ((long)maxChunkY - minChunkY + 1);
+
+		for(int i = 0; i < m_layers.capacity(); i++)
+		{
+			LongObjectHashMap<Chunk> layer = m_layers.getValueAt(i);
+
+			if(layer == null)
+				continue;
+
+			float z = TileGrid.dequantize((int)m_layers.getKeyAt(i));
+
+			if(z < minZ - TileGrid.TOLERANCE || z > maxZ + TileGrid.TOLERANCE)
+				continue;
+
+			if(area <= layer.size())
+			{
+				for(int chunkY = minChunkY; chunkY <= maxChunkY; chunkY++)
+				{
+					for(int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++)
+					{
+						Chunk chunk = layer.get(packChunk(chunkX, chunkY));
+
+						if(chunk != null)
+							chunks.add(chunk);
+					}
+				}
+			} else
+			{
+				for(int c = 0; c < layer.capacity(); c++)
+				{
+					Chunk chunk = layer.getValueAt(c);
+
+					if(chunk != null && chunk.chunkX >= minChunkX && chunk.chunkX <= maxChunkX && chunk.chunkY >= minChunkY && chunk.chunkY <= maxChunkY)
+						chunks.add(chunk);
+				}
+			}
+		}
+
+		return chunks;
+	}
+
+	//Cells are visited with the palette id their prototype was interned with by the world.
+	public void visit(TileGrid.ICellVisitor visitor)
+	{
+		for(Chunk chunk : getChunks())
+			chunk.visit(visitor);
+	}
+
+	public void visitLayer(float z, TileGrid.ICellVisitor visitor)
+	{
+		for(Chunk chunk : getLayerChunks(z))
+			chunk.visit(visitor);
+	}
+
+	public static final class Chunk
+	{
+		@Nullable
+		private final ByteBuffer m_source;
+		private final int m_position;
+		private final EditorSceneArtifact[] m_prototypes;
+
+		@Nullable
+		private final TileGrid m_cells;
+
+		public final float z;
+		public final int chunkX;
+		public final int chunkY;
+
+		public Chunk(ByteBuffer source, int position, EditorSceneArtifact[] prototypes, float z, int chunkX, int chunkY)
+		{
+			m_source = source;
+			m_position = position;
+			m_prototypes = prototypes;
+			m_cells = null;
+			this.z = z;
+			this.chunkX = chunkX;
+			this.chunkY = chunkY;
+		}
+
+		public Chunk(TileGrid cells, EditorSceneArtifact[] prototypes, float z, int chunkX, int chunkY)
+		{
+			m_source = null;
+			m_position = 0;
+			m_prototypes = prototypes;
+			m_cells = cells;
+			this.z = z;
+			this.chunkX = chunkX;
+			this.chunkY = chunkY;
+		}
+
+		public void visit(final TileGrid.ICellVisitor visitor)
+		{
+			if(m_cells != null)
+			{
+				m_cells.visitChunk(z, chunkX, chunkY, new TileGrid.ICellVisitor() {
+					@Override
+					public void visit(float x, float y, float z, int paletteIndex)
+					{
+						visitor.visit(x, y, z, m_prototypes[paletteIndex].getPaletteEntry().getId());
+					}
+				});
+				return;
+			}
+
+			try
+			{
+				EditorWorldBinaryReader.readChunk(m_source, m_position, m_prototypes.length, z, chunkX, chunkY, new EditorWorldBinaryReader.ICellVisitor() {
+					@Override
+					public void visit(float x, float y, float z, int paletteIndex)
+					{
+						visitor.visit(x, y, z, m_prototypes[paletteIndex].getPaletteEntry().getId());
+					}
+				});
+			} catch (IOException e)
+			{
+				//The cells of the chunk were already read once, when it was indexed.
+				throw new IllegalStateException("Unable to read deferred chunk.", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.worldbuilder.world;
+
+import io.github.jevaengine.math.Rect3F;
+import io.github.jevaengine.math.Vector3F;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Accumulates the world space regions changed between two flushes.
+ *
+ * Overlapping regions are merged as they are added. Should the number of disjoint regions grow past
+ * MAX_REGIONS, they are collapsed into their common bounds, trading precision for a bounded cost.
+ */
+final class DirtyRegionTracker
+{
+	private static final int MAX_REGIONS = 32;
+
+	private final ArrayList<Rect3F> m_regions = new ArrayList<>();
+
+	public boolean isEmpty()
+	{
+		return m_regions.isEmpty();
+	}
+
+	public void mark(Vector3F location)
+	{
+		mark(new Rect3F(location, 0, 0, 0));
+	}
+
+	public void mark(Rect3F region)
+	{
+		Rect3F merged = new Rect3F(region);
+
+		for(int i = m_regions.size() - 1; i >= 0; i--)
+		{
+			if(intersects(m_regions.get(i), merged))
+			{
+				merged = union(m_regions.remove(i), merged);
+				i = m_regions.size();
+			}
+		}
+
+		m_regions.add(merged);
+
+		if(m_regions.size() > MAX_REGIONS)
+		{
+			Rect3F bounds = m_regions.get(0);
+
+			for(int i = 1; i < m_regions.size(); i++)
+				bounds = union(bounds, m_regions.get(i));
+
+			m_regions.clear();
+			m_regions.add(bounds);
+		}
+	}
+
+	//Returns the accumulated regions and resets the tracker.
+	public List<Rect3F> flush()
+	{
+		List<Rect3F> regions = new ArrayList<>(m_regions);
+		m_regions.clear();
+
+		return regions;
+	}
+
+	private static boolean intersects(Rect3F a, Rect3F b)
+	{
+		return a.x <= b.x + b.width && b.x <= a.x + a.width &&
+				a.y <= b.y + b.height && b.y <= a.y + a.height &&
+				a.z <= b.z + b.depth && b.z <= a.z + a.depth;
+	}
+
+	private static Rect3F union(Rect3F a, Rect3F b)
+	{
+		float minX = Math.min(a.x, b.x);
+		float minY = Math.min(a.y, b.y);
+		float minZ = Math.min(a.z, b.z);
+
+		return new Rect3F(minX, minY, minZ,
+							Math.max(a.x + a.width, b.x + b.width) - minX,
+							Math.max(a.y + a.height, b.y + b.height) - minY,
+							Math.max(a.z + a.depth, b.z + b.depth) - minZ);
+	}
+}
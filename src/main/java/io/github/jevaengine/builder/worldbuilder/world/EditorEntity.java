@@ -28,6 +28,7 @@ import io.github.jevaengine.math.Vector3F;
 import io.github.jevaengine.util.IObserverRegistry;
 import io.github.jevaengine.util.NullObservers;
 import io.github.jevaengine.util.Nullable;
+import io.github.jevaengine.util.Observers;
 import io.github.jevaengine.world.DefaultWorldFactory.WorldConfiguration.EntityImportDeclaration;
 import io.github.jevaengine.world.Direction;
 import io.github.jevaengine.world.World;
@@ -71,6 +72,8 @@ public final class EditorEntity
 
 	private ISceneModelFactory m_modelFactory;
 	
+	private final Observers m_observers = new Observers();
+	
 	public EditorEntity(IFontFactory fontFactory, ISceneModelFactory modelFactory, String name, String className, @Nullable URI config)
 	{
 		m_font = new NullFont();
@@ -129,9 +132,19 @@ public final class EditorEntity
 		}
 	}
 
+	/*
+	 * Observers are notified of changes made through this EditorEntity, which is how the
+	 * EditorWorld keeps its indices current.
+	 */
+	public IObserverRegistry getObservers()
+	{
+		return m_observers;
+	}
+
 	public void setAuxiliaryConfig(JsonVariable config)
 	{
 		m_auxConfig = config;
+		m_observers.raise(IEditorEntityObserver.class).propertiesChanged(this);
 	}
 	
 	public JsonVariable getAuxiliaryConfig()
@@ -142,6 +155,7 @@ public final class EditorEntity
 	public void setName(String name)
 	{
 		m_name = name;
+		m_observers.raise(IEditorEntityObserver.class).propertiesChanged(this);
 	}
 
 	public String getName()
@@ -152,6 +166,7 @@ public final class EditorEntity
 	public void setClassName(String className)
 	{
 		m_className = className;
+		m_observers.raise(IEditorEntityObserver.class).propertiesChanged(this);
 	}
 
 	public String getClassName()
@@ -169,6 +184,7 @@ public final class EditorEntity
 	{
 		m_config = config;
 		rebuildModel();
+		m_observers.raise(IEditorEntityObserver.class).propertiesChanged(this);
 	}
 	
 	public void clearConfig()
@@ -184,6 +200,7 @@ public final class EditorEntity
 	public void setLocation(Vector3F location)
 	{
 		m_dummy.getBody().setLocation(location);
+		m_observers.raise(IEditorEntityObserver.class).locationChanged(this);
 	}
 	
 	public Direction getDirection()
@@ -194,6 +211,7 @@ public final class EditorEntity
 	public void setDirection(Direction direction)
 	{
 		m_dummy.getBody().setDirection(direction);
+		m_observers.raise(IEditorEntityObserver.class).propertiesChanged(this);
 	}
 
 	public DummyEntity getEntity()
@@ -219,6 +237,14 @@ public final class EditorEntity
 		return String.format("%s of %s", m_name, m_className + (m_config != null ? " with " + m_config : ""));
 	}
 	
+	public interface IEditorEntityObserver
+	{
+		void locationChanged(EditorEntity entity);
+		
+		//Raised when the name, class, configuration, direction or auxiliary configuration changes.
+		void propertiesChanged(EditorEntity entity);
+	}
+	
 	public class DummyEntity implements IEntity
 	{
 		private final IPhysicsBody m_body = new NonparticipantPhysicsBody(this);
@@ -21,6 +21,7 @@ package io.github.jevaengine.builder.worldbuilder.world;
 import io.github.jevaengine.math.Vector3F;
 import io.github.jevaengine.util.IObserverRegistry;
 import io.github.jevaengine.util.NullObservers;
+import io.github.jevaengine.util.Nullable;
 import io.github.jevaengine.world.DefaultWorldFactory.WorldConfiguration.SceneArtifactImportDeclaration;
 import io.github.jevaengine.world.Direction;
 import io.github.jevaengine.world.World;
@@ -37,29 +38,30 @@ import io.github.jevaengine.world.scene.model.ISceneModel;
 import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public final class EditorSceneArtifact
 {
 	private static final AtomicInteger m_unnamedCount = new AtomicInteger();
 	
-	private URI m_sceneModelName;
+	private TilePalette.Entry m_descriptor;
+	private IImmutableSceneModel m_sourceModel;
+	@Nullable
 	private ISceneModel m_sceneModel;
-	private Direction m_direction;
-	private boolean m_isTraversable;
-	private final boolean m_isStatic;
+	private boolean m_isModelShared = false;
 	
 	private final DummySceneArtifact m_dummy;
 
+	/*
+	 * The tile only copies the given model once it needs a model of its own. Tiles placed into an EditorWorld
+	 * are given the model shared by every tile of the same model and direction instead, which is copied from
+	 * the model of the first such tile, so the model must not be modified by the caller until it is placed.
+	 */
 	public EditorSceneArtifact(IImmutableSceneModel sceneModel, URI sceneModelName, Direction direction, boolean isTraversable, boolean isStatic)
 	{
-		m_direction = direction;
-		m_isTraversable = isTraversable;
-		m_sceneModelName = sceneModelName;
-		m_sceneModel = sceneModel.clone();
-		m_isStatic = isStatic;
-		m_dummy = new DummySceneArtifact(this.getClass().getName() + m_unnamedCount.getAndIncrement());
+		m_descriptor = new TilePalette.Entry(sceneModelName, direction, isTraversable, isStatic);
+		m_sourceModel = sceneModel;
+		m_dummy = new DummySceneArtifact(m_unnamedCount.getAndIncrement());
 	}
 
 	protected DummySceneArtifact getEntity()
@@ -67,36 +69,61 @@ public final class EditorSceneArtifact
 		return m_dummy;
 	}
 
-	public boolean isStatic()
+	/*
+	 * The descriptor is replaced by its interned palette entry when the tile is placed into an EditorWorld.
+	 */
+	TilePalette.Entry getPaletteEntry()
 	{
-		return m_isStatic;
+		return m_descriptor;
 	}
-	
-	public void setTraversable(boolean isTraversable)
+
+	void setPaletteEntry(TilePalette.Entry entry)
 	{
-		m_isTraversable = isTraversable;
+		m_descriptor = entry;
 	}
-	
-	public boolean isTraversable()
+
+	ISceneModel getSceneModel()
 	{
-		return m_isTraversable;
+		if(m_sceneModel == null)
+			m_sceneModel = m_sourceModel.clone();
+		
+		return m_sceneModel;
 	}
 
-	public IImmutableSceneModel getModel()
+	//The model this tile was created from, until it has a model of its own.
+	IImmutableSceneModel getSourceModel()
 	{
-		return m_sceneModel.clone();
+		return m_sceneModel == null ? m_sourceModel : m_sceneModel;
+	}
+
+	/*
+	 * Shared models are owned by the world's prototype registry, which is responsible for updating them.
+	 */
+	void setSharedModel(ISceneModel model)
+	{
+		m_sceneModel = model;
+		m_sourceModel = model;
+		m_isModelShared = true;
+	}
+
+	public boolean isStatic()
+	{
+		return m_descriptor.isStatic();
 	}
 	
-	public void setModel(ISceneModel sceneModel, URI sceneModelName, Direction direction)
+	public boolean isTraversable()
 	{
-		m_sceneModel = sceneModel;
-		m_sceneModelName = sceneModelName;
-		m_direction = direction;
+		return m_descriptor.isTraversable();
+	}
+
+	public IImmutableSceneModel getModel()
+	{
+		return getSourceModel().clone();
 	}
 
 	public URI getModelName()
 	{
-		return m_sceneModelName;
+		return m_descriptor.getModelName();
 	}
 
 	/*
@@ -114,7 +141,7 @@ public final class EditorSceneArtifact
 
 	public Direction getDirection()
 	{
-		return m_direction;
+		return m_descriptor.getDirection();
 	}
 
 	public SceneArtifactImportDeclaration createSceneArtifactDeclaration()
@@ -122,21 +149,16 @@ public final class EditorSceneArtifact
 		SceneArtifactImportDeclaration artifactDecl = new SceneArtifactImportDeclaration();
 		
 		artifactDecl.isTraversable = isTraversable();
-		artifactDecl.model = m_sceneModelName.toString();
-		artifactDecl.direction = m_direction;
-		artifactDecl.isStatic = m_isStatic;
+		artifactDecl.model = getModelName().toString();
+		artifactDecl.direction = getDirection();
+		artifactDecl.isStatic = isStatic();
 		
 		return artifactDecl;
 	}
 
 	@Override
 	public int hashCode() {
-		int hash = 5;
-		hash = 97 * hash + Objects.hashCode(this.m_sceneModelName);
-		hash = 97 * hash + Objects.hashCode(this.m_direction);
-		hash = 97 * hash + (this.m_isTraversable ? 1 : 0);
-		hash = 97 * hash + (this.m_isStatic ? 1 : 0);
-		return hash;
+		return m_descriptor.hashCode();
 	}
 
 	@Override
@@ -148,32 +170,22 @@ public final class EditorSceneArtifact
 			return false;
 		}
 		final EditorSceneArtifact other = (EditorSceneArtifact) obj;
-		if (!Objects.equals(this.m_sceneModelName, other.m_sceneModelName)) {
-			return false;
-		}
-		if (this.m_direction != other.m_direction) {
-			return false;
-		}
-		if (this.m_isTraversable != other.m_isTraversable) {
-			return false;
-		}
-		if (this.m_isStatic != other.m_isStatic) {
-			return false;
-		}
-		return true;
+		return m_descriptor == other.m_descriptor || m_descriptor.equals(other.m_descriptor);
 	}
 
 	public class DummySceneArtifact implements IEntity
 	{
-		private final String m_name;
+		private final int m_id;
 		private IPhysicsBody m_body = new NullPhysicsBody();
 		private World m_world;
-		private final EntityBridge m_bridge;
 		
-		public DummySceneArtifact(String name)
+		@Nullable
+		private EntityBridge m_bridge;
+		
+		//The name and bridge are only created on request, as a world holds one of these per tile near the view.
+		public DummySceneArtifact(int id)
 		{
-			m_name = name;
-			m_bridge = new EntityBridge(this);
+			m_id = id;
 		}
 
 		@Override
@@ -191,7 +203,7 @@ public final class EditorSceneArtifact
 		@Override
 		public IImmutableSceneModel getModel()
 		{
-			return m_sceneModel;
+			return getSourceModel();
 		}
 
 		@Override
@@ -223,7 +235,7 @@ public final class EditorSceneArtifact
 		@Override
 		public String getInstanceName()
 		{
-			return m_name;
+			return EditorSceneArtifact.class.getName() + m_id;
 		}
 
 		@Override
@@ -247,19 +259,23 @@ public final class EditorSceneArtifact
 		@Override
 		public EntityBridge getBridge()
 		{
+			if(m_bridge == null)
+				m_bridge = new EntityBridge(this);
+			
 			return m_bridge;
 		}
 
 		@Override
 		public void update(int delta)
 		{	
-			m_sceneModel.update(delta);
+			if(!m_isModelShared)
+				getSceneModel().update(delta);
 		}
 		
 		@Override
 		public boolean isStatic()
 		{
-			return m_isStatic;
+			return m_descriptor.isStatic();
 		}
 		
 		public IEntityTaskModel getTaskModel()
@@ -23,15 +23,17 @@ import io.github.jevaengine.builder.worldbuilder.world.EditorSceneArtifact.Dummy
 import io.github.jevaengine.builder.worldbuilder.world.EditorWeatherFactory.EditorWeather;
 import io.github.jevaengine.graphics.IFontFactory;
 import io.github.jevaengine.math.Rect2D;
+import io.github.jevaengine.math.Rect2F;
 import io.github.jevaengine.math.Rect3F;
 import io.github.jevaengine.math.Vector3F;
 import io.github.jevaengine.util.IObserverRegistry;
 import io.github.jevaengine.util.NullObservers;
 import io.github.jevaengine.util.Nullable;
+import io.github.jevaengine.util.Observers;
 import io.github.jevaengine.world.DefaultWorldFactory.WorldConfiguration;
 import io.github.jevaengine.world.DefaultWorldFactory.WorldConfiguration.EntityImportDeclaration;
-import io.github.jevaengine.world.DefaultWorldFactory.WorldConfiguration.SceneArtifactImportDeclaration;
 import io.github.jevaengine.world.DefaultWorldFactory.WorldConfiguration.ZoneDeclaration;
+import io.github.jevaengine.world.IWorldFactory.WorldConstructionException;
 import io.github.jevaengine.world.World;
 import io.github.jevaengine.world.entity.IEntity;
 import io.github.jevaengine.world.entity.IEntityTaskModel;
@@ -45,6 +47,7 @@ import io.github.jevaengine.world.scene.model.IImmutableSceneModel;
 import io.github.jevaengine.world.scene.model.NullSceneModel;
 
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
 
 public final class EditorWorld
 {
@@ -52,16 +55,81 @@ public final class EditorWorld
 
 	private Vector3F m_worldViewCursor = new Vector3F();
 	private final WorldEditCursor m_worldEditCursor;
-	private final ArrayList<EditorEntity> m_entities = new ArrayList<>();
-	private final ArrayList<EditorZone> m_zones = new ArrayList<>();
-	private final HashMap<TileLocation, EditorSceneArtifact> m_tiles = new HashMap<>();
+	private static final float ENTITY_INDEX_CELL_SIZE = 1.0F;
+	
+	private final IndexedList<EditorEntity> m_entities = new IndexedList<>();
+	private final SpatialHash<EditorEntity> m_entityIndex = new SpatialHash<>(ENTITY_INDEX_CELL_SIZE);
+	private final EntityIndexObserver m_entityIndexObserver = new EntityIndexObserver();
+	private final IndexedList<EditorZone> m_zones = new IndexedList<>();
+	private final RTree<EditorZone> m_zoneIndex = new RTree<>();
+	private final ZoneIndexObserver m_zoneIndexObserver = new ZoneIndexObserver();
+	private final NameIndex<EditorEntity> m_entityNames = new NameIndex<>();
+	private final NameIndex<EditorZone> m_zoneNames = new NameIndex<>();
+	private final TileGrid m_tiles = new TileGrid();
+	private final TilePalette m_palette = new TilePalette();
+	private final SceneModelPrototypes m_modelPrototypes = new SceneModelPrototypes();
+	
+	//Cells only hold a palette id, the prototype of each id describes their tile.
+	private final ArrayList<EditorSceneArtifact> m_prototypes = new ArrayList<>();
+	private final TileArtifacts m_artifacts = new TileArtifacts();
 	
 	private float m_metersPerUnit = 0;
 	private float m_logicPerUnit = 0;
 	private float m_maxFrictionForce = 0;
 	private String m_script = "";
 
-	private final List<Float> m_hiddenLayers = new ArrayList();
+	private final HashSet<Integer> m_hiddenLayers = new HashSet<>();
+	
+	private final Observers m_observers = new Observers();
+	
+	private int m_batchDepth = 0;
+	private final IdentityHashMap<EditorSceneArtifact, Vector3F> m_pendingRegistrations = new IdentityHashMap<>();
+	private final ArrayList<EditorSceneArtifact> m_pendingUnregistrations = new ArrayList<>();
+	private final Vector3F m_changedMin = new Vector3F();
+	private final Vector3F m_changedMax = new Vector3F();
+	private boolean m_hasChanges = false;
+	
+	private final DirtyRegionTracker m_dirtyRegions = new DirtyRegionTracker();
+	
+	private static final int RESIDENT_CHUNK_MARGIN = 1;
+	private static final int MAX_RESIDENT_CHUNKS = 1024;
+	private static final float MIN_FREE_MEMORY = 0.2F;
+	
+	//Chunks yet to be placed, and those of a mapped world placed but not edited since, which may be deferred again.
+	private DeferredChunks m_deferredChunks = new DeferredChunks();
+	private final DeferredChunks m_residentChunks = new DeferredChunks();
+	private boolean m_defersDistantChunks = false;
+	private final Vector3F m_focus = new Vector3F();
+	private int m_focusChunkX = 0;
+	private int m_focusChunkY = 0;
+	private final Rect2F m_visibleBounds = new Rect2F();
+	
+	//The chunks whose cells have a tile registered with the World, none until the focus is first set.
+	private int m_artifactMinChunkX = 0;
+	private int m_artifactMinChunkY = 0;
+	private int m_artifactMaxChunkX = -1;
+	private int m_artifactMaxChunkY = -1;
+	
+	private static final long MAX_LOAD_TIME_PER_UPDATE = 8 * 1000 * 1000;
+	
+	//Content of a world opened before it was read, see beginLoad.
+	private boolean m_isLoading = false;
+	@Nullable
+	private CountDownLatch m_loadLatch;
+	private volatile String m_loadStatus = "";
+	private volatile WorldContent m_loadedContent;
+	private volatile WorldConstructionException m_loadError;
+	
+	private final ArrayList<EditorEntity> m_loadingEntities = new ArrayList<>();
+	private final ArrayList<EditorZone> m_loadingZones = new ArrayList<>();
+	private int m_loadedChunkCount = 0;
+	private int m_loadedEntityCount = 0;
+	private int m_loadedZoneCount = 0;
+	private int m_loadRadius = 0;
+	
+	//Entities added to the underlying World, counted as they are added rather than by walking its entities.
+	private int m_registeredEntityCount = 0;
+	private boolean m_isLoadOrderStale = false;
 	
 	public EditorWorld(World world, IFontFactory fontFactory)
 	{
@@ -72,38 +140,795 @@ public final class EditorWorld
 		m_world = world;
 		m_worldEditCursor = new WorldEditCursor(world);
 		
-		for(IEntity e : world.getEntities().all())
-		{
-			if(e instanceof DummySceneArtifact)
-				m_tiles.put(new TileLocation(e.getBody().getLocation()), ((DummySceneArtifact)e).getEditorTile());
-			else if(e instanceof DummyEntity)
-				m_entities.add(((DummyEntity)e).getEditorEntity());
-		}
+		ArrayList<IEntity> placedTiles = new ArrayList<>();
+		
+		for(IEntity e : world.getEntities().all())
+		{
+			m_registeredEntityCount++;
+			
+			if(e instanceof DummySceneArtifact)
+			{
+				int replaced = m_tiles.put(e.getBody().getLocation(), internTile(((DummySceneArtifact)e).getEditorTile()));
+				
+				if(replaced >= 0)
+					releaseCell(replaced);
+				
+				placedTiles.add(e);
+			}
+			else if(e instanceof DummyEntity)
+			{
+				EditorEntity entity = ((DummyEntity)e).getEditorEntity();
+				m_entities.add(entity);
+				m_entityNames.put(entity, entity.getName());
+				indexEntity(entity);
+			}
+		}
+		
+		for(Map.Entry<String, Rect3F> zone : world.getZones().entrySet())
+		{
+			Rect3F bounds = zone.getValue();
+			
+			EditorZone editorZone = new EditorZone(fontFactory, zone.getKey());
+			editorZone.setLocation(bounds.getPoint(0, 0, 0));
+			editorZone.setBounds(new Rect3F(0, 0, 0, bounds.width, bounds.height, bounds.depth));
+			
+			registerEntity(editorZone.getEntity());
+			m_zones.add(editorZone);
+			m_zoneNames.put(editorZone, editorZone.getName());
+			indexZone(editorZone);
+		}
+		
+		//Tiles are registered with the World again once they are near the visible bounds, see setFocus.
+		for(IEntity e : placedTiles)
+			unregisterEntity(e);
+	}
+
+	//Depends only on the bounds of the world, so it may also be called by the thread loading the world.
+	Vector3F getBoundedTileLocation(Vector3F location)
+	{
+		Rect2D worldBounds = m_world.getBounds();
+	
+		return TileGrid.snap(new Vector3F(Math.min(Math.max((float)worldBounds.x, location.x), worldBounds.x + worldBounds.width - 1),
+												Math.min(Math.max((float)worldBounds.y, location.y), worldBounds.y + worldBounds.height - 1),
+												location.z));
+	}
+
+	/*
+	 * While a batch is open, tiles are placed into the grid immediately but their dummy
+	 * entities are only registered with or removed from the engine World when the batch is
+	 * committed. A tile placed and cleared within the same batch never reaches the World.
+	 */
+	private void registerTile(EditorSceneArtifact tile, Vector3F location)
+	{
+		m_pendingRegistrations.put(tile, location);
+	}
+	
+	private void unregisterTile(EditorSceneArtifact tile)
+	{
+		if(m_pendingRegistrations.remove(tile) == null)
+			m_pendingUnregistrations.add(tile);
+	}
+	
+	private void moveTile(EditorSceneArtifact tile, Vector3F location)
+	{
+		if(m_pendingRegistrations.containsKey(tile))
+			m_pendingRegistrations.put(tile, location);
+		else
+			tile.setLocation(location);
+	}
+	
+	private void markTileChanged(float x, float y, float z)
+	{
+		if(!m_hasChanges)
+		{
+			m_changedMin.x = m_changedMax.x = x;
+			m_changedMin.y = m_changedMax.y = y;
+			m_changedMin.z = m_changedMax.z = z;
+			m_hasChanges = true;
+		} else
+		{
+			m_changedMin.x = Math.min(m_changedMin.x, x);
+			m_changedMin.y = Math.min(m_changedMin.y, y);
+			m_changedMin.z = Math.min(m_changedMin.z, z);
+			m_changedMax.x = Math.max(m_changedMax.x, x);
+			m_changedMax.y = Math.max(m_changedMax.y, y);
+			m_changedMax.z = Math.max(m_changedMax.z, z);
+		}
+	}
+	
+	public IObserverRegistry getObservers()
+	{
+		return m_observers;
+	}
+	
+	/*
+	 * Batches may be nested, only the outermost commit applies the pending changes and
+	 * notifies observers.
+	 */
+	public void beginBatch()
+	{
+		m_batchDepth++;
+	}
+	
+	public void commitBatch()
+	{
+		if(m_batchDepth <= 0)
+			throw new IllegalStateException("No tile batch has been started.");
+		
+		if(--m_batchDepth > 0)
+			return;
+		
+		for(EditorSceneArtifact tile : m_pendingUnregistrations)
+			unregisterEntity(tile.getEntity());
+		
+		for(Map.Entry<EditorSceneArtifact, Vector3F> registration : m_pendingRegistrations.entrySet())
+		{
+			registerEntity(registration.getKey().getEntity());
+			registration.getKey().setLocation(registration.getValue());
+		}
+		
+		m_pendingUnregistrations.clear();
+		m_pendingRegistrations.clear();
+		
+		if(m_hasChanges)
+		{
+			m_hasChanges = false;
+			Rect3F bounds = new Rect3F(m_changedMin, m_changedMax.x - m_changedMin.x, m_changedMax.y - m_changedMin.y, m_changedMax.z - m_changedMin.z);
+			m_dirtyRegions.mark(bounds);
+			m_observers.raise(IEditorWorldObserver.class).tilesChanged(bounds);
+		}
+	}
+	
+	/*
+	 * Notifies dirty region observers of everything changed since the last flush. Called once
+	 * per update, but may also be called directly by consumers needing the regions sooner.
+	 */
+	public void flushDirtyRegions()
+	{
+		if(m_dirtyRegions.isEmpty())
+			return;
+		
+		List<Rect3F> regions = m_dirtyRegions.flush();
+		m_observers.raise(IDirtyRegionObserver.class).regionsChanged(regions);
+	}
+	
+	private void registerEntity(IEntity e)
+	{
+		m_world.addEntity(e);
+		m_registeredEntityCount++;
+	}
+	
+	private void unregisterEntity(IEntity e)
+	{
+		m_world.removeEntity(e);
+		m_registeredEntityCount--;
+	}
+	
+	private void indexEntity(EditorEntity e)
+	{
+		m_entityIndex.put(e, e.getLocation());
+		e.getObservers().add(m_entityIndexObserver);
+	}
+	
+	private void unindexEntity(EditorEntity e)
+	{
+		e.getObservers().remove(m_entityIndexObserver);
+		m_entityIndex.remove(e);
+	}
+	
+	private void indexZone(EditorZone zone)
+	{
+		m_zoneIndex.put(zone, zone.getRegion());
+		zone.getObservers().add(m_zoneIndexObserver);
+	}
+	
+	private void unindexZone(EditorZone zone)
+	{
+		zone.getObservers().remove(m_zoneIndexObserver);
+		m_zoneIndex.remove(zone);
+	}
+	
+	/*
+	 * Interns the palette entry of a tile, creating the prototype of the entry if it has none, and returns its
+	 * id. The id holds a reference until it is released with releaseCell.
+	 */
+	private int internTile(EditorSceneArtifact tile)
+	{
+		TilePalette.Entry entry = m_palette.intern(tile.getPaletteEntry());
+		int id = entry.getId();
+		
+		while(m_prototypes.size() <= id)
+			m_prototypes.add(null);
+		
+		if(m_prototypes.get(id) == null)
+		{
+			EditorSceneArtifact prototype = new EditorSceneArtifact(tile.getSourceModel(), entry.getModelName(), entry.getDirection(), entry.isTraversable(), entry.isStatic());
+			prototype.setPaletteEntry(entry);
+			prototype.setSharedModel(m_modelPrototypes.acquire(entry.getModelName(), entry.getDirection(), tile.getSourceModel()));
+			m_prototypes.set(id, prototype);
+		}
+		
+		tile.setPaletteEntry(entry);
+		tile.setSharedModel(m_prototypes.get(id).getSceneModel());
+		
+		return id;
+	}
+	
+	//Adds a reference to an id which is already interned, for another cell.
+	private void retainCell(int id)
+	{
+		m_palette.intern(m_palette.get(id));
+	}
+	
+	private void releaseCell(int id)
+	{
+		TilePalette.Entry entry = m_palette.get(id);
+		m_palette.release(entry);
+		
+		if(m_palette.get(id) != entry)
+		{
+			EditorSceneArtifact prototype = m_prototypes.set(id, null);
+			m_modelPrototypes.release(prototype.getModelName(), prototype.getDirection());
+		}
+	}
+	
+	private boolean hasArtifact(float x, float y)
+	{
+		int chunkX = TileGrid.getChunk(x);
+		int chunkY = TileGrid.getChunk(y);
+		
+		return chunkX >= m_artifactMinChunkX && chunkX <= m_artifactMaxChunkX && chunkY >= m_artifactMinChunkY && chunkY <= m_artifactMaxChunkY;
+	}
+	
+	private void addArtifact(Vector3F location, int id)
+	{
+		EditorSceneArtifact prototype = m_prototypes.get(id);
+		EditorSceneArtifact tile = new EditorSceneArtifact(prototype.getSourceModel(), prototype.getModelName(), prototype.getDirection(), prototype.isTraversable(), prototype.isStatic());
+		
+		tile.setPaletteEntry(prototype.getPaletteEntry());
+		tile.setSharedModel(prototype.getSceneModel());
+		
+		m_artifacts.put(location, tile);
+		registerTile(tile, location);
+	}
+	
+	private void removeArtifact(Vector3F location)
+	{
+		EditorSceneArtifact tile = m_artifacts.remove(location);
+		
+		if(tile != null)
+			unregisterTile(tile);
+	}
+	
+	//The cell takes over the reference held by the given id, and releases that of the id it replaces.
+	private void putCell(Vector3F location, int id)
+	{
+		int replaced = m_tiles.put(location, id);
+		
+		if(replaced >= 0)
+		{
+			releaseCell(replaced);
+			removeArtifact(location);
+		}
+		
+		if(hasArtifact(location.x, location.y))
+			addArtifact(location, id);
+		
+		markTileChanged(location.x, location.y, location.z);
+	}
+	
+	private void removeCell(Vector3F location)
+	{
+		int removed = m_tiles.remove(location);
+		
+		if(removed < 0)
+			return;
+		
+		releaseCell(removed);
+		removeArtifact(location);
+		markTileChanged(location.x, location.y, location.z);
+	}
+
+	/*
+	 * Defers placing the tiles of the given chunks until they are reached by an operation on the world
+	 * or come near the visible bounds (see setFocus), so deferred tiles behave as though they had been placed.
+	 * Statistics only account for placed tiles.
+	 */
+	private void deferChunks(DeferredChunks chunks, boolean defersDistantChunks)
+	{
+		//Prototypes are interned for as long as the world exists, snapshots refer to them by palette id.
+		for(EditorSceneArtifact[] palette : chunks.getPalettes())
+		{
+			for(EditorSceneArtifact prototype : palette)
+				internTile(prototype);
+		}
+		
+		m_deferredChunks = chunks;
+		m_defersDistantChunks = defersDistantChunks;
+	}
+	
+	/*
+	 * Marks the world as loading before it is handed to the editor. The content of the world is then read
+	 * on the calling thread and handed over with completeLoad or failLoad, which along with setLoadStatus
+	 * are the only methods the loader may call. Edits made before the content has been read wait for it.
+	 */
+	void beginLoad()
+	{
+		m_isLoading = true;
+		m_loadLatch = new CountDownLatch(1);
+	}
+	
+	void setLoadStatus(String status)
+	{
+		m_loadStatus = status;
+	}
+	
+	void completeLoad(WorldContent content)
+	{
+		m_loadedContent = content;
+		m_loadLatch.countDown();
+	}
+	
+	void failLoad(WorldConstructionException e)
+	{
+		m_loadError = e;
+		m_loadLatch.countDown();
+	}
+	
+	//Places all of the given content before the world is handed to the editor, only mapped chunks remain deferred.
+	void loadContent(WorldContent content)
+	{
+		takeContent(content);
+		
+		if(!content.isMapped())
+			placeDeferredChunks(Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY);
+		
+		placeLoadingEntities();
+		placeLoadingZones();
+	}
+	
+	/*
+	 * Whether the world is still being loaded. Loading ends once the content has been read and all of it
+	 * placed, except for the chunks of a mapped world, which are only placed as they are needed.
+	 */
+	public boolean isLoading()
+	{
+		return m_isLoading;
+	}
+	
+	public EditorWorldLoadProgress getLoadProgress()
+	{
+		if(m_loadLatch != null)
+			return new EditorWorldLoadProgress(m_loadStatus);
+		
+		return new EditorWorldLoadProgress(getLoadProgress(m_deferredChunks.size(), m_loadedChunkCount),
+											getLoadProgress(m_loadingEntities.size(), m_loadedEntityCount),
+											getLoadProgress(m_loadingZones.size(), m_loadedZoneCount));
+	}
+	
+	private static float getLoadProgress(int remaining, int total)
+	{
+		return total == 0 ? 1.0F : 1.0F - Math.min(remaining, total) / (float)total;
+	}
+	
+	private void takeLoadedContent(boolean wait)
+	{
+		if(m_loadLatch == null || (!wait && m_loadLatch.getCount() > 0))
+			return;
+		
+		boolean interrupted = false;
+		
+		while(m_loadLatch.getCount() > 0)
+		{
+			try
+			{
+				m_loadLatch.await();
+			} catch (InterruptedException e)
+			{
+				interrupted = true;
+			}
+		}
+		
+		if(interrupted)
+			Thread.currentThread().interrupt();
+		
+		m_loadLatch = null;
+		
+		if(m_loadError != null)
+		{
+			m_isLoading = false;
+			m_observers.raise(ILoadObserver.class).loadFailed(m_loadError);
+		} else
+			takeContent(m_loadedContent);
+		
+		m_loadedContent = null;
+	}
+	
+	/*
+	 * Nothing has been edited before content is taken, so it can be taken as is. Properties read with the
+	 * content replace those the world was created with.
+	 */
+	private void takeContent(WorldContent content)
+	{
+		if(content.hasProperties())
+		{
+			m_maxFrictionForce = content.getFriction();
+			m_script = content.getScript();
+			
+			if(content.getWeather() != null)
+				m_world.setWeather(content.getWeather());
+		}
+		
+		deferChunks(content.getChunks(), content.isMapped());
+		
+		beginBatch();
+		
+		content.visitCells(new ITileVisitor() {
+			@Override
+			public void visit(float x, float y, float z, EditorSceneArtifact prototype)
+			{
+				putCell(new Vector3F(x, y, z), internTile(prototype));
+			}
+		});
+		
+		commitBatch();
+		
+		m_entities.addAll(content.getEntities());
+		m_loadingEntities.addAll(content.getEntities());
+		m_zones.addAll(content.getZones());
+		m_loadingZones.addAll(content.getZones());
+		
+		for(EditorEntity e : content.getEntities())
+			m_entityNames.put(e, e.getName());
+		
+		for(EditorZone zone : content.getZones())
+			m_zoneNames.put(zone, zone.getName());
+		
+		m_loadedChunkCount = content.isMapped() ? 0 : m_deferredChunks.size();
+		m_loadedEntityCount = m_loadingEntities.size();
+		m_loadedZoneCount = m_loadingZones.size();
+		m_isLoadOrderStale = true;
+	}
+	
+	/*
+	 * Places some of the content of a loading world each update, zones and entities and then chunks, each
+	 * nearest to the focus first.
+	 */
+	private void placeLoadingContent()
+	{
+		takeLoadedContent(false);
+		
+		if(m_loadLatch != null || !m_isLoading)
+			return;
+		
+		long deadline = System.nanoTime() + MAX_LOAD_TIME_PER_UPDATE;
+		
+		if(m_isLoadOrderStale)
+		{
+			sortLoadingContent();
+			m_isLoadOrderStale = false;
+		}
+		
+		while(!m_loadingZones.isEmpty() && System.nanoTime() < deadline)
+			placeLoadingZone(m_loadingZones.remove(m_loadingZones.size() - 1));
+		
+		while(!m_loadingEntities.isEmpty() && System.nanoTime() < deadline)
+			placeLoadingEntity(m_loadingEntities.remove(m_loadingEntities.size() - 1));
+		
+		if(!m_defersDistantChunks)
+			placeNearestDeferredChunks(deadline);
+		
+		if(m_loadingZones.isEmpty() && m_loadingEntities.isEmpty() && (m_defersDistantChunks || m_deferredChunks.isEmpty()))
+			m_isLoading = false;
+	}
+	
+	private float getFocusDistance(float x, float y)
+	{
+		return (x - m_focus.x) * (x - m_focus.x) + (y - m_focus.y) * (y - m_focus.y);
+	}
+	
+	//Content is placed from the end of each list, so the nearest is sorted last.
+	private void sortLoadingContent()
+	{
+		Collections.sort(m_loadingEntities, new Comparator<EditorEntity>() {
+			@Override
+			public int compare(EditorEntity a, EditorEntity b)
+			{
+				return Float.compare(getFocusDistance(b.getLocation().x, b.getLocation().y), getFocusDistance(a.getLocation().x, a.getLocation().y));
+			}
+		});
+		
+		Collections.sort(m_loadingZones, new Comparator<EditorZone>() {
+			@Override
+			public int compare(EditorZone a, EditorZone b)
+			{
+				return Float.compare(getFocusDistance(b.getLocation().x, b.getLocation().y), getFocusDistance(a.getLocation().x, a.getLocation().y));
+			}
+		});
+	}
+	
+	//The search around the focus only grows once every chunk within it has been placed.
+	private void placeNearestDeferredChunks(long deadline)
+	{
+		beginBatch();
+		
+		while(!m_deferredChunks.isEmpty() && System.nanoTime() < deadline)
+		{
+			float radius = m_loadRadius * TileGrid.CHUNK_SIZE;
+			List<DeferredChunks.Chunk> chunks = m_deferredChunks.getChunks(m_focus.x - radius, m_focus.y - radius, Float.NEGATIVE_INFINITY, m_focus.x + radius, m_focus.y + radius, Float.POSITIVE_INFINITY);
+			
+			if(chunks.isEmpty())
+			{
+				m_loadRadius = m_loadRadius * 2 + 1;
+				continue;
+			}
+			
+			Collections.sort(chunks, new Comparator<DeferredChunks.Chunk>() {
+				@Override
+				public int compare(DeferredChunks.Chunk a, DeferredChunks.Chunk b)
+				{
+					float half = TileGrid.CHUNK_SIZE / 2.0F;
+					
+					return Float.compare(getFocusDistance(a.chunkX * TileGrid.CHUNK_SIZE + half, a.chunkY * TileGrid.CHUNK_SIZE + half),
+											getFocusDistance(b.chunkX * TileGrid.CHUNK_SIZE + half, b.chunkY * TileGrid.CHUNK_SIZE + half));
+				}
+			});
+			
+			for(int i = 0; i < chunks.size() && System.nanoTime() < deadline; i++)
+				placeDeferredChunk(chunks.get(i));
+		}
+		
+		commitBatch();
+	}
+	
+	private void placeLoadingEntities()
+	{
+		for(EditorEntity e : m_loadingEntities)
+			placeLoadingEntity(e);
+		
+		m_loadingEntities.clear();
+	}
+	
+	private void placeLoadingZones()
+	{
+		for(EditorZone zone : m_loadingZones)
+			placeLoadingZone(zone);
+		
+		m_loadingZones.clear();
+	}
+	
+	private void placeLoadingEntity(EditorEntity e)
+	{
+		m_entityNames.put(e, e.getName());
+		registerEntity(e.getEntity());
+		indexEntity(e);
+		m_dirtyRegions.mark(e.getLocation());
+	}
+	
+	private void placeLoadingZone(EditorZone zone)
+	{
+		m_zoneNames.put(zone, zone.getName());
+		registerEntity(zone.getEntity());
+		indexZone(zone);
+		m_dirtyRegions.mark(zone.getRegion());
+	}
+	
+	/*
+	 * Places the deferred chunks within a chunk of the visible bounds, and loads content nearest the given
+	 * location first. Once too many placed chunks are left unedited, or memory runs low, those no longer
+	 * near the visible bounds are deferred again.
+	 */
+	public void setFocus(Vector3F location, Rect2F visibleBounds)
+	{
+		int chunkX = DeferredChunks.getChunk(location.x);
+		int chunkY = DeferredChunks.getChunk(location.y);
+		
+		//Loading content is placed around the new focus once it moves to another chunk.
+		if(chunkX != m_focusChunkX || chunkY != m_focusChunkY)
+		{
+			m_focusChunkX = chunkX;
+			m_focusChunkY = chunkY;
+			m_loadRadius = 0;
+			m_isLoadOrderStale = true;
+		}
+		
+		m_focus.x = location.x;
+		m_focus.y = location.y;
+		m_focus.z = location.z;
+		
+		m_visibleBounds.x = visibleBounds.x;
+		m_visibleBounds.y = visibleBounds.y;
+		m_visibleBounds.width = visibleBounds.width;
+		m_visibleBounds.height = visibleBounds.height;
+		
+		updateArtifactChunks();
+		
+		if(m_deferredChunks.isEmpty() && m_residentChunks.isEmpty())
+			return;
+		
+		float margin = RESIDENT_CHUNK_MARGIN * TileGrid.CHUNK_SIZE;
+		placeDeferredChunks(visibleBounds.x - margin, visibleBounds.y - margin, Float.NEGATIVE_INFINITY,
+							visibleBounds.x + visibleBounds.width + margin, visibleBounds.y + visibleBounds.height + margin, Float.POSITIVE_INFINITY);
+		
+		if(m_residentChunks.size() > MAX_RESIDENT_CHUNKS || isMemoryLow())
+			deferDistantChunks();
+	}
+	
+	/*
+	 * Registers tiles for the cells of the chunks within the margin of the visible bounds, and unregisters those
+	 * of chunks which are no longer. As with deferred chunks, the chunks are kept while they lie within a further
+	 * chunk of the margin, so panning back and forth does not repeatedly create and remove tiles.
+	 */
+	private void updateArtifactChunks()
+	{
+		Rect2D worldBounds = m_world.getBounds();
+		float margin = RESIDENT_CHUNK_MARGIN * TileGrid.CHUNK_SIZE;
+		
+		int minChunkX = Math.max(TileGrid.getChunk(worldBounds.x), TileGrid.getChunk(m_visibleBounds.x - margin));
+		int minChunkY = Math.max(TileGrid.getChunk(worldBounds.y), TileGrid.getChunk(m_visibleBounds.y - margin));
+		int maxChunkX = Math.min(TileGrid.getChunk(worldBounds.x + worldBounds.width), TileGrid.getChunk(m_visibleBounds.x + m_visibleBounds.width + margin));
+		int maxChunkY = Math.min(TileGrid.getChunk(worldBounds.y + worldBounds.height), TileGrid.getChunk(m_visibleBounds.y + m_visibleBounds.height + margin));
+		
+		if(m_artifactMinChunkX <= minChunkX && m_artifactMinChunkX >= minChunkX - 1 && m_artifactMaxChunkX >= maxChunkX && m_artifactMaxChunkX <= maxChunkX + 1 &&
+			m_artifactMinChunkY <= minChunkY && m_artifactMinChunkY >= minChunkY - 1 && m_artifactMaxChunkY >= maxChunkY && m_artifactMaxChunkY <= maxChunkY + 1)
+			return;
+		
+		beginBatch();
+		
+		for(int chunkY = m_artifactMinChunkY; chunkY <= m_artifactMaxChunkY; chunkY++)
+		{
+			for(int chunkX = m_artifactMinChunkX; chunkX <= m_artifactMaxChunkX; chunkX++)
+			{
+				if(chunkX < minChunkX || chunkX > maxChunkX || chunkY < minChunkY || chunkY > maxChunkY)
+				{
+					m_tiles.visitColumn(chunkX, chunkY, new TileGrid.ICellVisitor() {
+						@Override
+						public void visit(float x, float y, float z, int id)
+						{
+							removeArtifact(new Vector3F(x, y, z));
+						}
+					});
+				}
+			}
+		}
+		
+		for(int chunkY = minChunkY; chunkY <= maxChunkY; chunkY++)
+		{
+			for(int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++)
+			{
+				if(chunkX < m_artifactMinChunkX || chunkX > m_artifactMaxChunkX || chunkY < m_artifactMinChunkY || chunkY > m_artifactMaxChunkY)
+				{
+					m_tiles.visitColumn(chunkX, chunkY, new TileGrid.ICellVisitor() {
+						@Override
+						public void visit(float x, float y, float z, int id)
+						{
+							addArtifact(new Vector3F(x, y, z), id);
+						}
+					});
+				}
+			}
+		}
+		
+		m_artifactMinChunkX = minChunkX;
+		m_artifactMinChunkY = minChunkY;
+		m_artifactMaxChunkX = maxChunkX;
+		m_artifactMaxChunkY = maxChunkY;
+		
+		commitBatch();
+	}
+	
+	private static boolean isMemoryLow()
+	{
+		Runtime runtime = Runtime.getRuntime();
+		long available = runtime.maxMemory() - runtime.totalMemory() + runtime.freeMemory();
+		
+		return available < runtime.maxMemory() * MIN_FREE_MEMORY;
+	}
+	
+	private void placeDeferredChunks(float minX, float minY, float minZ, float maxX, float maxY, float maxZ)
+	{
+		if(m_deferredChunks.isEmpty())
+			return;
+		
+		List<DeferredChunks.Chunk> chunks = m_deferredChunks.getChunks(minX, minY, minZ, maxX, maxY, maxZ);
+		
+		if(chunks.isEmpty())
+			return;
+		
+		beginBatch();
+		
+		for(DeferredChunks.Chunk chunk : chunks)
+			placeDeferredChunk(chunk);
+		
+		commitBatch();
+	}
+	
+	private void placeDeferredChunk(DeferredChunks.Chunk chunk)
+	{
+		m_deferredChunks.remove(chunk.z, chunk.chunkX, chunk.chunkY);
+		
+		if(m_defersDistantChunks)
+			m_residentChunks.put(chunk);
+		
+		chunk.visit(new TileGrid.ICellVisitor() {
+			@Override
+			public void visit(float x, float y, float z, int id)
+			{
+				retainCell(id);
+				putCell(new Vector3F(x, y, z), id);
+			}
+		});
+	}
+	
+	/*
+	 * Chunks are kept a further chunk beyond the margin they are placed within, so panning back and forth does not
+	 * repeatedly place and defer them. Only the cells on the unit grid were placed from a deferred chunk, off grid
+	 * cells are always placed.
+	 */
+	private void deferDistantChunks()
+	{
+		float margin = (RESIDENT_CHUNK_MARGIN + 1) * TileGrid.CHUNK_SIZE;
+		float minX = m_visibleBounds.x - margin;
+		float minY = m_visibleBounds.y - margin;
+		float maxX = m_visibleBounds.x + m_visibleBounds.width + margin;
+		float maxY = m_visibleBounds.y + m_visibleBounds.height + margin;
+		
+		final int quantaPerUnit = TileGrid.quantize(1);
+		final List<Vector3F> locations = new ArrayList<>();
 		
-		for(Map.Entry<String, Rect3F> zone : world.getZones().entrySet())
+		beginBatch();
+		
+		for(DeferredChunks.Chunk chunk : m_residentChunks.getChunks())
 		{
-			Rect3F bounds = zone.getValue();
+			float chunkMinX = chunk.chunkX * TileGrid.CHUNK_SIZE;
+			float chunkMinY = chunk.chunkY * TileGrid.CHUNK_SIZE;
 			
-			EditorZone editorZone = new EditorZone(fontFactory, zone.getKey());
-			editorZone.setLocation(bounds.getPoint(0, 0, 0));
-			editorZone.setBounds(new Rect3F(0, 0, 0, bounds.width, bounds.height, bounds.depth));
+			if(chunkMinX + TileGrid.CHUNK_SIZE >= minX && chunkMinX <= maxX && chunkMinY + TileGrid.CHUNK_SIZE >= minY && chunkMinY <= maxY)
+				continue;
 			
-			m_world.addEntity(editorZone.getEntity());
-			m_zones.add(editorZone);
+			locations.clear();
+			m_tiles.visitChunk(chunk.z, chunk.chunkX, chunk.chunkY, new TileGrid.ICellVisitor() {
+				@Override
+				public void visit(float x, float y, float z, int id)
+				{
+					if(TileGrid.quantize(x) % quantaPerUnit == 0 && TileGrid.quantize(y) % quantaPerUnit == 0)
+						locations.add(new Vector3F(x, y, z));
+				}
+			});
+			
+			for(Vector3F location : locations)
+				removeCell(location);
+			
+			m_residentChunks.remove(chunk.z, chunk.chunkX, chunk.chunkY);
+			m_deferredChunks.put(chunk);
 		}
+		
+		commitBatch();
 	}
-
-	private TileLocation getBoundedTileLocation(Vector3F location)
+	
+	//Edited chunks no longer match the mapped world, so they are never deferred again.
+	private void placeEditedChunk(Vector3F location)
 	{
-		Rect2D worldBounds = m_world.getBounds();
+		placeDeferredChunks(location.x, location.y, location.z, location.x, location.y, location.z);
+		m_residentChunks.remove(location.z, DeferredChunks.getChunk(location.x), DeferredChunks.getChunk(location.y));
+	}
 	
-		return new TileLocation(new Vector3F(Math.min(Math.max((float)worldBounds.x, location.x), worldBounds.x + worldBounds.width - 1),
-												Math.min(Math.max((float)worldBounds.y, location.y), worldBounds.y + worldBounds.height - 1),
-												location.z));
+	private void placeDeferredLayer(float z)
+	{
+		placeDeferredChunks(Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, z, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, z);
 	}
 
 	public List<Float> getHiddenLayers() {
-		return new ArrayList<>(m_hiddenLayers);
+		List<Float> layers = new ArrayList<>(m_hiddenLayers.size());
+		
+		for(int depth : m_hiddenLayers)
+			layers.add(TileGrid.dequantize(depth));
+		
+		return layers;
+	}
+
+	public boolean isLayerHidden(float z) {
+		return m_hiddenLayers.contains(TileGrid.quantize(z));
 	}
 
 	public void clearHiddenLayers() {
@@ -111,11 +936,16 @@ public final class EditorWorld
 	}
 
 	public void addHiddenLayer(float z) {
-		m_hiddenLayers.add(z);
+		m_hiddenLayers.add(TileGrid.quantize(z));
 	}
 	
 	public void update(int deltaTime) {
+		if(m_isLoading)
+			placeLoadingContent();
+		
+		m_modelPrototypes.update(deltaTime);
 		m_world.update(deltaTime);
+		flushDirtyRegions();
 	}
 	
 	public void attachCamera(ICamera camera) {
@@ -160,67 +990,224 @@ public final class EditorWorld
 		m_maxFrictionForce = maxFrictionForce;
 	}
 	
+	//Any entities or zones of a loading world yet to be placed are placed first, so that they may be edited.
 	public List<EditorEntity> getEntities()
 	{
+		takeLoadedContent(true);
+		placeLoadingEntities();
+		
 		return new ArrayList<>(m_entities);
 	}
 	
 	public List<EditorZone> getZones()
 	{
+		takeLoadedContent(true);
+		placeLoadingZones();
+		
 		return new ArrayList<>(m_zones);
 	}
 	
+	/*
+	 * Names are indexed as entities and zones are added, removed or renamed, including those of a loading world
+	 * yet to be placed, so neither allocating an unused name nor finding a conflict walks the world.
+	 */
+	public String getUnusedEntityName()
+	{
+		takeLoadedContent(true);
+		
+		return m_entityNames.getUnusedName();
+	}
+	
+	public String getUnusedZoneName()
+	{
+		takeLoadedContent(true);
+		
+		return m_zoneNames.getUnusedName();
+	}
+	
+	//A name shared by more than one entity, if there is any.
+	@Nullable
+	public String getConflictingEntityName()
+	{
+		takeLoadedContent(true);
+		
+		return m_entityNames.getConflict();
+	}
+	
+	@Nullable
+	public String getConflictingZoneName()
+	{
+		takeLoadedContent(true);
+		
+		return m_zoneNames.getConflict();
+	}
+	
+	@Nullable
+	public EditorEntity getNearestEntity(Vector3F location, float maxDistance)
+	{
+		return m_entityIndex.nearest(location, maxDistance);
+	}
+	
+	public List<EditorEntity> getEntitiesWithin(Vector3F location, float radius)
+	{
+		final List<EditorEntity> entities = new ArrayList<>();
+		
+		m_entityIndex.visitWithin(location, radius, new SpatialHash.IVisitor<EditorEntity>() {
+			@Override
+			public void visit(EditorEntity e)
+			{
+				entities.add(e);
+			}
+		});
+		
+		return entities;
+	}
+	
+	public List<EditorZone> getZonesContaining(Vector3F location)
+	{
+		final List<EditorZone> zones = new ArrayList<>();
+		
+		m_zoneIndex.visitContaining(location, new RTree.IVisitor<EditorZone>() {
+			@Override
+			public void visit(EditorZone z)
+			{
+				zones.add(z);
+			}
+		});
+		
+		return zones;
+	}
+	
+	public List<EditorZone> getZonesIntersecting(Rect3F region)
+	{
+		final List<EditorZone> zones = new ArrayList<>();
+		
+		m_zoneIndex.visitIntersecting(region, new RTree.IVisitor<EditorZone>() {
+			@Override
+			public void visit(EditorZone z)
+			{
+				zones.add(z);
+			}
+		});
+		
+		return zones;
+	}
+	
+	public List<EditorZone> getOverlappingZones(EditorZone zone)
+	{
+		List<EditorZone> zones = getZonesIntersecting(zone.getRegion());
+		zones.remove(zone);
+		
+		return zones;
+	}
+	
 	public void addEntity(EditorEntity e)
 	{
+		takeLoadedContent(true);
+		
 		m_entities.add(e);
-		m_world.addEntity(e.getEntity());
+		m_entityNames.put(e, e.getName());
+		registerEntity(e.getEntity());
+		indexEntity(e);
+		m_dirtyRegions.mark(e.getLocation());
+		m_observers.raise(IEditObserver.class).entityAdded(e);
 	}
 	
 	public void removeEntity(EditorEntity e)
 	{
+		takeLoadedContent(true);
+		
+		int index = m_entities.indexOf(e);
+		
 		m_entities.remove(e);
-		m_world.removeEntity(e.getEntity());
+		m_entityNames.remove(e);
+		
+		if(!m_loadingEntities.remove(e))
+		{
+			unregisterEntity(e.getEntity());
+			unindexEntity(e);
+			m_dirtyRegions.mark(e.getLocation());
+		}
+		
+		if(index >= 0)
+			m_observers.raise(IEditObserver.class).entityRemoved(index, e);
 	}
 
 	public void addZone(EditorZone zone)
 	{
+		takeLoadedContent(true);
+		
 		m_zones.add(zone);
-		m_world.addEntity(zone.getEntity());
+		m_zoneNames.put(zone, zone.getName());
+		registerEntity(zone.getEntity());
+		indexZone(zone);
+		m_dirtyRegions.mark(zone.getRegion());
+		m_observers.raise(IEditObserver.class).zoneAdded(zone);
 	}
 	
 	public void removeZone(EditorZone zone)
 	{
+		takeLoadedContent(true);
+		
+		int index = m_zones.indexOf(zone);
+		
 		m_zones.remove(zone);
-		m_world.removeEntity(zone.getEntity());
+		m_zoneNames.remove(zone);
+		
+		if(!m_loadingZones.remove(zone))
+		{
+			unregisterEntity(zone.getEntity());
+			unindexZone(zone);
+			m_dirtyRegions.mark(zone.getRegion());
+		}
+		
+		if(index >= 0)
+			m_observers.raise(IEditObserver.class).zoneRemoved(index, zone);
 	}
 	
+	/*
+	 * The given tile only describes the cell, the tile registered with the World for it (see getTile) is
+	 * created from the prototype of its palette entry.
+	 */
 	public void setTile(@Nullable EditorSceneArtifact t, Vector3F location)
 	{
-		TileLocation tileLocation = getBoundedTileLocation(location);
+		Vector3F tileLocation = getBoundedTileLocation(location);
+		
+		takeLoadedContent(true);
+		placeEditedChunk(tileLocation);
+		
+		if(t == null && m_tiles.get(tileLocation) < 0)
+			return;
+		
+		beginBatch();
 		
 		if(t == null)
-		{
-			EditorSceneArtifact tile = m_tiles.get(tileLocation);
-			
-			if(tile != null)
-			{
-				m_world.removeEntity(tile.getEntity());
-				m_tiles.remove(tileLocation);
-			}
-			
-		} else
-		{
-			clearTile(location);			
-			m_world.addEntity(t.getEntity());
-			t.setLocation(tileLocation.getLocation());
-			m_tiles.put(tileLocation, t);
-		}
+			removeCell(tileLocation);
+		else
+			putCell(tileLocation, internTile(t));
+		
+		commitBatch();
+		
+		m_observers.raise(IEditObserver.class).tileChanged(tileLocation, t);
 	}
 	
+	/*
+	 * Cells near the visible bounds are returned as the tile registered with the World, any other as the
+	 * prototype shared by the cells of its palette entry.
+	 */
 	@Nullable
 	public EditorSceneArtifact getTile(Vector3F location)
 	{
-		return m_tiles.get(new TileLocation(location));
+		placeDeferredChunks(location.x, location.y, location.z, location.x, location.y, location.z);
+		
+		int id = m_tiles.get(location);
+		
+		if(id < 0)
+			return null;
+		
+		EditorSceneArtifact tile = m_artifacts.get(location);
+		
+		return tile == null ? m_prototypes.get(id) : tile;
 	}
 	
 	public void clearTile(Vector3F location)
@@ -228,87 +1215,227 @@ public final class EditorWorld
 		setTile(null, location);
 	}
 	
-	public String getScript()
+	public List<Float> getLayers()
 	{
-		return m_script;
+		List<Float> layers = m_tiles.getLayers();
+		
+		for(Float z : m_deferredChunks.getLayers())
+		{
+			if(!layers.contains(z))
+				layers.add(z);
+		}
+		
+		return layers;
 	}
 	
-	public void setScript(String script)
+	public int getLayerTileCount(float z)
 	{
-		m_script = script;
+		placeDeferredLayer(z);
+		
+		return m_tiles.getLayerSize(z);
+	}
+	
+	//Tiles are visited as the prototypes of their palette entries.
+	public void visitTiles(ITileVisitor visitor)
+	{
+		placeDeferredChunks(Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY);
+		m_tiles.visit(new PrototypeVisitor(visitor));
+	}
+	
+	/*
+	 * Region queries visit everything located within the region, inclusive of its far edges,
+	 * without building intermediate collections. Rect2D regions span every depth.
+	 */
+	public void visitTiles(Rect3F region, ITileVisitor visitor)
+	{
+		placeDeferredChunks(region.x, region.y, region.z, region.x + region.width, region.y + region.height, region.z + region.depth);
+		m_tiles.visitRegion(region.x, region.y, region.z, region.x + region.width, region.y + region.height, region.z + region.depth, new PrototypeVisitor(visitor));
+	}
+	
+	public void visitTiles(Rect2D region, ITileVisitor visitor)
+	{
+		placeDeferredChunks(region.x, region.y, Float.NEGATIVE_INFINITY, region.x + region.width, region.y + region.height, Float.POSITIVE_INFINITY);
+		m_tiles.visitRegion(region.x, region.y, Float.NEGATIVE_INFINITY, region.x + region.width, region.y + region.height, Float.POSITIVE_INFINITY, new PrototypeVisitor(visitor));
+	}
+	
+	public void visitEntities(Rect3F region, final IEntityVisitor visitor)
+	{
+		m_entityIndex.visitRegion(region.x, region.y, region.z, region.x + region.width, region.y + region.height, region.z + region.depth, new SpatialHash.IVisitor<EditorEntity>() {
+			@Override
+			public void visit(EditorEntity e)
+			{
+				visitor.visit(e);
+			}
+		});
+	}
+	
+	public void visitEntities(Rect2D region, final IEntityVisitor visitor)
+	{
+		m_entityIndex.visitRegion(region.x, region.y, Float.NEGATIVE_INFINITY, region.x + region.width, region.y + region.height, Float.POSITIVE_INFINITY, new SpatialHash.IVisitor<EditorEntity>() {
+			@Override
+			public void visit(EditorEntity e)
+			{
+				visitor.visit(e);
+			}
+		});
+	}
+	
+	public void visitZones(Rect3F region, final IZoneVisitor visitor)
+	{
+		m_zoneIndex.visitIntersecting(region, new RTree.IVisitor<EditorZone>() {
+			@Override
+			public void visit(EditorZone z)
+			{
+				visitor.visit(z);
+			}
+		});
+	}
+	
+	public void visitZones(Rect2D region, final IZoneVisitor visitor)
+	{
+		m_zoneIndex.visitIntersecting(region.x, region.y, Float.NEGATIVE_INFINITY, region.x + region.width, region.y + region.height, Float.POSITIVE_INFINITY, new RTree.IVisitor<EditorZone>() {
+			@Override
+			public void visit(EditorZone z)
+			{
+				visitor.visit(z);
+			}
+		});
+	}
+	
+	public void visitLayer(float z, ITileVisitor visitor)
+	{
+		placeDeferredLayer(z);
+		m_tiles.visitLayer(z, new PrototypeVisitor(visitor));
 	}
 	
-	private void serializeTiledLayers(WorldConfiguration hostConfiguration)
+	public void clearLayer(float z)
 	{
-		Map<EditorSceneArtifact, List<Vector3F>> importedArtifacts = new HashMap<>();
+		takeLoadedContent(true);
+		placeDeferredLayer(z);
+		m_residentChunks.removeLayer(z);
 		
-		for(Map.Entry<TileLocation, EditorSceneArtifact> e : m_tiles.entrySet())
-		{
-			if(!importedArtifacts.containsKey(e.getValue()))
-				importedArtifacts.put(e.getValue(), new ArrayList<Vector3F>());
+		beginBatch();
 		
-			importedArtifacts.get(e.getValue()).add(e.getKey().getLocation());
-		}
+		m_tiles.removeLayer(z, new TileGrid.ICellVisitor() {
+			@Override
+			public void visit(float x, float y, float z, int id)
+			{
+				releaseCell(id);
+				removeArtifact(new Vector3F(x, y, z));
+				markTileChanged(x, y, z);
+			}
+		});
+		
+		commitBatch();
+		
+		m_observers.raise(IEditObserver.class).layerCleared(z);
+	}
 	
-		hostConfiguration.artifactImports = new SceneArtifactImportDeclaration[importedArtifacts.size()];
+	/*
+	 * Moves every tile of one layer to another depth. Tiles already on the destination
+	 * layer are replaced where the two layers overlap.
+	 */
+	public void shiftLayer(float fromZ, final float toZ)
+	{
+		final float depth = TileGrid.dequantize(TileGrid.quantize(toZ));
+		final List<Integer> ids = new ArrayList<>();
+		final List<Vector3F> locations = new ArrayList<>();
+		
+		takeLoadedContent(true);
+		placeDeferredLayer(fromZ);
+		placeDeferredLayer(toZ);
+		m_residentChunks.removeLayer(fromZ);
+		m_residentChunks.removeLayer(toZ);
+		
+		beginBatch();
+		
+		m_tiles.removeLayer(fromZ, new TileGrid.ICellVisitor() {
+			@Override
+			public void visit(float x, float y, float z, int id)
+			{
+				ids.add(id);
+				locations.add(new Vector3F(x, y, z));
+				markTileChanged(x, y, z);
+			}
+		});
 		
-		Iterator<Map.Entry<EditorSceneArtifact, List<Vector3F>>> it = importedArtifacts.entrySet().iterator();
-		for(int i = 0; i < importedArtifacts.size(); i++)
+		for(int i = 0; i < ids.size(); i++)
 		{
-			Map.Entry<EditorSceneArtifact, List<Vector3F>> e = it.next();
-			SceneArtifactImportDeclaration decl = new SceneArtifactImportDeclaration();
-			hostConfiguration.artifactImports[i] = decl;
+			Vector3F from = locations.get(i);
+			Vector3F location = new Vector3F(from.x, from.y, depth);
+			EditorSceneArtifact tile = m_artifacts.remove(from);
+			int replaced = m_tiles.put(location, ids.get(i));
+			
+			if(replaced >= 0)
+			{
+				releaseCell(replaced);
+				removeArtifact(location);
+			}
 			
-			decl.direction = e.getKey().getDirection();
-			decl.isTraversable = e.getKey().isTraversable();
-			decl.model = e.getKey().getModelName().toString();
-			decl.locations = new Vector3F[e.getValue().size()];
-			decl.isStatic = e.getKey().isStatic();
+			if(tile != null)
+			{
+				m_artifacts.put(location, tile);
+				moveTile(tile, location);
+			}
 			
-			for(int x = 0; x < e.getValue().size(); x++)
-				decl.locations[x] = new Vector3F(e.getValue().get(x));
+			markTileChanged(location.x, location.y, location.z);
 		}
+		
+		commitBatch();
+		
+		m_observers.raise(IEditObserver.class).layerShifted(fromZ, toZ);
 	}
 	
-	private void serializeEntities(WorldConfiguration hostConfiguration)
+	public String getScript()
 	{
-		ArrayList<EntityImportDeclaration> entities = new ArrayList<>();
-		
-		for(EditorEntity e : m_entities)
-			entities.add(e.createImportDeclaration());
+		return m_script;
+	}
+	
+	public void setScript(String script)
+	{
+		m_script = script;
+	}
+	
+	public EditorWorldStatistics getStatistics()
+	{
+		long paletteBytes = (long)m_palette.size() * EditorWorldStatistics.PALETTE_ENTRY +
+								(long)m_palette.getIdCapacity() * EditorWorldStatistics.REFERENCE;
 		
-		hostConfiguration.entities = entities.toArray(new EntityImportDeclaration[entities.size()]);
+		return new EditorWorldStatistics(m_tiles.size(), m_tiles.getLayers().size(), m_tiles.getChunkCount(),
+										m_palette.size(), m_modelPrototypes.size(), m_modelPrototypes.getUpdatedCount(),
+										m_entities.size(), m_zones.size(), m_registeredEntityCount,
+										m_tiles.estimateSize(), (long)m_artifacts.size() * EditorWorldStatistics.TILE_OBJECT,
+										paletteBytes, m_entityIndex.estimateSize() + m_zoneIndex.estimateSize());
 	}
 	
-	private void serializeZones(WorldConfiguration hostConfiguration)
+	/*
+	 * Captures the current state of the world. Must be called on the thread editing the world,
+	 * the returned snapshot may then be read from any thread.
+	 */
+	public EditorWorldSnapshot createSnapshot()
 	{
-		ArrayList<ZoneDeclaration> zones = new ArrayList<>();
+		takeLoadedContent(true);
+		
+		ArrayList<EntityImportDeclaration> entities = new ArrayList<>(m_entities.size());
+		
+		for(EditorEntity e : m_entities)
+			entities.add(e.createImportDeclaration());
+		
+		ArrayList<ZoneDeclaration> zones = new ArrayList<>(m_zones.size());
 		
 		for(EditorZone z : m_zones)
 			zones.add(z.createZoneDeclaration());
 		
-		hostConfiguration.zones = zones.toArray(new ZoneDeclaration[zones.size()]);
+		String weather = m_world.getWeather() instanceof EditorWeather ? ((EditorWeather)m_world.getWeather()).getName().toString() : null;
+		
+		return new EditorWorldSnapshot(m_tiles.snapshot(), new DeferredChunks(m_deferredChunks), m_palette, entities, zones, weather,
+										m_maxFrictionForce, m_metersPerUnit, m_logicPerUnit,
+										m_world.getBounds().width, m_world.getBounds().height, m_script);
 	}
 	
 	public WorldConfiguration createWorldConfiguration()
 	{
-		WorldConfiguration configuration = new WorldConfiguration();
-
-		configuration.weather = m_world.getWeather() instanceof EditorWeather ? ((EditorWeather)m_world.getWeather()).getName().toString() : null;
-		configuration.friction = m_maxFrictionForce;
-		configuration.metersPerUnit = m_metersPerUnit;
-		configuration.logicPerUnit = m_logicPerUnit;
-		configuration.worldWidth = m_world.getBounds().width;
-		configuration.worldHeight = m_world.getBounds().height;
-		
-		if(!m_script.isEmpty())
-			configuration.script = m_script;
-		
-		serializeEntities(configuration);
-		serializeZones(configuration);
-		serializeTiledLayers(configuration);
-		
-		return configuration;
+		return createSnapshot().createWorldConfiguration();
 	}
 	
 	public static final class WorldEditCursor
@@ -453,96 +1580,126 @@ public final class EditorWorld
 		}
 	}
 	
-	private static final class KeyableFloat
+	public interface IEditorWorldObserver
 	{
-		public static final float TOLERANCE = 0.0001F;
-		
-		private final float m_value;
-		
-		public KeyableFloat(float value)
-		{
-			//Round to fourth decimal place.
-			m_value = Math.round(value * (1.0F/TOLERANCE)) / (1.0F/TOLERANCE);
-		}
+		/*
+		 * Raised once per committed batch (a single setTile call being a batch of its own) with
+		 * the bounds of the locations of all tiles placed, cleared or moved by it.
+		 */
+		void tilesChanged(Rect3F bounds);
+	}
+	
+	public interface ILoadObserver
+	{
+		/*
+		 * Raised on the thread updating a loading world when its content could not be read. None of the
+		 * content has been placed, so the world must not be saved over the one it was opened from.
+		 */
+		void loadFailed(WorldConstructionException e);
+	}
+	
+	public interface IDirtyRegionObserver
+	{
+		/*
+		 * Raised once per update with the (merged) world space regions of tiles, entities and
+		 * zones changed since the previous notification.
+		 */
+		void regionsChanged(List<Rect3F> regions);
+	}
+	
+	/*
+	 * Raised for each individual edit made to the world, in the order they are made, so that the
+	 * edits can be recorded and later applied to the world again. Entities and zones are identified
+	 * by their index in getEntities and getZones respectively.
+	 */
+	public interface IEditObserver
+	{
+		void tileChanged(Vector3F location, @Nullable EditorSceneArtifact tile);
+		void layerCleared(float z);
+		void layerShifted(float fromZ, float toZ);
+		void entityAdded(EditorEntity entity);
+		void entityChanged(int index, EditorEntity entity);
+		void entityRemoved(int index, EditorEntity entity);
+		void zoneAdded(EditorZone zone);
+		void zoneChanged(int index, EditorZone zone);
+		void zoneRemoved(int index, EditorZone zone);
+	}
+	
+	public interface ITileVisitor
+	{
+		void visit(float x, float y, float z, EditorSceneArtifact tile);
+	}
+	
+	public interface IEntityVisitor
+	{
+		void visit(EditorEntity entity);
+	}
+	
+	public interface IZoneVisitor
+	{
+		void visit(EditorZone zone);
+	}
+	
+	private final class PrototypeVisitor implements TileGrid.ICellVisitor
+	{
+		private final ITileVisitor m_visitor;
 		
-		public float getFloatValue()
+		public PrototypeVisitor(ITileVisitor visitor)
 		{
-			return m_value;
+			m_visitor = visitor;
 		}
 		
 		@Override
-		public int hashCode()
+		public void visit(float x, float y, float z, int id)
 		{
-			final int prime = 31;
-			int result = 1;
-			result = prime * result + (int)Math.round(m_value);
-			return result;
-		}
-
-		@Override
-		public boolean equals(Object obj) {
-			if (this == obj)
-				return true;
-			if (obj == null)
-				return false;
-			if (getClass() != obj.getClass())
-				return false;
-			KeyableFloat other = (KeyableFloat) obj;
-			if (Math.abs(other.m_value - m_value) > TOLERANCE)
-				return false;
-			return true;
+			m_visitor.visit(x, y, z, m_prototypes.get(id));
 		}
 	}
 	
-	private static final class TileLocation
+	private final class EntityIndexObserver implements EditorEntity.IEditorEntityObserver
 	{
-		private final KeyableFloat m_x;
-		private final KeyableFloat m_y;
-		private final KeyableFloat m_z;
-		
-		public TileLocation(Vector3F location)
+		@Override
+		public void locationChanged(EditorEntity entity)
 		{
-			m_x = new KeyableFloat(location.x);
-			m_y = new KeyableFloat(location.y);
-			m_z = new KeyableFloat(location.z);
+			Vector3F previous = m_entityIndex.getLocation(entity);
+			
+			if(previous != null)
+				m_dirtyRegions.mark(previous);
+			
+			m_entityIndex.put(entity, entity.getLocation());
+			m_dirtyRegions.mark(entity.getLocation());
+			m_observers.raise(IEditObserver.class).entityChanged(m_entities.indexOf(entity), entity);
 		}
-
-		public Vector3F getLocation()
+		
+		@Override
+		public void propertiesChanged(EditorEntity entity)
 		{
-			return new Vector3F(m_x.getFloatValue(), m_y.getFloatValue(), m_z.getFloatValue());
+			m_entityNames.put(entity, entity.getName());
+			m_observers.raise(IEditObserver.class).entityChanged(m_entities.indexOf(entity), entity);
 		}
-
+	}
+	
+	private final class ZoneIndexObserver implements EditorZone.IEditorZoneObserver
+	{
 		@Override
-		public int hashCode() {
-			int hash = 7;
-			hash = 67 * hash + Objects.hashCode(this.m_x);
-			hash = 67 * hash + Objects.hashCode(this.m_y);
-			hash = 67 * hash + Objects.hashCode(this.m_z);
-			return hash;
+		public void regionChanged(EditorZone zone)
+		{
+			Rect3F previous = m_zoneIndex.getBounds(zone);
+			
+			if(previous != null)
+				m_dirtyRegions.mark(previous);
+			
+			m_zoneIndex.put(zone, zone.getRegion());
+			m_dirtyRegions.mark(zone.getRegion());
+			m_observers.raise(IEditObserver.class).zoneChanged(m_zones.indexOf(zone), zone);
 		}
-
+		
 		@Override
-		public boolean equals(Object obj) {
-			if (obj == null) {
-				return false;
-			}
-			if (getClass() != obj.getClass()) {
-				return false;
-			}
-			final TileLocation other = (TileLocation) obj;
-			if (!Objects.equals(this.m_x, other.m_x)) {
-				return false;
-			}
-			if (!Objects.equals(this.m_y, other.m_y)) {
-				return false;
-			}
-			if (!Objects.equals(this.m_z, other.m_z)) {
-				return false;
-			}
-			return true;
+		public void nameChanged(EditorZone zone)
+		{
+			m_zoneNames.put(zone, zone.getName());
+			m_observers.raise(IEditObserver.class).zoneChanged(m_zones.indexOf(zone), zone);
 		}
-
-		
 	}
 	
 	public static final class UnrecognizedWorldEntityException extends RuntimeException
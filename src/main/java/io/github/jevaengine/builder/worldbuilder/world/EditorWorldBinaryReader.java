@@ -0,0 +1,488 @@
+/*
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.worldbuilder.world;
+
+import io.github.jevaengine.config.json.JsonVariable;
+import io.github.jevaengine.math.Rect3F;
+import io.github.jevaengine.math.Vector3F;
+import io.github.jevaengine.util.Nullable;
+import io.github.jevaengine.world.DefaultWorldFactory.WorldConfiguration.EntityImportDeclaration;
+import io.github.jevaengine.world.DefaultWorldFactory.WorldConfiguration.ZoneDeclaration;
+import io.github.jevaengine.world.Direction;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the sections of a world written by EditorWorldBinaryWriter. Sections must be read in the order
+ * they are declared: header, palette, layers, entities and then zones, followed by any delta records.
+ *
+ * A reader of a mapped world may index the chunks of the layers and delta records rather than reading
+ * their cells, which are then read as they are needed with readChunk.
+ */
+final class EditorWorldBinaryReader
+{
+	private final DataInputStream m_source;
+	private DataInputStream m_data;
+
+	@Nullable
+	private final ByteBuffer m_buffer;
+	private int m_recordEnd = -1;
+
+	private int m_paletteSize = 0;
+
+	public EditorWorldBinaryReader(InputStream source)
+	{
+		m_source = new DataInputStream(new BufferedInputStream(source));
+		m_data = m_source;
+		m_buffer = null;
+	}
+
+	//Delta records of a mapped world are read in place, so the positions of their chunks are positions in the buffer.
+	public EditorWorldBinaryReader(ByteBuffer source)
+	{
+		m_source = new DataInputStream(new ByteBufferInputStream(source));
+		m_data = m_source;
+		m_buffer = source;
+	}
+
+	public Header readHeader() throws IOException
+	{
+		if(m_data.readInt() != EditorWorldBinaryWriter.MAGIC)
+			throw new IOException("Source is not a binary world.");
+
+		int version = m_data.readShort();
+
+		if(version != EditorWorldBinaryWriter.VERSION)
+			throw new IOException("Unsupported binary world version " + version + ".");
+
+		return readHeaderFields();
+	}
+
+	/*
+	 * Moves on to the next delta record, after which its header, palette, changed chunks, entities and
+	 * zones are read in that order. Returns false once there are no further records.
+	 */
+	public boolean nextDelta() throws IOException
+	{
+		if(m_buffer != null && m_recordEnd >= 0)
+			m_buffer.position(m_recordEnd);
+
+		byte[] record;
+
+		try
+		{
+			if(m_source.readInt() != EditorWorldBinaryWriter.DELTA_MAGIC)
+				throw new IOException("Binary world contains a malformed delta record.");
+
+			int length = m_source.readInt();
+
+			if(length < 0)
+				throw new IOException("Binary world contains a malformed delta record.");
+
+			if(m_buffer != null)
+			{
+				//A record cut short by an interrupted save, which is discarded.
+				if(length > m_buffer.remaining())
+					return false;
+
+				m_recordEnd = m_buffer.position() + length;
+				m_paletteSize = 0;
+
+				return true;
+			}
+
+			record = new byte[length];
+			m_source.readFully(record);
+		} catch (EOFException e)
+		{
+			//Either the end of the world or a record cut short by an interrupted save, which is discarded.
+			return false;
+		}
+
+		m_data = new DataInputStream(new ByteArrayInputStream(record));
+		m_paletteSize = 0;
+
+		return true;
+	}
+
+	public Header readDeltaHeader() throws IOException
+	{
+		return readHeaderFields();
+	}
+
+	private Header readHeaderFields() throws IOException
+	{
+		Header header = new Header();
+
+		header.worldWidth = m_data.readInt();
+		header.worldHeight = m_data.readInt();
+		header.friction = m_data.readFloat();
+		header.metersPerUnit = m_data.readFloat();
+		header.logicPerUnit = m_data.readFloat();
+		header.weather = m_data.readBoolean() ? m_data.readUTF() : null;
+		header.script = m_data.readUTF();
+
+		return header;
+	}
+
+	//Entry i of the returned list is referred to by index i + 1 in the layers section.
+	public List<TilePalette.Entry> readPalette() throws IOException
+	{
+		int count = readVarInt(m_data);
+		ArrayList<TilePalette.Entry> palette = new ArrayList<>(count);
+
+		try
+		{
+			for(int i = 0; i < count; i++)
+			{
+				URI model = new URI(m_data.readUTF());
+				Direction direction = readDirection(m_data);
+				boolean isTraversable = m_data.readBoolean();
+				boolean isStatic = m_data.readBoolean();
+
+				palette.add(new TilePalette.Entry(model, direction, isTraversable, isStatic));
+			}
+		} catch (URISyntaxException e)
+		{
+			throw new IOException("Binary world contains a malformed model name.", e);
+		}
+
+		m_paletteSize = count;
+
+		return palette;
+	}
+
+	public void readLayers(ICellVisitor visitor) throws IOException
+	{
+		int layerCount = readVarInt(m_data);
+
+		for(int layer = 0; layer < layerCount; layer++)
+		{
+			float z = TileGrid.dequantize(m_data.readInt());
+			int chunkCount = readVarInt(m_data);
+
+			for(int chunk = 0; chunk < chunkCount; chunk++)
+			{
+				int chunkX = readSignedVarInt(m_data);
+				int chunkY = readSignedVarInt(m_data);
+
+				readChunkCells(z, chunkX, chunkY, visitor);
+			}
+
+			readOffGridCells(z, visitor);
+		}
+	}
+
+	/*
+	 * Reads the layers of a mapped world, passing the position of each chunk to the visitor in place of
+	 * visiting its cells. The cells are still checked as they are skipped, off grid cells are visited.
+	 */
+	public void indexLayers(IChunkIndexVisitor visitor) throws IOException
+	{
+		int layerCount = readVarInt(m_data);
+
+		for(int layer = 0; layer < layerCount; layer++)
+		{
+			float z = TileGrid.dequantize(m_data.readInt());
+			int chunkCount = readVarInt(m_data);
+
+			for(int chunk = 0; chunk < chunkCount; chunk++)
+			{
+				int chunkX = readSignedVarInt(m_data);
+				int chunkY = readSignedVarInt(m_data);
+
+				visitor.chunk(z, chunkX, chunkY, getPosition());
+				readChunkCells(z, chunkX, chunkY, null);
+			}
+
+			readOffGridCells(z, visitor);
+		}
+	}
+
+	public void indexChangedChunks(IChangedChunkIndexVisitor visitor) throws IOException
+	{
+		int chunkCount = readVarInt(m_data);
+
+		for(int chunk = 0; chunk < chunkCount; chunk++)
+		{
+			float z = TileGrid.dequantize(m_data.readInt());
+			int chunkX = readSignedVarInt(m_data);
+			int chunkY = readSignedVarInt(m_data);
+
+			visitor.clear(z, chunkX, chunkY);
+			visitor.chunk(z, chunkX, chunkY, getPosition());
+			readChunkCells(z, chunkX, chunkY, null);
+			readOffGridCells(z, visitor);
+		}
+	}
+
+	//Reads the cells of a chunk indexed at the given position, in a section whose palette held the given number of entries.
+	static void readChunk(ByteBuffer source, int position, int paletteSize, float z, int chunkX, int chunkY, ICellVisitor visitor) throws IOException
+	{
+		ByteBuffer buffer = source.duplicate();
+		buffer.position(position);
+
+		EditorWorldBinaryReader reader = new EditorWorldBinaryReader(buffer);
+		reader.m_paletteSize = paletteSize;
+		reader.readChunkCells(z, chunkX, chunkY, visitor);
+	}
+
+	private int getPosition()
+	{
+		if(m_buffer == null)
+			throw new IllegalStateException("Only the chunks of a mapped world can be indexed.");
+
+		return m_buffer.position();
+	}
+
+	//Changed chunks replace the chunk entirely, so the visitor is asked to clear each chunk before its cells are visited.
+	public void readChangedChunks(IChangedChunkVisitor visitor) throws IOException
+	{
+		int chunkCount = readVarInt(m_data);
+
+		for(int chunk = 0; chunk < chunkCount; chunk++)
+		{
+			float z = TileGrid.dequantize(m_data.readInt());
+			int chunkX = readSignedVarInt(m_data);
+			int chunkY = readSignedVarInt(m_data);
+
+			visitor.clear(z, chunkX, chunkY);
+			readChunkCells(z, chunkX, chunkY, visitor);
+			readOffGridCells(z, visitor);
+		}
+	}
+
+	private void readChunkCells(float z, int chunkX, int chunkY, @Nullable ICellVisitor visitor) throws IOException
+	{
+		int originX = chunkX * TileGrid.CHUNK_SIZE;
+		int originY = chunkY * TileGrid.CHUNK_SIZE;
+
+		for(int cell = 0; cell < EditorWorldBinaryWriter.CELLS_PER_CHUNK;)
+		{
+			int length = readVarInt(m_data);
+			int index = readPaletteIndex();
+
+			if(length <= 0 || cell + length > EditorWorldBinaryWriter.CELLS_PER_CHUNK)
+				throw new IOException("Binary world contains a malformed chunk.");
+
+			if(visitor != null && index != EditorWorldBinaryWriter.EMPTY_CELL)
+			{
+				for(int i = cell; i < cell + length; i++)
+					visitor.visit(originX + i % TileGrid.CHUNK_SIZE, originY + i / TileGrid.CHUNK_SIZE, z, index - 1);
+			}
+
+			cell += length;
+		}
+	}
+
+	private void readOffGridCells(float z, ICellVisitor visitor) throws IOException
+	{
+		int count = readVarInt(m_data);
+
+		for(int i = 0; i < count; i++)
+		{
+			float x = TileGrid.dequantize(m_data.readInt());
+			float y = TileGrid.dequantize(m_data.readInt());
+			int index = readPaletteIndex();
+
+			if(index == EditorWorldBinaryWriter.EMPTY_CELL)
+				throw new IOException("Binary world contains an empty off grid cell.");
+
+			visitor.visit(x, y, z, index - 1);
+		}
+	}
+
+	public List<EntityImportDeclaration> readEntities() throws IOException
+	{
+		int count = readVarInt(m_data);
+		ArrayList<EntityImportDeclaration> entities = new ArrayList<>(count);
+
+		for(int i = 0; i < count; i++)
+		{
+			EntityImportDeclaration entity = new EntityImportDeclaration();
+
+			entity.name = m_data.readUTF();
+			entity.type = m_data.readUTF();
+			entity.config = m_data.readBoolean() ? m_data.readUTF() : null;
+			entity.direction = readDirection(m_data);
+			entity.location = new Vector3F(m_data.readFloat(), m_data.readFloat(), m_data.readFloat());
+
+			int auxConfigLength = m_data.readInt();
+
+			if(auxConfigLength >= 0)
+			{
+				byte[] auxConfig = new byte[auxConfigLength];
+				m_data.readFully(auxConfig);
+				entity.auxConfig = JsonVariable.create(new ByteArrayInputStream(auxConfig));
+			}
+
+			entities.add(entity);
+		}
+
+		return entities;
+	}
+
+	//Returns null if the entities were left unchanged by the current delta record.
+	@Nullable
+	public List<EntityImportDeclaration> readChangedEntities() throws IOException
+	{
+		return m_data.readBoolean() ? readEntities() : null;
+	}
+
+	@Nullable
+	public List<ZoneDeclaration> readChangedZones() throws IOException
+	{
+		return m_data.readBoolean() ? readZones() : null;
+	}
+
+	public List<ZoneDeclaration> readZones() throws IOException
+	{
+		int count = readVarInt(m_data);
+		ArrayList<ZoneDeclaration> zones = new ArrayList<>(count);
+
+		for(int i = 0; i < count; i++)
+		{
+			ZoneDeclaration zone = new ZoneDeclaration();
+
+			zone.name = m_data.readUTF();
+			zone.region = new Rect3F(m_data.readFloat(), m_data.readFloat(), m_data.readFloat(),
+										m_data.readFloat(), m_data.readFloat(), m_data.readFloat());
+
+			zones.add(zone);
+		}
+
+		return zones;
+	}
+
+	private int readPaletteIndex() throws IOException
+	{
+		int index = readVarInt(m_data);
+
+		if(index > m_paletteSize)
+			throw new IOException("Binary world refers to an undeclared palette entry.");
+
+		return index;
+	}
+
+	static Direction readDirection(DataInput data) throws IOException
+	{
+		int ordinal = data.readUnsignedByte();
+		Direction[] directions = Direction.values();
+
+		if(ordinal >= directions.length)
+			throw new IOException("Binary world contains an invalid direction.");
+
+		return directions[ordinal];
+	}
+
+	static int readVarInt(DataInput data) throws IOException
+	{
+		int value = 0;
+
+		for(int shift = 0; shift < 32; shift += 7)
+		{
+			int b = data.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+
+			if((b & 0x80) == 0)
+				return value;
+		}
+
+		throw new IOException("Binary world contains a malformed integer.");
+	}
+
+	static int readSignedVarInt(DataInput data) throws IOException
+	{
+		int value = readVarInt(data);
+
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	public static final class Header
+	{
+		public int worldWidth;
+		public int worldHeight;
+		public float friction;
+		public float metersPerUnit;
+		public float logicPerUnit;
+
+		@Nullable
+		public String weather;
+		public String script;
+	}
+
+	public interface ICellVisitor
+	{
+		void visit(float x, float y, float z, int paletteIndex);
+	}
+
+	public interface IChangedChunkVisitor extends ICellVisitor
+	{
+		void clear(float z, int chunkX, int chunkY);
+	}
+
+	public interface IChunkIndexVisitor extends ICellVisitor
+	{
+		void chunk(float z, int chunkX, int chunkY, int position);
+	}
+
+	public interface IChangedChunkIndexVisitor extends IChunkIndexVisitor, IChangedChunkVisitor { }
+
+	private static final class ByteBufferInputStream extends InputStream
+	{
+		private final ByteBuffer m_buffer;
+
+		public ByteBufferInputStream(ByteBuffer buffer)
+		{
+			m_buffer = buffer;
+		}
+
+		@Override
+		public int read()
+		{
+			return m_buffer.hasRemaining() ? m_buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len)
+		{
+			if(len == 0)
+				return 0;
+
+			if(!m_buffer.hasRemaining())
+				return -1;
+
+			int count = Math.min(len, m_buffer.remaining());
+			m_buffer.get(b, off, count);
+
+			return count;
+		}
+	}
+}
@@ -0,0 +1,449 @@
+/*
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.worldbuilder.world;
+
+import io.github.jevaengine.builder.worldbuilder.world.IWorldWriteMonitor.NullWorldWriteMonitor;
+import io.github.jevaengine.config.json.JsonVariable;
+import io.github.jevaengine.math.Rect3F;
+import io.github.jevaengine.util.Nullable;
+import io.github.jevaengine.world.DefaultWorldFactory.WorldConfiguration.EntityImportDeclaration;
+import io.github.jevaengine.world.DefaultWorldFactory.WorldConfiguration.ZoneDeclaration;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes an EditorWorldSnapshot in the compact binary world format read by EditorWorldFactory.
+ *
+ * The format stores a palette of distinct artifacts followed by each layer as a set of chunks. Cells of
+ * a chunk which lie on the unit grid are written as runs of palette indices in row major order, the
+ * (rare) cells placed off of the unit grid are listed individually by their quantized coordinates.
+ * Entities and zones are written as their declarations. All counts and indices are variable length.
+ *
+ * A world may be followed by any number of delta records (see IncrementalWorldWriter), each of which
+ * is applied over the world before it as it is read.
+ */
+public final class EditorWorldBinaryWriter
+{
+	public static final String FILE_EXTENSION = ".jmpb";
+
+	static final int MAGIC = 0x4A4D5042;
+	static final int DELTA_MAGIC = 0x4A4D5044;
+	static final int VERSION = 1;
+
+	static final int CELLS_PER_CHUNK = TileGrid.CHUNK_SIZE * TileGrid.CHUNK_SIZE;
+
+	//Written in place of a palette index for cells holding no tile.
+	static final int EMPTY_CELL = 0;
+
+	public static boolean isBinaryWorld(String path)
+	{
+		return path.toLowerCase().endsWith(FILE_EXTENSION);
+	}
+
+	public void write(EditorWorldSnapshot snapshot, OutputStream out) throws IOException
+	{
+		write(snapshot, out, new NullWorldWriteMonitor());
+	}
+
+	public void write(EditorWorldSnapshot snapshot, OutputStream out, IWorldWriteMonitor monitor) throws IOException
+	{
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+
+		data.writeInt(MAGIC);
+		data.writeShort(VERSION);
+
+		writeHeader(snapshot, data);
+		int[] paletteIndices = writePalette(snapshot.getPaletteEntries(), data);
+
+		List<Float> layers = snapshot.getLayers();
+		writeVarInt(data, layers.size());
+
+		for(int i = 0; i < layers.size(); i++)
+		{
+			monitor.statusChanged(0.9F * i / layers.size(), "Writing tiles");
+			writeLayer(snapshot, layers.get(i), paletteIndices, data);
+		}
+
+		monitor.statusChanged(0.9F, "Writing entities and zones");
+		data.write(encodeEntities(snapshot.getEntities()));
+		data.write(encodeZones(snapshot.getZones()));
+
+		data.flush();
+	}
+
+	/*
+	 * Writes a delta record holding the chunks which changed since the previous snapshot, to be appended
+	 * to a world containing that snapshot. Changed chunks are written whole, including any off grid cells
+	 * within them, and replace the chunk entirely when read. The entity and zone sections are only written
+	 * if given. Records are length prefixed, so a record cut short by an interrupted save is ignored.
+	 */
+	void writeDelta(EditorWorldSnapshot previous, EditorWorldSnapshot snapshot, @Nullable byte[] entities, @Nullable byte[] zones, OutputStream out, IWorldWriteMonitor monitor) throws IOException
+	{
+		ByteArrayOutputStream record = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(record);
+
+		writeHeader(snapshot, data);
+		int[] paletteIndices = writePalette(snapshot.getPaletteEntries(), data);
+
+		final DeferredChunks deferredChunks = snapshot.getDeferredChunks();
+		final LinkedHashSet<ChunkLocation> changedSet = new LinkedHashSet<>();
+
+		//Edited chunks are never deferred again, so a deferred chunk still holds what it did in the previous snapshot.
+		snapshot.getTiles().visitChangedChunks(previous.getTiles(), new TileGrid.IChunkVisitor() {
+			@Override
+			public void visit(float z, int chunkX, int chunkY)
+			{
+				if(!deferredChunks.contains(z, chunkX, chunkY))
+					changedSet.add(new ChunkLocation(z, chunkX, chunkY));
+			}
+		});
+
+		//Chunks placed since the previous snapshot may have been emptied entirely, leaving nothing in the grid to compare.
+		for(DeferredChunks.Chunk chunk : previous.getDeferredChunks().getChunks())
+		{
+			if(!deferredChunks.contains(chunk.z, chunk.chunkX, chunk.chunkY))
+				changedSet.add(new ChunkLocation(chunk.z, chunk.chunkX, chunk.chunkY));
+		}
+
+		List<ChunkLocation> changedChunks = new ArrayList<>(changedSet);
+		writeVarInt(data, changedChunks.size());
+
+		for(int i = 0; i < changedChunks.size(); i++)
+		{
+			ChunkLocation chunk = changedChunks.get(i);
+
+			monitor.statusChanged(0.9F * i / changedChunks.size(), "Writing changed chunks");
+			writeChunk(snapshot, chunk.z, chunk.chunkX, chunk.chunkY, paletteIndices, data);
+		}
+
+		monitor.statusChanged(0.9F, "Writing entities and zones");
+
+		data.writeBoolean(entities != null);
+
+		if(entities != null)
+			data.write(entities);
+
+		data.writeBoolean(zones != null);
+
+		if(zones != null)
+			data.write(zones);
+
+		DataOutputStream target = new DataOutputStream(out);
+		target.writeInt(DELTA_MAGIC);
+		target.writeInt(record.size());
+		record.writeTo(target);
+		target.flush();
+	}
+
+	private void writeHeader(EditorWorldSnapshot snapshot, DataOutput data) throws IOException
+	{
+		data.writeInt(snapshot.getWorldWidth());
+		data.writeInt(snapshot.getWorldHeight());
+		data.writeFloat(snapshot.getFriction());
+		data.writeFloat(snapshot.getMetersPerUnit());
+		data.writeFloat(snapshot.getLogicPerUnit());
+
+		data.writeBoolean(snapshot.getWeather() != null);
+
+		if(snapshot.getWeather() != null)
+			data.writeUTF(snapshot.getWeather());
+
+		data.writeUTF(snapshot.getScript());
+	}
+
+	//Returns the mapping of palette ids to the indices they are written with, starting at one.
+	private int[] writePalette(TilePalette.Entry[] palette, DataOutput data) throws IOException
+	{
+		int[] indices = new int[palette.length];
+		int count = 0;
+
+		for(TilePalette.Entry entry : palette)
+		{
+			if(entry != null)
+				count++;
+		}
+
+		writeVarInt(data, count);
+
+		for(int id = 0, index = EMPTY_CELL + 1; id < palette.length; id++)
+		{
+			TilePalette.Entry entry = palette[id];
+
+			if(entry == null)
+				continue;
+
+			indices[id] = index++;
+
+			data.writeUTF(entry.getModelName().toString());
+			data.writeByte(entry.getDirection().ordinal());
+			data.writeBoolean(entry.isTraversable());
+			data.writeBoolean(entry.isStatic());
+		}
+
+		return indices;
+	}
+
+	private void writeLayer(EditorWorldSnapshot snapshot, float z, final int[] paletteIndices, DataOutput data) throws IOException
+	{
+		final int quantaPerUnit = TileGrid.quantize(1);
+		final TreeMap<Long, int[]> chunks = new TreeMap<>();
+		final OffGridCells offGrid = new OffGridCells();
+
+		snapshot.visitLayer(z, new TileGrid.ICellVisitor() {
+			@Override
+			public void visit(float x, float y, float z, int id)
+			{
+				int index = paletteIndices[id];
+				int quantizedX = TileGrid.quantize(x);
+				int quantizedY = TileGrid.quantize(y);
+
+				if(quantizedX % quantaPerUnit != 0 || quantizedY % quantaPerUnit != 0)
+				{
+					offGrid.add(quantizedX, quantizedY, index);
+					return;
+				}
+
+				int cellX = quantizedX / quantaPerUnit;
+				int cellY = quantizedY / quantaPerUnit;
+				int chunkX = Math.floorDiv(cellX, TileGrid.CHUNK_SIZE);
+				int chunkY = Math.floorDiv(cellY, TileGrid.CHUNK_SIZE);
+				long key = ((long)chunkX << 32) | (chunkY & 0xFFFFFFFFL);
+
+				int[] cells = chunks.get(key);
+
+				if(cells == null)
+				{
+					cells = new int[CELLS_PER_CHUNK];
+					chunks.put(key, cells);
+				}
+
+				cells[(cellY - chunkY * TileGrid.CHUNK_SIZE) * TileGrid.CHUNK_SIZE + (cellX - chunkX * TileGrid.CHUNK_SIZE)] = index;
+			}
+		});
+
+		data.writeInt(TileGrid.quantize(z));
+		writeVarInt(data, chunks.size());
+
+		for(Map.Entry<Long, int[]> chunk : chunks.entrySet())
+		{
+			writeSignedVarInt(data, (int)(chunk.getKey() >> 32));
+			writeSignedVarInt(data, (int)(long)chunk.getKey());
+			writeRuns(chunk.getValue(), data);
+		}
+
+		offGrid.write(data);
+	}
+
+	private void writeChunk(EditorWorldSnapshot snapshot, float z, final int chunkX, final int chunkY, final int[] paletteIndices, DataOutput data) throws IOException
+	{
+		final int quantaPerUnit = TileGrid.quantize(1);
+		final int[] cells = new int[CELLS_PER_CHUNK];
+		final OffGridCells offGrid = new OffGridCells();
+
+		snapshot.getTiles().visitChunk(z, chunkX, chunkY, new TileGrid.ICellVisitor() {
+			@Override
+			public void visit(float x, float y, float z, int id)
+			{
+				int index = paletteIndices[id];
+				int quantizedX = TileGrid.quantize(x);
+				int quantizedY = TileGrid.quantize(y);
+
+				if(quantizedX % quantaPerUnit != 0 || quantizedY % quantaPerUnit != 0)
+					offGrid.add(quantizedX, quantizedY, index);
+				else
+					cells[(quantizedY / quantaPerUnit - chunkY * TileGrid.CHUNK_SIZE) * TileGrid.CHUNK_SIZE + (quantizedX / quantaPerUnit - chunkX * TileGrid.CHUNK_SIZE)] = index;
+			}
+		});
+
+		data.writeInt(TileGrid.quantize(z));
+		writeSignedVarInt(data, chunkX);
+		writeSignedVarInt(data, chunkY);
+		writeRuns(cells, data);
+		offGrid.write(data);
+	}
+
+	private void writeRuns(int[] cells, DataOutput data) throws IOException
+	{
+		for(int start = 0; start < cells.length;)
+		{
+			int end = start + 1;
+
+			while(end < cells.length && cells[end] == cells[start])
+				end++;
+
+			writeVarInt(data, end - start);
+			writeVarInt(data, cells[start]);
+
+			start = end;
+		}
+	}
+
+	//Entity and zone sections are encoded separately, so that unchanged sections can be detected and left out of deltas.
+	byte[] encodeEntities(List<EntityImportDeclaration> entities) throws IOException
+	{
+		ByteArrayOutputStream section = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(section);
+
+		writeVarInt(data, entities.size());
+
+		for(EntityImportDeclaration e : entities)
+			writeEntity(e, data);
+
+		return section.toByteArray();
+	}
+
+	byte[] encodeZones(List<ZoneDeclaration> zones) throws IOException
+	{
+		ByteArrayOutputStream section = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(section);
+
+		writeVarInt(data, zones.size());
+
+		for(ZoneDeclaration z : zones)
+			writeZone(z, data);
+
+		return section.toByteArray();
+	}
+
+	private void writeEntity(EntityImportDeclaration entity, DataOutput data) throws IOException
+	{
+		data.writeUTF(entity.name);
+		data.writeUTF(entity.type);
+		data.writeBoolean(entity.config != null);
+
+		if(entity.config != null)
+			data.writeUTF(entity.config);
+
+		data.writeByte(entity.direction.ordinal());
+		data.writeFloat(entity.location.x);
+		data.writeFloat(entity.location.y);
+		data.writeFloat(entity.location.z);
+
+		if(entity.auxConfig == null)
+			data.writeInt(-1);
+		else
+		{
+			ByteArrayOutputStream auxConfig = new ByteArrayOutputStream();
+			entity.auxConfig.serialize(auxConfig, false);
+
+			data.writeInt(auxConfig.size());
+			data.write(auxConfig.toByteArray());
+		}
+	}
+
+	private void writeZone(ZoneDeclaration zone, DataOutput data) throws IOException
+	{
+		Rect3F region = zone.region;
+
+		data.writeUTF(zone.name);
+		data.writeFloat(region.x);
+		data.writeFloat(region.y);
+		data.writeFloat(region.z);
+		data.writeFloat(region.width);
+		data.writeFloat(region.height);
+		data.writeFloat(region.depth);
+	}
+
+	static void writeVarInt(DataOutput data, int value) throws IOException
+	{
+		while((value & ~0x7F) != 0)
+		{
+			data.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+
+		data.writeByte(value);
+	}
+
+	static void writeSignedVarInt(DataOutput data, int value) throws IOException
+	{
+		writeVarInt(data, (value << 1) ^ (value >> 31));
+	}
+
+	private static final class ChunkLocation
+	{
+		private final float z;
+		private final int chunkX;
+		private final int chunkY;
+
+		public ChunkLocation(float z, int chunkX, int chunkY)
+		{
+			this.z = z;
+			this.chunkX = chunkX;
+			this.chunkY = chunkY;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return (TileGrid.quantize(z) * 31 + chunkX) * 31 + chunkY;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if(!(obj instanceof ChunkLocation))
+				return false;
+
+			ChunkLocation other = (ChunkLocation)obj;
+
+			return TileGrid.quantize(z) == TileGrid.quantize(other.z) && chunkX == other.chunkX && chunkY == other.chunkY;
+		}
+	}
+
+	private static final class OffGridCells
+	{
+		private int[] m_cells = new int[0];
+		private int m_size = 0;
+
+		public void add(int quantizedX, int quantizedY, int index)
+		{
+			if(m_size * 3 == m_cells.length)
+				m_cells = Arrays.copyOf(m_cells, Math.max(48, m_cells.length * 2));
+
+			m_cells[m_size * 3] = quantizedX;
+			m_cells[m_size * 3 + 1] = quantizedY;
+			m_cells[m_size * 3 + 2] = index;
+			m_size++;
+		}
+
+		public void write(DataOutput data) throws IOException
+		{
+			writeVarInt(data, m_size);
+
+			for(int i = 0; i < m_size; i++)
+			{
+				data.writeInt(m_cells[i * 3]);
+				data.writeInt(m_cells[i * 3 + 1]);
+				writeVarInt(data, m_cells[i * 3 + 2]);
+			}
+		}
+	}
+}
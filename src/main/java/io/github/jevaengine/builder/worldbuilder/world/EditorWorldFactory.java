@@ -18,19 +18,35 @@
  */
 package io.github.jevaengine.builder.worldbuilder.world;
 
+import io.github.jevaengine.FutureResult;
 import io.github.jevaengine.IEngineThreadPool;
+import io.github.jevaengine.IEngineThreadPool.Purpose;
+import io.github.jevaengine.IInitializationMonitor;
 import io.github.jevaengine.audio.IAudioClipFactory;
 import io.github.jevaengine.config.IConfigurationFactory;
+import io.github.jevaengine.config.NoSuchChildVariableException;
 import io.github.jevaengine.config.ValueSerializationException;
 import io.github.jevaengine.config.json.JsonVariable;
 import io.github.jevaengine.graphics.IFontFactory;
 import io.github.jevaengine.graphics.ISpriteFactory;
+import io.github.jevaengine.math.Rect3F;
+import io.github.jevaengine.math.Vector3F;
 import io.github.jevaengine.script.IScriptBuilderFactory;
+import io.github.jevaengine.script.NullScriptBuilder;
+import io.github.jevaengine.util.Nullable;
 import io.github.jevaengine.world.DefaultWorldFactory;
+import io.github.jevaengine.world.DefaultWorldFactory.WorldConfiguration;
 import io.github.jevaengine.world.DefaultWorldFactory.WorldConfiguration.EntityImportDeclaration;
 import io.github.jevaengine.world.DefaultWorldFactory.WorldConfiguration.SceneArtifactImportDeclaration;
+import io.github.jevaengine.world.DefaultWorldFactory.WorldConfiguration.ZoneDeclaration;
+import io.github.jevaengine.world.Direction;
 import io.github.jevaengine.world.IEffectMapFactory;
 import io.github.jevaengine.world.IWeatherFactory;
+import io.github.jevaengine.world.IWeatherFactory.IWeather;
+import io.github.jevaengine.world.IWeatherFactory.NullWeather;
+import io.github.jevaengine.world.IWeatherFactory.WeatherConstructionException;
+import io.github.jevaengine.world.IWorldFactory.WorldConstructionException;
+import io.github.jevaengine.world.World;
 import io.github.jevaengine.world.entity.IEntity;
 import io.github.jevaengine.world.entity.IEntityFactory;
 import io.github.jevaengine.world.entity.IEntityFactory.EntityConstructionException;
@@ -40,12 +56,43 @@ import io.github.jevaengine.world.scene.model.ISceneModelFactory;
 import io.github.jevaengine.world.scene.model.ISceneModelFactory.SceneModelConstructionException;
 
 import javax.inject.Inject;
+import javax.inject.Named;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 public final class EditorWorldFactory extends DefaultWorldFactory
 {
+	//Binary worlds at least this large are mapped, and their chunks placed as they are needed.
+	private static final long MIN_MAPPED_LENGTH = 16 * 1024 * 1024;
+	
 	private final IFontFactory m_fontFactory;
+	private final IEngineThreadPool m_threadPool;
+	private final IEntityFactory m_entityFactory;
+	private final IPhysicsWorldFactory m_physicsWorldFactory;
+	private final EditorWeatherFactory m_weatherFactory;
+	private final IEffectMapFactory m_effectMapFactory;
+	private final URI m_baseDirectory;
+	
+	//Kept for the lifetime of the factory when caching is enabled, otherwise models are only shared within a load.
+	@Nullable
+	private final SceneModelCache m_sceneModelCache;
 	
 	@Inject
 	public EditorWorldFactory(IEngineThreadPool threadPool,
@@ -56,13 +103,337 @@ public final class EditorWorldFactory extends DefaultWorldFactory
 			IFontFactory fontFactory,
 			ISceneModelFactory animationSceneModelFactory,
 			IWeatherFactory weatherFactory,
-			IEffectMapFactory effectMapFactory) {
+			IEffectMapFactory effectMapFactory,
+			@Named("BASE_DIRECTORY") URI baseDirectory,
+			@Named("ENABLE_CACHE") boolean enableCache) {
 	
 		super(threadPool, entityFactory, scriptFactory, configurationFactory,
 				spriteFactory, audioClipFactory, physicsWorldFactory, animationSceneModelFactory,
 				new EditorWeatherFactory(weatherFactory), effectMapFactory);
 	
 		m_fontFactory = fontFactory;
+		m_threadPool = threadPool;
+		m_entityFactory = entityFactory;
+		m_physicsWorldFactory = physicsWorldFactory;
+		m_weatherFactory = new EditorWeatherFactory(weatherFactory);
+		m_effectMapFactory = effectMapFactory;
+		m_baseDirectory = baseDirectory;
+		m_sceneModelCache = enableCache ? new SceneModelCache() : null;
+	}
+	
+	/*
+	 * Worlds are read directly into an EditorWorld, rather than being constructed as a World and then
+	 * walked again by the EditorWorld. Worlds not named as binary worlds (see EditorWorldBinaryWriter)
+	 * are read as JSON. Completes once the entire world has been read.
+	 */
+	public void createEditorWorld(final URI name, final IInitializationMonitor<EditorWorld, WorldConstructionException> monitor)
+	{
+		m_threadPool.execute(Purpose.Loading, new Runnable() {
+			@Override
+			public void run()
+			{
+				try
+				{
+					IWorldReader reader = createWorldReader(name);
+					EditorWorld world = reader.getWorld();
+					world.loadContent(reader.readContent(monitor));
+					monitor.completed(new FutureResult<EditorWorld, WorldConstructionException>(world));
+				} catch (WorldConstructionException e)
+				{
+					monitor.completed(new FutureResult<EditorWorld, WorldConstructionException>(e));
+				}
+			}
+		});
+	}
+	
+	/*
+	 * Completes as soon as the bounds and properties of the world have been read. Its tiles, entities and
+	 * zones are then read on the same loader thread, and placed into the world as it is updated (see
+	 * EditorWorld#beginLoad).
+	 */
+	public void openEditorWorld(final URI name, final IInitializationMonitor<EditorWorld, WorldConstructionException> monitor)
+	{
+		m_threadPool.execute(Purpose.Loading, new Runnable() {
+			@Override
+			public void run()
+			{
+				IWorldReader reader;
+				
+				try
+				{
+					reader = createWorldReader(name);
+				} catch (WorldConstructionException e)
+				{
+					monitor.completed(new FutureResult<EditorWorld, WorldConstructionException>(e));
+					return;
+				}
+				
+				final EditorWorld world = reader.getWorld();
+				world.beginLoad();
+				monitor.completed(new FutureResult<EditorWorld, WorldConstructionException>(world));
+				
+				try
+				{
+					world.completeLoad(reader.readContent(new IInitializationMonitor<EditorWorld, WorldConstructionException>() {
+						@Override
+						public void statusChanged(float progress, String status)
+						{
+							world.setLoadStatus(status);
+						}
+						
+						@Override
+						public void completed(FutureResult<EditorWorld, WorldConstructionException> result) { }
+					}));
+				} catch (WorldConstructionException e)
+				{
+					world.failLoad(e);
+				} catch (RuntimeException e)
+				{
+					//Edits to the world wait for its content, so the load must always be ended.
+					world.failLoad(new WorldConstructionException(name, e));
+					throw e;
+				}
+			}
+		});
+	}
+	
+	/*
+	 * Whether edits made to the given world were journaled but not saved before the editor last closed.
+	 * A journal which cannot be read is reported as having edits, so replaying it reports the failure.
+	 */
+	public boolean hasJournaledEdits(URI name)
+	{
+		try
+		{
+			recoverWorldFile(name);
+			return EditorWorldJournal.hasEdits(getWorldFile(name));
+		} catch (IOException e)
+		{
+			return true;
+		}
+	}
+	
+	private IWorldReader createWorldReader(URI name) throws WorldConstructionException
+	{
+		try
+		{
+			recoverWorldFile(name);
+		} catch (IOException e)
+		{
+			throw new WorldConstructionException(name, e);
+		}
+		
+		return EditorWorldBinaryWriter.isBinaryWorld(name.getPath()) ? new BinaryWorldReader(name) : new JsonWorldReader(name);
+	}
+	
+	//Binary worlds are saved through an IncrementalWorldWriter, which may have been interrupted while compacting the world.
+	private void recoverWorldFile(URI name) throws IOException
+	{
+		if(EditorWorldBinaryWriter.isBinaryWorld(name.getPath()))
+			IncrementalWorldWriter.recover(getWorldFile(name));
+	}
+	
+	private EditorWorld createEmptyEditorWorld(URI name, int width, int height, float friction, float metersPerUnit, float logicPerUnit, @Nullable String weatherName, String script) throws URISyntaxException, WeatherConstructionException
+	{
+		IWeather weather = weatherName == null ? new NullWeather() : m_weatherFactory.create(name.resolve(new URI(weatherName)));
+		World world = new World(width, height, friction, metersPerUnit, logicPerUnit, weather, m_physicsWorldFactory, m_effectMapFactory, m_entityFactory, new NullScriptBuilder());
+		
+		EditorWorld editorWorld = new EditorWorld(world, m_fontFactory);
+		editorWorld.setScript(script);
+		
+		return editorWorld;
+	}
+	
+	/*
+	 * Replays the journal of edits made to the given world since it was last saved, which is left
+	 * behind when the editor exits without saving them. Returns whether there were any edits.
+	 */
+	public boolean replayJournal(final EditorWorld editorWorld, final URI name) throws WorldConstructionException
+	{
+		final PrototypeCache prototypeCache = new PrototypeCache();
+		
+		editorWorld.beginBatch();
+		
+		try
+		{
+			return EditorWorldJournal.replay(getWorldFile(name), new EditorWorldJournal.IJournalVisitor() {
+				@Override
+				public void tileSet(Vector3F location, TilePalette.Entry entry) throws IOException
+				{
+					try
+					{
+						editorWorld.setTile(createTile(prototypeCache.getTilePrototype(entry, name)), location);
+					} catch (SceneModelConstructionException e)
+					{
+						throw new IOException("Unable to construct journaled tile.", e);
+					}
+				}
+				
+				@Override
+				public void tileCleared(Vector3F location)
+				{
+					editorWorld.clearTile(location);
+				}
+				
+				@Override
+				public void layerCleared(float z)
+				{
+					editorWorld.clearLayer(z);
+				}
+				
+				@Override
+				public void layerShifted(float fromZ, float toZ)
+				{
+					editorWorld.shiftLayer(fromZ, toZ);
+				}
+				
+				@Override
+				public void entityAdded(EntityImportDeclaration entity) throws IOException
+				{
+					try
+					{
+						addEntities(editorWorld, Collections.singletonList(entity), name);
+					} catch (EntityConstructionException e)
+					{
+						throw new IOException("Unable to construct journaled entity.", e);
+					}
+				}
+				
+				@Override
+				public void entityChanged(int index, EntityImportDeclaration entityDecl) throws IOException
+				{
+					EditorEntity entity = getJournaledItem(editorWorld.getEntities(), index);
+					
+					try
+					{
+						EditorEntity source = ((EditorEntity.DummyEntity)createEntity(entityDecl, name)).getEditorEntity();
+						
+						entity.setName(source.getName());
+						entity.setClassName(source.getClassName());
+						entity.setConfig(source.getConfig());
+						entity.setAuxiliaryConfig(source.getAuxiliaryConfig());
+						entity.setDirection(entityDecl.direction);
+						entity.setLocation(entityDecl.location);
+					} catch (EntityConstructionException e)
+					{
+						throw new IOException("Unable to construct journaled entity.", e);
+					}
+				}
+				
+				@Override
+				public void entityRemoved(int index) throws IOException
+				{
+					editorWorld.removeEntity(getJournaledItem(editorWorld.getEntities(), index));
+				}
+				
+				@Override
+				public void zoneAdded(ZoneDeclaration zone)
+				{
+					addZones(editorWorld, Collections.singletonList(zone));
+				}
+				
+				@Override
+				public void zoneChanged(int index, ZoneDeclaration zoneDecl) throws IOException
+				{
+					EditorZone zone = getJournaledItem(editorWorld.getZones(), index);
+					Rect3F region = zoneDecl.region;
+					
+					zone.setName(zoneDecl.name);
+					zone.setLocation(region.getPoint(0, 0, 0));
+					zone.setBounds(new Rect3F(0, 0, 0, region.width, region.height, region.depth));
+				}
+				
+				@Override
+				public void zoneRemoved(int index) throws IOException
+				{
+					editorWorld.removeZone(getJournaledItem(editorWorld.getZones(), index));
+				}
+			});
+		} catch (IOException e)
+		{
+			throw new WorldConstructionException(name, e);
+		} finally
+		{
+			editorWorld.commitBatch();
+		}
+	}
+	
+	private static <T> T getJournaledItem(List<T> items, int index) throws IOException
+	{
+		if(index < 0 || index >= items.size())
+			throw new IOException("World journal does not apply to the world it is being replayed over.");
+		
+		return items.get(index);
+	}
+	
+	private File getWorldFile(URI name)
+	{
+		return new File(m_baseDirectory.resolve(URI.create("/").relativize(name)));
+	}
+	
+	//Entities are constructed one at a time, as the engine's entity factories are not known to be thread safe.
+	private List<EditorEntity> createEntities(List<EntityImportDeclaration> entities, URI context) throws EntityConstructionException
+	{
+		ArrayList<EditorEntity> editorEntities = new ArrayList<>(entities.size());
+		
+		for(EntityImportDeclaration entityDecl : entities)
+		{
+			EditorEntity entity = ((EditorEntity.DummyEntity)createEntity(entityDecl, context)).getEditorEntity();
+			entity.setDirection(entityDecl.direction);
+			entity.setLocation(entityDecl.location);
+			editorEntities.add(entity);
+		}
+		
+		return editorEntities;
+	}
+	
+	private List<EditorZone> createZones(List<ZoneDeclaration> zones)
+	{
+		ArrayList<EditorZone> editorZones = new ArrayList<>(zones.size());
+		
+		for(ZoneDeclaration zoneDecl : zones)
+		{
+			Rect3F region = zoneDecl.region;
+			
+			EditorZone zone = new EditorZone(m_fontFactory, zoneDecl.name);
+			zone.setLocation(region.getPoint(0, 0, 0));
+			zone.setBounds(new Rect3F(0, 0, 0, region.width, region.height, region.depth));
+			editorZones.add(zone);
+		}
+		
+		return editorZones;
+	}
+	
+	private void addEntities(EditorWorld editorWorld, List<EntityImportDeclaration> entities, URI context) throws EntityConstructionException
+	{
+		for(EditorEntity entity : createEntities(entities, context))
+			editorWorld.addEntity(entity);
+	}
+	
+	private void addZones(EditorWorld editorWorld, List<ZoneDeclaration> zones)
+	{
+		for(EditorZone zone : createZones(zones))
+			editorWorld.addZone(zone);
+	}
+	
+	private static EditorSceneArtifact createTile(EditorSceneArtifact prototype)
+	{
+		return new EditorSceneArtifact(prototype.getSourceModel(), prototype.getModelName(), prototype.getDirection(), prototype.isTraversable(), prototype.isStatic());
+	}
+	
+	/*
+	 * Creates a tile for each palette entry, from which the tiles placed in the world are copied. Like entities,
+	 * the models of the palette are constructed one at a time, as the scene model factory and its asset caches
+	 * are not known to be thread safe.
+	 */
+	private EditorSceneArtifact[] createTilePrototypes(List<TilePalette.Entry> palette, URI context, PrototypeCache cache) throws SceneModelConstructionException
+	{
+		EditorSceneArtifact[] prototypes = new EditorSceneArtifact[palette.size()];
+		
+		for(int i = 0; i < prototypes.length; i++)
+			prototypes[i] = cache.getTilePrototype(palette.get(i), context);
+		
+		return prototypes;
 	}
 
 	@Override
@@ -72,8 +443,7 @@ public final class EditorWorldFactory extends DefaultWorldFactory
 		{
 			URI modelUri = context.resolve(new URI(artifactDecl.model));
 			
-			ISceneModel model = m_sceneModelFactory.create(modelUri);
-			model.setDirection(artifactDecl.direction);
+			ISceneModel model = m_sceneModelCache == null ? createSceneModel(modelUri, artifactDecl.direction) : m_sceneModelCache.get(modelUri, artifactDecl.direction);
 			return new EditorSceneArtifact(model, modelUri, artifactDecl.direction, artifactDecl.isTraversable, artifactDecl.isStatic).getEntity();
 		} catch (SceneModelConstructionException | URISyntaxException e)
 		{
@@ -81,6 +451,14 @@ public final class EditorWorldFactory extends DefaultWorldFactory
 		}
 	}
 	
+	private ISceneModel createSceneModel(URI modelUri, Direction direction) throws SceneModelConstructionException
+	{
+		ISceneModel model = m_sceneModelFactory.create(modelUri);
+		model.setDirection(direction);
+		
+		return model;
+	}
+	
 	@Override
 	protected IEntity createEntity(EntityImportDeclaration entityConfig, URI context) throws EntityConstructionException
 	{
@@ -101,4 +479,366 @@ public final class EditorWorldFactory extends DefaultWorldFactory
 			throw new EntityConstructionException(entityConfig.name, e);
 		}
 	}
+	
+	/*
+	 * Reads a world in two parts, the bounds and properties its EditorWorld is created with and then its
+	 * content, so that the world may be opened before its content has been read.
+	 */
+	private interface IWorldReader
+	{
+		EditorWorld getWorld();
+		WorldContent readContent(IInitializationMonitor<EditorWorld, WorldConstructionException> monitor) throws WorldConstructionException;
+	}
+	
+	/*
+	 * Only the chunks of a binary world are indexed as it is read, their tiles are placed once the EditorWorld
+	 * needs them. Worlds at least MIN_MAPPED_LENGTH long are mapped and their chunks remain deferred, smaller
+	 * worlds are read into memory and all of their chunks placed.
+	 */
+	private final class BinaryWorldReader implements IWorldReader
+	{
+		private final URI m_name;
+		private final ByteBuffer m_buffer;
+		private final boolean m_isMapped;
+		private final EditorWorldBinaryReader m_reader;
+		private final EditorWorld m_world;
+		
+		public BinaryWorldReader(URI name) throws WorldConstructionException
+		{
+			File file = getWorldFile(name);
+			m_name = name;
+			
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+			{
+				if(channel.size() > Integer.MAX_VALUE)
+					throw new IOException("World is too large to be read.");
+				
+				m_isMapped = channel.size() >= MIN_MAPPED_LENGTH;
+				
+				//The mapping remains valid once the channel is closed.
+				m_buffer = m_isMapped ? channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()) : ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+				m_reader = new EditorWorldBinaryReader(m_buffer);
+				
+				EditorWorldBinaryReader.Header header = m_reader.readHeader();
+				m_world = createEmptyEditorWorld(name, header.worldWidth, header.worldHeight, header.friction, header.metersPerUnit, header.logicPerUnit, header.weather, header.script);
+			} catch (IOException | URISyntaxException | WeatherConstructionException e)
+			{
+				throw new WorldConstructionException(name, e);
+			}
+		}
+		
+		@Override
+		public EditorWorld getWorld()
+		{
+			return m_world;
+		}
+		
+		@Override
+		public WorldContent readContent(IInitializationMonitor<EditorWorld, WorldConstructionException> monitor) throws WorldConstructionException
+		{
+			final WorldContent content = new WorldContent(m_isMapped);
+			PrototypeCache prototypeCache = new PrototypeCache();
+			
+			try
+			{
+				monitor.statusChanged(0.1F, "Loading scene models");
+				final EditorSceneArtifact[] prototypes = createTilePrototypes(m_reader.readPalette(), m_name, prototypeCache);
+				content.getChunks().addPalette(prototypes);
+				
+				monitor.statusChanged(0.3F, "Indexing tiles");
+				m_reader.indexLayers(new EditorWorldBinaryReader.IChunkIndexVisitor() {
+					@Override
+					public void chunk(float z, int chunkX, int chunkY, int position)
+					{
+						content.getChunks().put(new DeferredChunks.Chunk(m_buffer, position, prototypes, z, chunkX, chunkY));
+					}
+					
+					@Override
+					public void visit(float x, float y, float z, int paletteIndex)
+					{
+						content.setCell(new Vector3F(x, y, z), prototypes[paletteIndex]);
+					}
+				});
+				
+				monitor.statusChanged(0.8F, "Loading entities");
+				content.setEntities(createEntities(m_reader.readEntities(), m_name));
+				
+				monitor.statusChanged(0.9F, "Loading zones");
+				content.setZones(createZones(m_reader.readZones()));
+				
+				monitor.statusChanged(0.95F, "Applying saved changes");
+				while(m_reader.nextDelta())
+					indexDelta(content, prototypeCache);
+				
+				return content;
+			} catch (IOException | URISyntaxException | WeatherConstructionException | SceneModelConstructionException | EntityConstructionException e)
+			{
+				throw new WorldConstructionException(m_name, e);
+			}
+		}
+		
+		/*
+		 * A delta replaces the tiles of each chunk it lists and, when present, the entire set of entities or
+		 * zones. Its chunks are read in place, so they are indexed just as those of the world.
+		 */
+		private void indexDelta(final WorldContent content, PrototypeCache prototypeCache) throws IOException, URISyntaxException, WeatherConstructionException, SceneModelConstructionException, EntityConstructionException
+		{
+			EditorWorldBinaryReader.Header header = m_reader.readDeltaHeader();
+			content.setProperties(header.friction, header.script, header.weather == null ? null : m_weatherFactory.create(m_name.resolve(new URI(header.weather))));
+			
+			final EditorSceneArtifact[] prototypes = createTilePrototypes(m_reader.readPalette(), m_name, prototypeCache);
+			content.getChunks().addPalette(prototypes);
+			
+			m_reader.indexChangedChunks(new EditorWorldBinaryReader.IChangedChunkIndexVisitor() {
+				@Override
+				public void clear(float z, int chunkX, int chunkY)
+				{
+					content.clearChunk(z, chunkX, chunkY);
+				}
+				
+				@Override
+				public void chunk(float z, int chunkX, int chunkY, int position)
+				{
+					content.getChunks().put(new DeferredChunks.Chunk(m_buffer, position, prototypes, z, chunkX, chunkY));
+				}
+				
+				@Override
+				public void visit(float x, float y, float z, int paletteIndex)
+				{
+					content.setCell(new Vector3F(x, y, z), prototypes[paletteIndex]);
+				}
+			});
+			
+			List<EntityImportDeclaration> entities = m_reader.readChangedEntities();
+			
+			if(entities != null)
+				content.setEntities(createEntities(entities, m_name));
+			
+			List<ZoneDeclaration> zones = m_reader.readChangedZones();
+			
+			if(zones != null)
+				content.setZones(createZones(zones));
+		}
+	}
+	
+	/*
+	 * Artifact imports are placed into a grid of palette indices directly from the parsed configuration, and each
+	 * chunk of the grid deferred. Regions written by EditorWorldJsonWriter are expanded a cell at a time as
+	 * they are placed, rather than into arrays of locations.
+	 */
+	private final class JsonWorldReader implements IWorldReader
+	{
+		private final URI m_name;
+		private final WorldConfiguration m_config;
+		private final SceneArtifactRegionDeclaration[] m_regionDecls;
+		private final EditorWorld m_world;
+		
+		public JsonWorldReader(URI name) throws WorldConstructionException
+		{
+			m_name = name;
+			
+			try (InputStream source = new FileInputStream(getWorldFile(name)))
+			{
+				JsonVariable root = JsonVariable.create(source);
+				m_config = root.getValue(WorldConfiguration.class);
+				
+				if(root.childExists(EditorWorldJsonWriter.ARTIFACT_REGIONS))
+					m_regionDecls = root.getChild(EditorWorldJsonWriter.ARTIFACT_REGIONS).getValues(SceneArtifactRegionDeclaration[].class);
+				else
+					m_regionDecls = new SceneArtifactRegionDeclaration[0];
+				
+				m_world = createEmptyEditorWorld(name, m_config.worldWidth, m_config.worldHeight, m_config.friction, m_config.metersPerUnit, m_config.logicPerUnit, m_config.weather, m_config.script);
+			} catch (IOException | URISyntaxException | ValueSerializationException | NoSuchChildVariableException | WeatherConstructionException e)
+			{
+				throw new WorldConstructionException(name, e);
+			}
+		}
+		
+		@Override
+		public EditorWorld getWorld()
+		{
+			return m_world;
+		}
+		
+		@Override
+		public WorldContent readContent(IInitializationMonitor<EditorWorld, WorldConstructionException> monitor) throws WorldConstructionException
+		{
+			final WorldContent content = new WorldContent(false);
+			final TileGrid cells = new TileGrid();
+			
+			ArrayList<TilePalette.Entry> palette = new ArrayList<>(m_config.artifactImports.length);
+			
+			try
+			{
+				monitor.statusChanged(0.1F, "Loading scene models");
+				for(SceneArtifactImportDeclaration artifactDecl : m_config.artifactImports)
+					palette.add(new TilePalette.Entry(new URI(artifactDecl.model), artifactDecl.direction, artifactDecl.isTraversable, artifactDecl.isStatic));
+				
+				final EditorSceneArtifact[] prototypes = createTilePrototypes(palette, m_name, new PrototypeCache());
+				content.getChunks().addPalette(prototypes);
+				
+				monitor.statusChanged(0.3F, "Loading tiles");
+				for(int i = 0; i < prototypes.length; i++)
+				{
+					for(Vector3F location : m_config.artifactImports[i].locations)
+						cells.put(m_world.getBoundedTileLocation(location), i);
+				}
+				
+				for(SceneArtifactRegionDeclaration regionDecl : m_regionDecls)
+				{
+					if(regionDecl.artifact < 0 || regionDecl.artifact >= prototypes.length)
+						throw new IOException("World declares a region of an undeclared artifact.");
+					
+					for(Rect3F region : regionDecl.regions)
+						placeRegion(cells, regionDecl.artifact, region);
+				}
+				
+				//Every chunk of the grid differs from those of an empty grid.
+				cells.visitChangedChunks(new TileGrid(), new TileGrid.IChunkVisitor() {
+					@Override
+					public void visit(float z, int chunkX, int chunkY)
+					{
+						content.getChunks().put(new DeferredChunks.Chunk(cells, prototypes, z, chunkX, chunkY));
+					}
+				});
+				
+				monitor.statusChanged(0.8F, "Loading entities");
+				content.setEntities(createEntities(Arrays.asList(m_config.entities), m_name));
+				
+				monitor.statusChanged(0.9F, "Loading zones");
+				content.setZones(createZones(Arrays.asList(m_config.zones)));
+				
+				return content;
+			} catch (IOException | URISyntaxException | SceneModelConstructionException | EntityConstructionException e)
+			{
+				throw new WorldConstructionException(m_name, e);
+			}
+		}
+		
+		private void placeRegion(TileGrid cells, int artifact, Rect3F region)
+		{
+			int width = Math.round(region.width);
+			int height = Math.round(region.height);
+			
+			for(int y = 0; y < height; y++)
+			{
+				for(int x = 0; x < width; x++)
+					cells.put(m_world.getBoundedTileLocation(new Vector3F(region.x + x, region.y + y, region.z)), artifact);
+			}
+		}
+	}
+	
+	/*
+	 * Scene models by resolved name and direction. Tiles only refer to the model they are created with, and
+	 * the world copies it once into the prototype shared by every tile of that model and direction, so a
+	 * model is only ever constructed once, however many tiles or palette entries refer to it. Models are
+	 * constructed outside of the cache's lock, as a cache kept by the factory may be shared by loads on other
+	 * threads, which wait for a model another load is already constructing. Failures are not kept.
+	 */
+	private final class SceneModelCache
+	{
+		private final HashMap<URI, EnumMap<Direction, FutureTask<ISceneModel>>> m_models = new HashMap<>();
+		
+		public ISceneModel get(final URI modelUri, final Direction direction) throws SceneModelConstructionException
+		{
+			FutureTask<ISceneModel> model;
+			boolean isOwner = false;
+			
+			synchronized(this)
+			{
+				EnumMap<Direction, FutureTask<ISceneModel>> directions = m_models.get(modelUri);
+				
+				if(directions == null)
+				{
+					directions = new EnumMap<>(Direction.class);
+					m_models.put(modelUri, directions);
+				}
+				
+				model = directions.get(direction);
+				
+				if(model == null)
+				{
+					model = new FutureTask<>(new Callable<ISceneModel>() {
+						@Override
+						public ISceneModel call() throws SceneModelConstructionException
+						{
+							return createSceneModel(modelUri, direction);
+						}
+					});
+					
+					directions.put(direction, model);
+					isOwner = true;
+				}
+			}
+			
+			if(isOwner)
+				model.run();
+			
+			try
+			{
+				return getUninterruptibly(model);
+			} catch (ExecutionException e)
+			{
+				synchronized(this)
+				{
+					if(m_models.get(modelUri).get(direction) == model)
+						m_models.get(modelUri).remove(direction);
+				}
+				
+				Throwable cause = e.getCause();
+				
+				if(cause instanceof SceneModelConstructionException)
+					throw (SceneModelConstructionException)cause;
+				else if(cause instanceof RuntimeException)
+					throw (RuntimeException)cause;
+				else
+					throw (Error)cause;
+			}
+		}
+		
+		private ISceneModel getUninterruptibly(FutureTask<ISceneModel> model) throws ExecutionException
+		{
+			boolean isInterrupted = false;
+			
+			try
+			{
+				while(true)
+				{
+					try
+					{
+						return model.get();
+					} catch (InterruptedException e)
+					{
+						isInterrupted = true;
+					}
+				}
+			} finally
+			{
+				if(isInterrupted)
+					Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	//The tile prototypes of a single load, created from the factory's scene models or, if it keeps none, those of the load.
+	private final class PrototypeCache
+	{
+		private final HashMap<TilePalette.Entry, EditorSceneArtifact> m_prototypes = new HashMap<>();
+		private final SceneModelCache m_models = m_sceneModelCache == null ? new SceneModelCache() : m_sceneModelCache;
+		
+		public EditorSceneArtifact getTilePrototype(TilePalette.Entry entry, URI context) throws SceneModelConstructionException
+		{
+			EditorSceneArtifact prototype = m_prototypes.get(entry);
+			
+			if(prototype == null)
+			{
+				URI modelUri = context.resolve(entry.getModelName());
+				
+				prototype = new EditorSceneArtifact(m_models.get(modelUri, entry.getDirection()), modelUri, entry.getDirection(), entry.isTraversable(), entry.isStatic());
+				m_prototypes.put(entry, prototype);
+			}
+			
+			return prototype;
+		}
+	}
 }
@@ -0,0 +1,660 @@
+/*
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.worldbuilder.world;
+
+import io.github.jevaengine.math.Rect3F;
+import io.github.jevaengine.math.Vector3F;
+import io.github.jevaengine.util.Nullable;
+import io.github.jevaengine.world.DefaultWorldFactory.WorldConfiguration.EntityImportDeclaration;
+import io.github.jevaengine.world.DefaultWorldFactory.WorldConfiguration.ZoneDeclaration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An append only journal of the edits made to an EditorWorld since it was last saved, kept beside the
+ * saved world so that edits lost to a crash can be replayed over the world when it is reopened.
+ *
+ * The journal begins with the length and modification time of the saved world it applies to, and is
+ * ignored once the world no longer matches them. Edits are buffered as they are made and written to
+ * the journal whenever it is flushed; a record cut short by a crash ends the journal. Changes to an
+ * entity are merged until then and written once, with the entity as it is when the journal is flushed.
+ */
+public final class EditorWorldJournal
+{
+	public static final String FILE_EXTENSION = ".journal";
+
+	private static final int MAGIC = 0x4A4D504A;
+	private static final int HEADER_LENGTH = 20;
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final int TILE_ENTRY = 1;
+	private static final int TILE_SET = 2;
+	private static final int TILE_CLEAR = 3;
+	private static final int LAYER_CLEAR = 4;
+	private static final int LAYER_SHIFT = 5;
+	private static final int ENTITY_ADD = 6;
+	private static final int ENTITY_CHANGE = 7;
+	private static final int ENTITY_REMOVE = 8;
+	private static final int ZONE_ADD = 9;
+	private static final int ZONE_CHANGE = 10;
+	private static final int ZONE_REMOVE = 11;
+
+	private final Logger m_logger = LoggerFactory.getLogger(EditorWorldJournal.class);
+
+	private final File m_worldFile;
+	private final File m_file;
+	private final EditorWorld m_world;
+	private final JournalObserver m_observer = new JournalObserver();
+	private final EditorWorldBinaryWriter m_encoder = new EditorWorldBinaryWriter();
+
+	//Tiles refer to their palette entry by an id declared earlier in the journal.
+	private final HashMap<TilePalette.Entry, Integer> m_entryIds = new HashMap<>();
+
+	//The index of each entity changed since the journal was last flushed.
+	private final IdentityHashMap<EditorEntity, Integer> m_changedEntities = new IdentityHashMap<>();
+
+	private FileChannel m_channel;
+	private DataOutputStream m_data;
+	private boolean m_isFailed = false;
+
+	private EditorWorldJournal(File worldFile, EditorWorld world, FileChannel channel)
+	{
+		m_worldFile = worldFile;
+		m_file = getJournalFile(worldFile);
+		m_world = world;
+		setChannel(channel);
+
+		world.getObservers().add(m_observer);
+	}
+
+	public static File getJournalFile(File worldFile)
+	{
+		return new File(worldFile.getPath() + FILE_EXTENSION);
+	}
+
+	/*
+	 * Opens the journal of a world which has just been loaded from the given file, continuing it if
+	 * it applies to the file. Any edits in the journal are expected to have been replayed already.
+	 */
+	public static EditorWorldJournal open(File worldFile, EditorWorld world) throws IOException
+	{
+		File file = getJournalFile(worldFile);
+		byte[] journal = file.exists() ? Files.readAllBytes(file.toPath()) : new byte[0];
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+
+		if(isApplicable(journal, worldFile))
+		{
+			//Drop anything following the last complete record, so new records can be read back.
+			channel.truncate(readRecords(journal, new NullJournalVisitor()));
+			channel.position(channel.size());
+		} else
+			writeHeader(channel, worldFile.length(), worldFile.lastModified());
+
+		return new EditorWorldJournal(worldFile, world, channel);
+	}
+
+	/*
+	 * Starts a new journal for a world about to be saved to the given file. The journal does not
+	 * apply to the file until it is truncated after the save completes.
+	 */
+	public static EditorWorldJournal create(File worldFile, EditorWorld world) throws IOException
+	{
+		FileChannel channel = FileChannel.open(getJournalFile(worldFile).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		writeHeader(channel, -1, -1);
+
+		return new EditorWorldJournal(worldFile, world, channel);
+	}
+
+	/*
+	 * Visits the edits in the journal of the given world file, returning whether there were any. Records
+	 * are only visited once they have been read in full, so a record cut short is never visited.
+	 */
+	static boolean replay(File worldFile, IJournalVisitor visitor) throws IOException
+	{
+		File file = getJournalFile(worldFile);
+
+		if(!file.exists())
+			return false;
+
+		byte[] journal = Files.readAllBytes(file.toPath());
+
+		if(!isApplicable(journal, worldFile))
+			return false;
+
+		return readRecords(journal, visitor) > HEADER_LENGTH;
+	}
+
+	static boolean hasEdits(File worldFile) throws IOException
+	{
+		return replay(worldFile, new NullJournalVisitor());
+	}
+
+	public File getWorldFile()
+	{
+		return m_worldFile;
+	}
+
+	public synchronized void flush()
+	{
+		if(m_isFailed)
+			return;
+
+		try
+		{
+			writeChangedEntities();
+			m_data.flush();
+		} catch (IOException e)
+		{
+			fail(e);
+		}
+	}
+
+	/*
+	 * Marks the point at which a snapshot of the world is taken to be saved, returning the position
+	 * to truncate the journal to once the save has completed.
+	 */
+	public synchronized long checkpoint() throws IOException
+	{
+		writeChangedEntities();
+		m_data.flush();
+
+		//Entries declared before the checkpoint are discarded with it.
+		m_entryIds.clear();
+
+		return m_channel.position();
+	}
+
+	/*
+	 * Discards everything before the given checkpoint, once the snapshot taken there has been saved
+	 * to the world file. May be called from any thread.
+	 */
+	public synchronized void truncate(long checkpoint) throws IOException
+	{
+		m_data.flush();
+
+		ByteBuffer remaining = ByteBuffer.allocate((int)(m_channel.size() - checkpoint));
+
+		while(remaining.hasRemaining())
+		{
+			if(m_channel.read(remaining, checkpoint + remaining.position()) < 0)
+				throw new EOFException();
+		}
+
+		remaining.flip();
+
+		File replacement = new File(m_file.getPath() + ".tmp");
+
+		try (FileChannel channel = FileChannel.open(replacement.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			writeHeader(channel, m_worldFile.length(), m_worldFile.lastModified());
+
+			while(remaining.hasRemaining())
+				channel.write(remaining);
+		}
+
+		m_channel.close();
+		Files.move(replacement.toPath(), m_file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		FileChannel channel = FileChannel.open(m_file.toPath(), StandardOpenOption.WRITE);
+		channel.position(channel.size());
+		setChannel(channel);
+	}
+
+	//Stops recording edits and closes the journal, which is kept so that it can be replayed later.
+	public synchronized void close()
+	{
+		m_world.getObservers().remove(m_observer);
+		flush();
+
+		try
+		{
+			m_channel.close();
+		} catch (IOException e)
+		{
+			m_logger.error("Unable to close world journal.", e);
+		}
+	}
+
+	private void setChannel(FileChannel channel)
+	{
+		m_channel = channel;
+		m_data = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+	}
+
+	private void fail(IOException e)
+	{
+		m_isFailed = true;
+		m_logger.error("Unable to write to world journal, further edits will not be journaled.", e);
+	}
+
+	private synchronized void writeTile(Vector3F location, @Nullable EditorSceneArtifact tile) throws IOException
+	{
+		if(tile == null)
+		{
+			m_data.writeByte(TILE_CLEAR);
+			writeLocation(location);
+			return;
+		}
+
+		TilePalette.Entry entry = tile.getPaletteEntry();
+		Integer id = m_entryIds.get(entry);
+
+		if(id == null)
+		{
+			id = m_entryIds.size();
+			m_entryIds.put(entry, id);
+
+			m_data.writeByte(TILE_ENTRY);
+			EditorWorldBinaryWriter.writeVarInt(m_data, id);
+			m_data.writeUTF(entry.getModelName().toString());
+			m_data.writeByte(entry.getDirection().ordinal());
+			m_data.writeBoolean(entry.isTraversable());
+			m_data.writeBoolean(entry.isStatic());
+		}
+
+		m_data.writeByte(TILE_SET);
+		writeLocation(location);
+		EditorWorldBinaryWriter.writeVarInt(m_data, id);
+	}
+
+	private synchronized void writeLayer(int type, float z, float toZ) throws IOException
+	{
+		m_data.writeByte(type);
+		m_data.writeFloat(z);
+
+		if(type == LAYER_SHIFT)
+			m_data.writeFloat(toZ);
+	}
+
+	private synchronized void changeEntity(int index, EditorEntity entity)
+	{
+		m_changedEntities.put(entity, index);
+	}
+
+	//Written before entities are added or removed, which would otherwise change the indices they are written with.
+	private synchronized void writeChangedEntities() throws IOException
+	{
+		for(Map.Entry<EditorEntity, Integer> changed : m_changedEntities.entrySet())
+			writeEntity(ENTITY_CHANGE, changed.getValue(), changed.getKey());
+
+		m_changedEntities.clear();
+	}
+
+	private synchronized void writeEntity(int type, int index, @Nullable EditorEntity entity) throws IOException
+	{
+		if(type != ENTITY_CHANGE)
+			writeChangedEntities();
+
+		m_data.writeByte(type);
+
+		if(type != ENTITY_ADD)
+			EditorWorldBinaryWriter.writeVarInt(m_data, index);
+
+		if(entity != null)
+		{
+			byte[] declaration = m_encoder.encodeEntities(Collections.singletonList(entity.createImportDeclaration()));
+			m_data.writeInt(declaration.length);
+			m_data.write(declaration);
+		}
+	}
+
+	private synchronized void writeZone(int type, int index, @Nullable EditorZone zone) throws IOException
+	{
+		m_data.writeByte(type);
+
+		if(type != ZONE_ADD)
+			EditorWorldBinaryWriter.writeVarInt(m_data, index);
+
+		if(zone != null)
+		{
+			Rect3F region = zone.getRegion();
+
+			m_data.writeUTF(zone.getName());
+			m_data.writeFloat(region.x);
+			m_data.writeFloat(region.y);
+			m_data.writeFloat(region.z);
+			m_data.writeFloat(region.width);
+			m_data.writeFloat(region.height);
+			m_data.writeFloat(region.depth);
+		}
+	}
+
+	private void writeLocation(Vector3F location) throws IOException
+	{
+		m_data.writeFloat(location.x);
+		m_data.writeFloat(location.y);
+		m_data.writeFloat(location.z);
+	}
+
+	private static void writeHeader(FileChannel channel, long worldLength, long worldModified) throws IOException
+	{
+		ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+		header.putInt(MAGIC);
+		header.putLong(worldLength);
+		header.putLong(worldModified);
+		header.flip();
+
+		channel.truncate(0);
+		channel.position(0);
+
+		while(header.hasRemaining())
+			channel.write(header);
+	}
+
+	private static boolean isApplicable(byte[] journal, File worldFile)
+	{
+		if(journal.length < HEADER_LENGTH)
+			return false;
+
+		ByteBuffer header = ByteBuffer.wrap(journal);
+
+		return header.getInt() == MAGIC && header.getLong() == worldFile.length() && header.getLong() == worldFile.lastModified();
+	}
+
+	//Returns the length of the journal up to the end of its last complete record.
+	private static int readRecords(byte[] journal, IJournalVisitor visitor) throws IOException
+	{
+		ByteArrayInputStream source = new ByteArrayInputStream(journal, HEADER_LENGTH, journal.length - HEADER_LENGTH);
+		DataInputStream data = new DataInputStream(source);
+		HashMap<Integer, TilePalette.Entry> entries = new HashMap<>();
+
+		int end = HEADER_LENGTH;
+
+		try
+		{
+			while(source.available() > 0)
+			{
+				readRecord(data, entries, visitor);
+				end = journal.length - source.available();
+			}
+		} catch (EOFException e)
+		{
+			//The last record was cut short.
+		}
+
+		return end;
+	}
+
+	private static void readRecord(DataInputStream data, HashMap<Integer, TilePalette.Entry> entries, IJournalVisitor visitor) throws IOException
+	{
+		int type = data.readUnsignedByte();
+
+		switch(type)
+		{
+			case TILE_ENTRY:
+				int id = EditorWorldBinaryReader.readVarInt(data);
+
+				try
+				{
+					entries.put(id, new TilePalette.Entry(new URI(data.readUTF()), EditorWorldBinaryReader.readDirection(data), data.readBoolean(), data.readBoolean()));
+				} catch (URISyntaxException e)
+				{
+					throw new IOException("World journal contains a malformed model name.", e);
+				}
+				break;
+			case TILE_SET:
+				Vector3F location = readLocation(data);
+				TilePalette.Entry entry = entries.get(EditorWorldBinaryReader.readVarInt(data));
+
+				if(entry == null)
+					throw new IOException("World journal refers to an undeclared tile.");
+
+				visitor.tileSet(location, entry);
+				break;
+			case TILE_CLEAR:
+				visitor.tileCleared(readLocation(data));
+				break;
+			case LAYER_CLEAR:
+				visitor.layerCleared(data.readFloat());
+				break;
+			case LAYER_SHIFT:
+				visitor.layerShifted(data.readFloat(), data.readFloat());
+				break;
+			case ENTITY_ADD:
+				visitor.entityAdded(readEntity(data));
+				break;
+			case ENTITY_CHANGE:
+				visitor.entityChanged(EditorWorldBinaryReader.readVarInt(data), readEntity(data));
+				break;
+			case ENTITY_REMOVE:
+				visitor.entityRemoved(EditorWorldBinaryReader.readVarInt(data));
+				break;
+			case ZONE_ADD:
+				visitor.zoneAdded(readZone(data));
+				break;
+			case ZONE_CHANGE:
+				visitor.zoneChanged(EditorWorldBinaryReader.readVarInt(data), readZone(data));
+				break;
+			case ZONE_REMOVE:
+				visitor.zoneRemoved(EditorWorldBinaryReader.readVarInt(data));
+				break;
+			default:
+				throw new IOException("World journal contains an unrecognized record.");
+		}
+	}
+
+	private static Vector3F readLocation(DataInputStream data) throws IOException
+	{
+		return new Vector3F(data.readFloat(), data.readFloat(), data.readFloat());
+	}
+
+	private static EntityImportDeclaration readEntity(DataInputStream data) throws IOException
+	{
+		byte[] declaration = new byte[data.readInt()];
+		data.readFully(declaration);
+
+		List<EntityImportDeclaration> entities = new EditorWorldBinaryReader(new ByteArrayInputStream(declaration)).readEntities();
+
+		if(entities.size() != 1)
+			throw new IOException("World journal contains a malformed entity.");
+
+		return entities.get(0);
+	}
+
+	private static ZoneDeclaration readZone(DataInputStream data) throws IOException
+	{
+		ZoneDeclaration zone = new ZoneDeclaration();
+		zone.name = data.readUTF();
+		zone.region = new Rect3F(data.readFloat(), data.readFloat(), data.readFloat(),
+									data.readFloat(), data.readFloat(), data.readFloat());
+
+		return zone;
+	}
+
+	interface IJournalVisitor
+	{
+		void tileSet(Vector3F location, TilePalette.Entry entry) throws IOException;
+		void tileCleared(Vector3F location) throws IOException;
+		void layerCleared(float z) throws IOException;
+		void layerShifted(float fromZ, float toZ) throws IOException;
+		void entityAdded(EntityImportDeclaration entity) throws IOException;
+		void entityChanged(int index, EntityImportDeclaration entity) throws IOException;
+		void entityRemoved(int index) throws IOException;
+		void zoneAdded(ZoneDeclaration zone) throws IOException;
+		void zoneChanged(int index, ZoneDeclaration zone) throws IOException;
+		void zoneRemoved(int index) throws IOException;
+	}
+
+	private static class NullJournalVisitor implements IJournalVisitor
+	{
+		@Override
+		public void tileSet(Vector3F location, TilePalette.Entry entry) { }
+
+		@Override
+		public void tileCleared(Vector3F location) { }
+
+		@Override
+		public void layerCleared(float z) { }
+
+		@Override
+		public void layerShifted(float fromZ, float toZ) { }
+
+		@Override
+		public void entityAdded(EntityImportDeclaration entity) { }
+
+		@Override
+		public void entityChanged(int index, EntityImportDeclaration entity) { }
+
+		@Override
+		public void entityRemoved(int index) { }
+
+		@Override
+		public void zoneAdded(ZoneDeclaration zone) { }
+
+		@Override
+		public void zoneChanged(int index, ZoneDeclaration zone) { }
+
+		@Override
+		public void zoneRemoved(int index) { }
+	}
+
+	private final class JournalObserver implements EditorWorld.IEditObserver
+	{
+		@Override
+		public void tileChanged(Vector3F location, @Nullable EditorSceneArtifact tile)
+		{
+			if(m_isFailed)
+				return;
+
+			try
+			{
+				writeTile(location, tile);
+			} catch (IOException e)
+			{
+				fail(e);
+			}
+		}
+
+		@Override
+		public void layerCleared(float z)
+		{
+			if(m_isFailed)
+				return;
+
+			try
+			{
+				writeLayer(LAYER_CLEAR, z, 0);
+			} catch (IOException e)
+			{
+				fail(e);
+			}
+		}
+
+		@Override
+		public void layerShifted(float fromZ, float toZ)
+		{
+			if(m_isFailed)
+				return;
+
+			try
+			{
+				writeLayer(LAYER_SHIFT, fromZ, toZ);
+			} catch (IOException e)
+			{
+				fail(e);
+			}
+		}
+
+		@Override
+		public void entityAdded(EditorEntity entity)
+		{
+			writeEntityRecord(ENTITY_ADD, -1, entity);
+		}
+
+		@Override
+		public void entityChanged(int index, EditorEntity entity)
+		{
+			if(!m_isFailed)
+				changeEntity(index, entity);
+		}
+
+		@Override
+		public void entityRemoved(int index, EditorEntity entity)
+		{
+			writeEntityRecord(ENTITY_REMOVE, index, null);
+		}
+
+		@Override
+		public void zoneAdded(EditorZone zone)
+		{
+			writeZoneRecord(ZONE_ADD, -1, zone);
+		}
+
+		@Override
+		public void zoneChanged(int index, EditorZone zone)
+		{
+			writeZoneRecord(ZONE_CHANGE, index, zone);
+		}
+
+		@Override
+		public void zoneRemoved(int index, EditorZone zone)
+		{
+			writeZoneRecord(ZONE_REMOVE, index, null);
+		}
+
+		private void writeEntityRecord(int type, int index, @Nullable EditorEntity entity)
+		{
+			if(m_isFailed)
+				return;
+
+			try
+			{
+				writeEntity(type, index, entity);
+			} catch (IOException e)
+			{
+				fail(e);
+			}
+		}
+
+		private void writeZoneRecord(int type, int index, @Nullable EditorZone zone)
+		{
+			if(m_isFailed)
+				return;
+
+			try
+			{
+				writeZone(type, index, zone);
+			} catch (IOException e)
+			{
+				fail(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,395 @@
+/*
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.worldbuilder.world;
+
+import io.github.jevaengine.builder.worldbuilder.world.IWorldWriteMonitor.NullWorldWriteMonitor;
+import io.github.jevaengine.config.NoSuchChildVariableException;
+import io.github.jevaengine.config.ValueSerializationException;
+import io.github.jevaengine.config.json.JsonVariable;
+import io.github.jevaengine.math.Rect3F;
+import io.github.jevaengine.math.Vector3F;
+import io.github.jevaengine.util.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes an EditorWorldSnapshot in the same JSON schema as a serialized WorldConfiguration, without
+ * building the configuration or its JsonVariable tree.
+ *
+ * Members of the world other than its artifact imports are serialized through JsonVariable as they were
+ * before, while the artifact imports are streamed to the output with a JsonStreamWriter under the member
+ * names of the engine's WorldConfiguration. The locations of each artifact are written as they are visited,
+ * in a pass over the tiles per palette entry, so nothing proportional to the size of the world is built.
+ *
+ * Worlds are written in the engine's schema, with every location listed in the artifact imports. When
+ * writing regions, which is only done for worlds saved with the editor's REGION_FILE_EXTENSION, rectangles
+ * of cells holding the same artifact on the same layer are instead written once to an additional
+ * ARTIFACT_REGIONS section (see SceneArtifactRegionDeclaration) and left out of that artifact's locations.
+ * The engine does not know of the section, so such worlds can only be loaded by the editor.
+ */
+public final class EditorWorldJsonWriter
+{
+	//Members of WorldConfiguration, SceneArtifactImportDeclaration and Vector3F, as they are serialized by the engine.
+	private static final String ARTIFACT_IMPORTS = "artifactImports";
+	private static final String LOCATIONS = "locations";
+	private static final String X = "x";
+	private static final String Y = "y";
+	private static final String Z = "z";
+
+	public static final String ARTIFACT_REGIONS = "artifactRegions";
+	public static final String REGION_FILE_EXTENSION = ".jmpr";
+
+	//A region is written as about twice the text of a single location, so smaller rectangles are not worth it.
+	private static final int MIN_REGION_CELLS = 4;
+
+	private final ByteArrayOutputStream m_buffer = new ByteArrayOutputStream();
+	private final boolean m_writesRegions;
+
+	public EditorWorldJsonWriter()
+	{
+		this(false);
+	}
+
+	public EditorWorldJsonWriter(boolean writesRegions)
+	{
+		m_writesRegions = writesRegions;
+	}
+
+	public static boolean isRegionWorld(String path)
+	{
+		return path.toLowerCase().endsWith(REGION_FILE_EXTENSION);
+	}
+
+	public void write(EditorWorldSnapshot snapshot, OutputStream out) throws IOException, ValueSerializationException
+	{
+		write(snapshot, out, new NullWorldWriteMonitor());
+	}
+
+	public void write(EditorWorldSnapshot snapshot, OutputStream out, IWorldWriteMonitor monitor) throws IOException, ValueSerializationException
+	{
+		JsonStreamWriter json = new JsonStreamWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+
+		JsonVariable world = toVariable(snapshot.createEnvelope());
+
+		json.beginObject();
+
+		for(String name : world.getChildren())
+		{
+			if(name.equals(ARTIFACT_IMPORTS))
+				continue;
+
+			json.name(name);
+			json.rawValue(serializeChild(world, name));
+		}
+
+		json.name(ARTIFACT_IMPORTS);
+		List<SceneArtifactRegionDeclaration> regions = writeArtifactImports(snapshot, json, monitor);
+
+		if(!regions.isEmpty())
+		{
+			json.name(ARTIFACT_REGIONS);
+			json.rawValue(serialize(toVariable(regions.toArray(new SceneArtifactRegionDeclaration[regions.size()]))));
+		}
+
+		json.endObject();
+		json.flush();
+	}
+
+	private List<SceneArtifactRegionDeclaration> writeArtifactImports(EditorWorldSnapshot snapshot, JsonStreamWriter json, IWorldWriteMonitor monitor) throws IOException, ValueSerializationException
+	{
+		monitor.statusChanged(0, "Counting tiles");
+
+		TilePalette.Entry[] palette = snapshot.getPaletteEntries();
+		final int[] counts = new int[palette.length];
+
+		snapshot.visitTiles(new TileGrid.ICellVisitor() {
+			@Override
+			public void visit(float x, float y, float z, int id)
+			{
+				counts[id]++;
+			}
+		});
+
+		int total = 0;
+
+		for(int count : counts)
+			total += count;
+
+		ArrayList<SceneArtifactRegionDeclaration> regionDeclarations = new ArrayList<>();
+		int imported = 0;
+
+		json.beginArray();
+		int written = 0;
+
+		for(int id = 0; id < counts.length; id++)
+		{
+			if(counts[id] == 0)
+				continue;
+
+			monitor.statusChanged(0.1F + 0.9F * written / Math.max(1, total), "Writing tiles");
+			written += counts[id];
+
+			ArrayList<Rect3F> regions = new ArrayList<>();
+			writeArtifactImport(snapshot, palette[id], regions, json);
+
+			if(!regions.isEmpty())
+			{
+				SceneArtifactRegionDeclaration regionDecl = new SceneArtifactRegionDeclaration();
+				regionDecl.artifact = imported;
+				regionDecl.regions = regions.toArray(new Rect3F[regions.size()]);
+				regionDeclarations.add(regionDecl);
+			}
+
+			imported++;
+		}
+
+		json.endArray();
+
+		return regionDeclarations;
+	}
+
+	private void writeArtifactImport(EditorWorldSnapshot snapshot, TilePalette.Entry entry, List<Rect3F> regions, JsonStreamWriter json) throws IOException, ValueSerializationException
+	{
+		JsonVariable declaration = toVariable(EditorWorldSnapshot.createArtifactDeclaration(entry, new Vector3F[0]));
+
+		json.beginObject();
+
+		for(String name : declaration.getChildren())
+		{
+			if(name.equals(LOCATIONS))
+				continue;
+
+			json.name(name);
+			json.rawValue(serializeChild(declaration, name));
+		}
+
+		json.name(LOCATIONS);
+		json.beginArray();
+
+		LocationWriter locations = new LocationWriter(entry.getId(), m_writesRegions, json);
+		snapshot.visitTiles(locations);
+		locations.rethrow();
+
+		if(m_writesRegions)
+			extractRegions(locations.getLayers(), regions, json);
+
+		json.endArray();
+		json.endObject();
+	}
+
+	private static void writeLocation(float x, float y, float z, JsonStreamWriter json) throws IOException
+	{
+		json.beginInlineObject();
+		json.name(X);
+		json.value(x);
+		json.name(Y);
+		json.value(y);
+		json.name(Z);
+		json.value(z);
+		json.endObject();
+	}
+
+	/*
+	 * Covers the on grid cells of each layer with rectangles, grown right and then down from the upper
+	 * left most cell not yet covered. The cells of rectangles too small to be worth writing as a region are
+	 * written as individual locations.
+	 */
+	private static void extractRegions(TreeMap<Integer, HashSet<Long>> layers, List<Rect3F> regions, JsonStreamWriter json) throws IOException
+	{
+		for(Map.Entry<Integer, HashSet<Long>> layer : layers.entrySet())
+		{
+			float z = TileGrid.dequantize(layer.getKey());
+			HashSet<Long> cells = layer.getValue();
+
+			long[] order = new long[cells.size()];
+			int count = 0;
+
+			for(Long key : cells)
+				order[count++] = key;
+
+			Arrays.sort(order);
+
+			for(long key : order)
+			{
+				if(!cells.contains(key))
+					continue;
+
+				int x = getCellX(key);
+				int y = getCellY(key);
+
+				int width = 1;
+
+				while(cells.contains(getCellKey(x + width, y)))
+					width++;
+
+				int height = 1;
+
+				while(isRowCovered(cells, x, y + height, width))
+					height++;
+
+				if(width * height < MIN_REGION_CELLS)
+				{
+					cells.remove(key);
+					writeLocation(x, y, z, json);
+					continue;
+				}
+
+				for(int cellY = y; cellY < y + height; cellY++)
+				{
+					for(int cellX = x; cellX < x + width; cellX++)
+						cells.remove(getCellKey(cellX, cellY));
+				}
+
+				regions.add(new Rect3F(x, y, z, width, height, 0));
+			}
+		}
+	}
+
+	private static boolean isRowCovered(HashSet<Long> cells, int x, int y, int width)
+	{
+		for(int cellX = x; cellX < x + width; cellX++)
+		{
+			if(!cells.contains(getCellKey(cellX, y)))
+				return false;
+		}
+
+		return true;
+	}
+
+	//Keys order cells by row and then by column.
+	private static long getCellKey(int x, int y)
+	{
+		return ((long)y << 32) | ((x ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+	}
+
+	private static int getCellX(long key)
+	{
+		return (int)key ^ Integer.MIN_VALUE;
+	}
+
+	private static int getCellY(long key)
+	{
+		return (int)(key >> 32);
+	}
+
+	private static JsonVariable toVariable(Object value) throws ValueSerializationException
+	{
+		JsonVariable var = new JsonVariable();
+		var.setValue(value);
+
+		return var;
+	}
+
+	private String serialize(JsonVariable var) throws IOException
+	{
+		m_buffer.reset();
+		var.serialize(m_buffer, true);
+
+		return new String(m_buffer.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private String serializeChild(JsonVariable parent, String name) throws IOException, ValueSerializationException
+	{
+		try
+		{
+			return serialize(parent.getChild(name));
+		} catch (NoSuchChildVariableException e)
+		{
+			throw new ValueSerializationException(e);
+		}
+	}
+
+	/*
+	 * Writes the locations of the cells holding one palette id as they are visited. When writing regions, on
+	 * grid cells are instead gathered by layer for extractRegions. The first failure to write is kept, as the
+	 * visitor cannot throw it, and rethrown once the visit is complete.
+	 */
+	private static final class LocationWriter implements TileGrid.ICellVisitor
+	{
+		private final int m_id;
+		private final JsonStreamWriter m_json;
+		private final TreeMap<Integer, HashSet<Long>> m_layers = new TreeMap<>();
+		private final boolean m_gathersCells;
+
+		@Nullable
+		private IOException m_error;
+
+		public LocationWriter(int id, boolean gathersCells, JsonStreamWriter json)
+		{
+			m_id = id;
+			m_gathersCells = gathersCells;
+			m_json = json;
+		}
+
+		public TreeMap<Integer, HashSet<Long>> getLayers()
+		{
+			return m_layers;
+		}
+
+		public void rethrow() throws IOException
+		{
+			if(m_error != null)
+				throw m_error;
+		}
+
+		@Override
+		public void visit(float x, float y, float z, int id)
+		{
+			if(id != m_id || m_error != null)
+				return;
+
+			int quantaPerUnit = TileGrid.quantize(1);
+			int quantizedX = TileGrid.quantize(x);
+			int quantizedY = TileGrid.quantize(y);
+
+			if(m_gathersCells && quantizedX % quantaPerUnit == 0 && quantizedY % quantaPerUnit == 0)
+			{
+				HashSet<Long> cells = m_layers.get(TileGrid.quantize(z));
+
+				if(cells == null)
+				{
+					cells = new HashSet<>();
+					m_layers.put(TileGrid.quantize(z), cells);
+				}
+
+				cells.add(getCellKey(quantizedX / quantaPerUnit, quantizedY / quantaPerUnit));
+				return;
+			}
+
+			try
+			{
+				writeLocation(x, y, z, m_json);
+			} catch (IOException e)
+			{
+				m_error = e;
+			}
+		}
+	}
+}
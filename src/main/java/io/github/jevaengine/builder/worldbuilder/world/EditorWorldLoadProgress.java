@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.worldbuilder.world;
+
+/**
+ * Progress of a world which was opened before its content was loaded (see EditorWorld#isLoading). Until the
+ * loader has read the content, only the status of the loader is known. Each section is then complete once
+ * all of it has been placed into the world.
+ */
+public final class EditorWorldLoadProgress
+{
+	private final String m_status;
+	private final boolean m_isRead;
+	private final float m_tiles;
+	private final float m_entities;
+	private final float m_zones;
+
+	EditorWorldLoadProgress(String status)
+	{
+		m_status = status;
+		m_isRead = false;
+		m_tiles = m_entities = m_zones = 0;
+	}
+
+	EditorWorldLoadProgress(float tiles, float entities, float zones)
+	{
+		m_status = "";
+		m_isRead = true;
+		m_tiles = tiles;
+		m_entities = entities;
+		m_zones = zones;
+	}
+
+	public String getStatus()
+	{
+		return m_status;
+	}
+
+	public boolean isRead()
+	{
+		return m_isRead;
+	}
+
+	public float getTileProgress()
+	{
+		return m_tiles;
+	}
+
+	public float getEntityProgress()
+	{
+		return m_entities;
+	}
+
+	public float getZoneProgress()
+	{
+		return m_zones;
+	}
+
+	@Override
+	public String toString()
+	{
+		if(!m_isRead)
+			return String.format("Loading: %s", m_status);
+
+		return String.format("Loading: Tiles %d%%, Entities %d%%, Zones %d%%",
+								Math.round(m_tiles * 100), Math.round(m_entities * 100), Math.round(m_zones * 100));
+	}
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.worldbuilder.world;
+
+import io.github.jevaengine.math.Vector3F;
+import io.github.jevaengine.util.Nullable;
+import io.github.jevaengine.world.DefaultWorldFactory.WorldConfiguration;
+import io.github.jevaengine.world.DefaultWorldFactory.WorldConfiguration.EntityImportDeclaration;
+import io.github.jevaengine.world.DefaultWorldFactory.WorldConfiguration.SceneArtifactImportDeclaration;
+import io.github.jevaengine.world.DefaultWorldFactory.WorldConfiguration.ZoneDeclaration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable view of an EditorWorld at the moment it was taken.
+ *
+ * Tiles are structurally shared with the live world (see TileGrid), entities and zones are captured
+ * as their declarations. A snapshot must be taken on the thread editing the world, after which it
+ * can be read from any thread while editing continues. Tiles of chunks deferred by a mapped world are
+ * visited as they are read from the mapping.
+ */
+public final class EditorWorldSnapshot
+{
+	private final TileGrid m_tiles;
+	private final DeferredChunks m_deferredChunks;
+	private final TilePalette.Entry[] m_palette;
+	private final int m_paletteSize;
+
+	private final List<EntityImportDeclaration> m_entities;
+	private final List<ZoneDeclaration> m_zones;
+
+	@Nullable
+	private final String m_weather;
+	private final float m_friction;
+	private final float m_metersPerUnit;
+	private final float m_logicPerUnit;
+	private final int m_worldWidth;
+	private final int m_worldHeight;
+	private final String m_script;
+
+	EditorWorldSnapshot(TileGrid tiles, DeferredChunks deferredChunks, TilePalette palette, List<EntityImportDeclaration> entities, List<ZoneDeclaration> zones,
+						@Nullable String weather, float friction, float metersPerUnit, float logicPerUnit,
+						int worldWidth, int worldHeight, String script)
+	{
+		m_tiles = tiles;
+		m_deferredChunks = deferredChunks;
+		m_palette = palette.getEntries();
+		m_paletteSize = palette.size();
+		m_entities = Collections.unmodifiableList(entities);
+		m_zones = Collections.unmodifiableList(zones);
+		m_weather = weather;
+		m_friction = friction;
+		m_metersPerUnit = metersPerUnit;
+		m_logicPerUnit = logicPerUnit;
+		m_worldWidth = worldWidth;
+		m_worldHeight = worldHeight;
+		m_script = script;
+	}
+
+	//Tiles of deferred chunks are not counted.
+	public int getTileCount()
+	{
+		return m_tiles.size();
+	}
+
+	//Cells are visited with the palette id of their tile, which indexes getPaletteEntries.
+	void visitTiles(TileGrid.ICellVisitor visitor)
+	{
+		m_tiles.visit(visitor);
+		m_deferredChunks.visit(visitor);
+	}
+
+	public List<Float> getLayers()
+	{
+		List<Float> layers = m_tiles.getLayers();
+
+		for(Float z : m_deferredChunks.getLayers())
+		{
+			if(!layers.contains(z))
+				layers.add(z);
+		}
+
+		return layers;
+	}
+
+	void visitLayer(float z, TileGrid.ICellVisitor visitor)
+	{
+		m_tiles.visitLayer(z, visitor);
+		m_deferredChunks.visitLayer(z, visitor);
+	}
+
+	public List<EntityImportDeclaration> getEntities()
+	{
+		return m_entities;
+	}
+
+	public List<ZoneDeclaration> getZones()
+	{
+		return m_zones;
+	}
+
+	@Nullable
+	public String getWeather()
+	{
+		return m_weather;
+	}
+
+	public float getFriction()
+	{
+		return m_friction;
+	}
+
+	public float getMetersPerUnit()
+	{
+		return m_metersPerUnit;
+	}
+
+	public float getLogicPerUnit()
+	{
+		return m_logicPerUnit;
+	}
+
+	public int getWorldWidth()
+	{
+		return m_worldWidth;
+	}
+
+	public int getWorldHeight()
+	{
+		return m_worldHeight;
+	}
+
+	public String getScript()
+	{
+		return m_script;
+	}
+
+	TileGrid getTiles()
+	{
+		return m_tiles;
+	}
+
+	DeferredChunks getDeferredChunks()
+	{
+		return m_deferredChunks;
+	}
+
+	//Entries are indexed by their palette id, unused ids are null.
+	TilePalette.Entry[] getPaletteEntries()
+	{
+		return m_palette;
+	}
+
+	static SceneArtifactImportDeclaration createArtifactDeclaration(TilePalette.Entry entry, Vector3F[] locations)
+	{
+		SceneArtifactImportDeclaration decl = new SceneArtifactImportDeclaration();
+
+		decl.direction = entry.getDirection();
+		decl.isTraversable = entry.isTraversable();
+		decl.model = entry.getModelName().toString();
+		decl.locations = locations;
+		decl.isStatic = entry.isStatic();
+
+		return decl;
+	}
+
+	private void serializeTiledLayers(WorldConfiguration hostConfiguration)
+	{
+		final List<List<Vector3F>> importedArtifacts = new ArrayList<>(Collections.<List<Vector3F>>nCopies(m_palette.length, null));
+
+		visitTiles(new TileGrid.ICellVisitor() {
+			@Override
+			public void visit(float x, float y, float z, int id)
+			{
+				if(importedArtifacts.get(id) == null)
+					importedArtifacts.set(id, new ArrayList<Vector3F>());
+
+				importedArtifacts.get(id).add(new Vector3F(x, y, z));
+			}
+		});
+
+		ArrayList<SceneArtifactImportDeclaration> declarations = new ArrayList<>(m_paletteSize);
+
+		for(int id = 0; id < importedArtifacts.size(); id++)
+		{
+			List<Vector3F> locations = importedArtifacts.get(id);
+
+			if(locations == null)
+				continue;
+
+			declarations.add(createArtifactDeclaration(m_palette[id], locations.toArray(new Vector3F[locations.size()])));
+		}
+
+		hostConfiguration.artifactImports = declarations.toArray(new SceneArtifactImportDeclaration[declarations.size()]);
+	}
+
+	//Creates the configuration of everything but the tiles, which are left for the caller to declare.
+	WorldConfiguration createEnvelope()
+	{
+		WorldConfiguration configuration = new WorldConfiguration();
+
+		configuration.weather = m_weather;
+		configuration.friction = m_friction;
+		configuration.metersPerUnit = m_metersPerUnit;
+		configuration.logicPerUnit = m_logicPerUnit;
+		configuration.worldWidth = m_worldWidth;
+		configuration.worldHeight = m_worldHeight;
+
+		if(!m_script.isEmpty())
+			configuration.script = m_script;
+
+		configuration.entities = m_entities.toArray(new EntityImportDeclaration[m_entities.size()]);
+		configuration.zones = m_zones.toArray(new ZoneDeclaration[m_zones.size()]);
+		configuration.artifactImports = new SceneArtifactImportDeclaration[0];
+
+		return configuration;
+	}
+
+	public WorldConfiguration createWorldConfiguration()
+	{
+		WorldConfiguration configuration = createEnvelope();
+		serializeTiledLayers(configuration);
+
+		return configuration;
+	}
+}
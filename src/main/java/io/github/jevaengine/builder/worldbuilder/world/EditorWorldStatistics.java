@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.worldbuilder.world;
+
+/**
+ * Counts and estimated retained sizes of the structures making up an EditorWorld.
+ *
+ * Sizes are estimates for a 64 bit JVM with compressed references; they are meant to show how a
+ * world grows, not to account for every byte.
+ */
+public final class EditorWorldStatistics
+{
+	static final int OBJECT_HEADER = 16;
+	static final int ARRAY_HEADER = 16;
+	static final int REFERENCE = 4;
+
+	//EditorSceneArtifact with its dummy entity and physics body, the name and entity bridge being created on request.
+	static final int TILE_OBJECT = 128;
+	static final int PALETTE_ENTRY = 64;
+
+	private final int m_tileCount;
+	private final int m_layerCount;
+	private final int m_chunkCount;
+	private final int m_distinctArtifacts;
+	private final int m_sharedModels;
+	private final int m_updatedModels;
+	private final int m_entityCount;
+	private final int m_zoneCount;
+	private final int m_registeredEntities;
+
+	private final long m_tileGridBytes;
+	private final long m_tileBytes;
+	private final long m_paletteBytes;
+	private final long m_indexBytes;
+
+	EditorWorldStatistics(int tileCount, int layerCount, int chunkCount, int distinctArtifacts,
+							int sharedModels, int updatedModels, int entityCount, int zoneCount, int registeredEntities,
+							long tileGridBytes, long tileBytes, long paletteBytes, long indexBytes)
+	{
+		m_tileCount = tileCount;
+		m_layerCount = layerCount;
+		m_chunkCount = chunkCount;
+		m_distinctArtifacts = distinctArtifacts;
+		m_sharedModels = sharedModels;
+		m_updatedModels = updatedModels;
+		m_entityCount = entityCount;
+		m_zoneCount = zoneCount;
+		m_registeredEntities = registeredEntities;
+		m_tileGridBytes = tileGridBytes;
+		m_tileBytes = tileBytes;
+		m_paletteBytes = paletteBytes;
+		m_indexBytes = indexBytes;
+	}
+
+	public int getTileCount()
+	{
+		return m_tileCount;
+	}
+
+	public int getLayerCount()
+	{
+		return m_layerCount;
+	}
+
+	public int getChunkCount()
+	{
+		return m_chunkCount;
+	}
+
+	public int getDistinctArtifactCount()
+	{
+		return m_distinctArtifacts;
+	}
+
+	public int getSharedModelCount()
+	{
+		return m_sharedModels;
+	}
+
+	public int getUpdatedModelCount()
+	{
+		return m_updatedModels;
+	}
+
+	public int getEntityCount()
+	{
+		return m_entityCount;
+	}
+
+	public int getZoneCount()
+	{
+		return m_zoneCount;
+	}
+
+	//All entities registered with the underlying World, including the dummy entities of tiles and zones.
+	public int getRegisteredEntityCount()
+	{
+		return m_registeredEntities;
+	}
+
+	public long getTileGridBytes()
+	{
+		return m_tileGridBytes;
+	}
+
+	//Only the cells near the visible bounds have a tile, every other cell is accounted for by the grid.
+	public long getTileBytes()
+	{
+		return m_tileBytes;
+	}
+
+	public long getPaletteBytes()
+	{
+		return m_paletteBytes;
+	}
+
+	public long getIndexBytes()
+	{
+		return m_indexBytes;
+	}
+
+	public long getEstimatedBytes()
+	{
+		return m_tileGridBytes + m_tileBytes + m_paletteBytes + m_indexBytes;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("Tiles: %d (%d layers, %d chunks); Artifacts: %d; Models: %d (%d updated); Entities: %d; Zones: %d; World Entities: %d; ~%.1f MB",
+								m_tileCount, m_layerCount, m_chunkCount, m_distinctArtifacts, m_sharedModels, m_updatedModels,
+								m_entityCount, m_zoneCount, m_registeredEntities, getEstimatedBytes() / (1024.0 * 1024.0));
+	}
+}
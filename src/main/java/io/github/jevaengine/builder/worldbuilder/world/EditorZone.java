@@ -25,6 +25,7 @@ import io.github.jevaengine.graphics.NullFont;
 import io.github.jevaengine.math.*;
 import io.github.jevaengine.util.IObserverRegistry;
 import io.github.jevaengine.util.NullObservers;
+import io.github.jevaengine.util.Observers;
 import io.github.jevaengine.world.DefaultWorldFactory.WorldConfiguration.ZoneDeclaration;
 import io.github.jevaengine.world.Direction;
 import io.github.jevaengine.world.World;
@@ -58,6 +59,8 @@ public final class EditorZone
 	
 	private IFont m_font;
 	
+	private final Observers m_observers = new Observers();
+	
 	public EditorZone(IFontFactory fontFactory, String name)
 	{
 		m_font = new NullFont();
@@ -77,6 +80,7 @@ public final class EditorZone
 	public void setName(String name)
 	{
 		m_name = name;
+		m_observers.raise(IEditorZoneObserver.class).nameChanged(this);
 	}
 
 	public String getName()
@@ -84,6 +88,15 @@ public final class EditorZone
 		return m_name;
 	}
 	
+	/*
+	 * Observers are notified of changes made through this EditorZone, which is how the
+	 * EditorWorld keeps its indices current.
+	 */
+	public IObserverRegistry getObservers()
+	{
+		return m_observers;
+	}
+	
 	public Rect3F getBounds()
 	{
 		return new Rect3F(m_bounds);
@@ -92,6 +105,12 @@ public final class EditorZone
 	public void setBounds(Rect3F bounds)
 	{
 		m_bounds = new Rect3F(bounds);
+		m_observers.raise(IEditorZoneObserver.class).regionChanged(this);
+	}
+	
+	public Rect3F getRegion()
+	{
+		return new Rect3F(getLocation(), m_bounds.width, m_bounds.height, m_bounds.depth);
 	}
 
 	public Vector3F getLocation()
@@ -102,6 +121,7 @@ public final class EditorZone
 	public void setLocation(Vector3F location)
 	{
 		m_dummy.getBody().setLocation(location);
+		m_observers.raise(IEditorZoneObserver.class).regionChanged(this);
 	}
 
 	public DummyZone getEntity()
@@ -113,7 +133,7 @@ public final class EditorZone
 	{
 		ZoneDeclaration zoneDecl = new ZoneDeclaration();
 		zoneDecl.name = m_name;
-		zoneDecl.region = new Rect3F(getLocation(), m_bounds.width, m_bounds.height, m_bounds.depth);
+		zoneDecl.region = getRegion();
 		return zoneDecl;
 	}
 	
@@ -123,6 +143,12 @@ public final class EditorZone
 		return "Zone: " + getName();
 	}
 	
+	public interface IEditorZoneObserver
+	{
+		void regionChanged(EditorZone zone);
+		void nameChanged(EditorZone zone);
+	}
+	
 	public class DummyZone implements IEntity
 	{
 		private final IPhysicsBody m_body = new NonparticipantPhysicsBody(this);
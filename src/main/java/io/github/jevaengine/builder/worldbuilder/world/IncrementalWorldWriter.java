@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.worldbuilder.world;
+
+import io.github.jevaengine.builder.worldbuilder.world.IWorldWriteMonitor.NullWorldWriteMonitor;
+import io.github.jevaengine.util.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Saves successive snapshots of a world to the same binary world file, appending a delta record with
+ * only the chunks, entities and zones which changed since the last save rather than rewriting the world.
+ *
+ * Chunks are detected as changed by comparing them against those of the last saved snapshot, which the
+ * tile grid shares with later snapshots until they are modified. Entities and zones are compared by their
+ * encoded sections. The file is compacted into a full world once too many deltas have been appended, or
+ * once they have grown large in proportion to the world they apply to.
+ *
+ * A world still reading from the file may have it mapped, and a mapped file can be renamed but neither
+ * replaced nor deleted on Windows until the mapping is released. The compacted world is therefore written
+ * under a new name and switched to by first moving the old file aside, rather than moved over it. Files
+ * moved aside are deleted once they can be, and a world lost between the two moves is restored by
+ * recover.
+ */
+public final class IncrementalWorldWriter
+{
+	private static final int MAX_DELTAS = 16;
+	private static final float MAX_DELTA_RATIO = 0.5F;
+
+	private final File m_file;
+	private final EditorWorldBinaryWriter m_writer = new EditorWorldBinaryWriter();
+
+	@Nullable
+	private EditorWorldSnapshot m_lastSaved;
+
+	private byte[] m_lastEntities;
+	private byte[] m_lastZones;
+
+	private int m_deltaCount = 0;
+	private long m_baseLength = 0;
+	private long m_length = 0;
+
+	private final List<Path> m_retiredFiles = new ArrayList<>();
+
+	public IncrementalWorldWriter(File file)
+	{
+		m_file = file;
+	}
+
+	public File getFile()
+	{
+		return m_file;
+	}
+
+	/*
+	 * Restores the given world file if a crash while compacting it left it moved aside without the compacted
+	 * world in its place. The newest file moved aside is moved back, keeping the length and modification time
+	 * any journal of the world was written against. Does nothing if the file exists.
+	 */
+	public static void recover(File file) throws IOException
+	{
+		if(file.exists())
+			return;
+
+		final String prefix = file.getName() + ".";
+		File[] retired = file.getAbsoluteFile().getParentFile().listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File directory, String name)
+			{
+				return name.startsWith(prefix) && name.endsWith(".old");
+			}
+		});
+
+		if(retired == null || retired.length == 0)
+			return;
+
+		File newest = retired[0];
+
+		for(File f : retired)
+		{
+			if(f.lastModified() > newest.lastModified())
+				newest = f;
+		}
+
+		Files.move(newest.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		Files.deleteIfExists(new File(file.getPath() + ".tmp").toPath());
+	}
+
+	public void save(EditorWorldSnapshot snapshot) throws IOException
+	{
+		save(snapshot, new NullWorldWriteMonitor());
+	}
+
+	public void save(EditorWorldSnapshot snapshot, IWorldWriteMonitor monitor) throws IOException
+	{
+		byte[] entities = m_writer.encodeEntities(snapshot.getEntities());
+		byte[] zones = m_writer.encodeZones(snapshot.getZones());
+
+		if(requiresCompaction())
+			compact(snapshot, monitor);
+		else
+		{
+			try (OutputStream out = new BufferedOutputStream(new FileOutputStream(m_file, true)))
+			{
+				m_writer.writeDelta(m_lastSaved, snapshot,
+									Arrays.equals(entities, m_lastEntities) ? null : entities,
+									Arrays.equals(zones, m_lastZones) ? null : zones, out, monitor);
+			}
+
+			m_deltaCount++;
+		}
+
+		m_lastSaved = snapshot;
+		m_lastEntities = entities;
+		m_lastZones = zones;
+		m_length = m_file.length();
+
+		deleteRetiredFiles();
+	}
+
+	private void compact(EditorWorldSnapshot snapshot, IWorldWriteMonitor monitor) throws IOException
+	{
+		Path file = m_file.toPath();
+		File replacement = new File(m_file.getPath() + ".tmp");
+
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(replacement)))
+		{
+			m_writer.write(snapshot, out, monitor);
+		}
+
+		if(Files.exists(file))
+		{
+			Path retired = Files.createTempFile(file.toAbsolutePath().getParent(), m_file.getName() + ".", ".old");
+			Files.move(file, retired, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			retired.toFile().deleteOnExit();
+			m_retiredFiles.add(retired);
+		}
+
+		Files.move(replacement.toPath(), file, StandardCopyOption.ATOMIC_MOVE);
+
+		m_deltaCount = 0;
+		m_baseLength = m_file.length();
+	}
+
+	private void deleteRetiredFiles()
+	{
+		for(Iterator<Path> it = m_retiredFiles.iterator(); it.hasNext();)
+		{
+			Path retired = it.next();
+
+			try
+			{
+				Files.deleteIfExists(retired);
+				it.remove();
+			} catch (IOException e)
+			{
+				//The file is still mapped, deletion is retried on a later save and when the editor exits.
+			}
+		}
+	}
+
+	private boolean requiresCompaction()
+	{
+		//Anything else may have written to the file since it was last saved.
+		if(m_lastSaved == null || m_file.length() != m_length)
+			return true;
+
+		return m_deltaCount >= MAX_DELTAS || m_length - m_baseLength > m_baseLength * MAX_DELTA_RATIO;
+	}
+}
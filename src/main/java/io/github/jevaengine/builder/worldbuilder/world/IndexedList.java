@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.worldbuilder.world;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+/*
+ * A list of distinct items, kept in the order they were added, which looks up the index of an item by its
+ * identity rather than by searching the list. Only removal renumbers the items after the one removed.
+ */
+final class IndexedList<T> extends AbstractList<T>
+{
+	private final ArrayList<T> m_items = new ArrayList<>();
+	private final IdentityHashMap<T, Integer> m_indices = new IdentityHashMap<>();
+	
+	@Override
+	public T get(int index)
+	{
+		return m_items.get(index);
+	}
+	
+	@Override
+	public int size()
+	{
+		return m_items.size();
+	}
+	
+	@Override
+	public boolean add(T item)
+	{
+		if(m_indices.containsKey(item))
+			return false;
+		
+		m_indices.put(item, m_items.size());
+		m_items.add(item);
+		
+		return true;
+	}
+	
+	@Override
+	public int indexOf(Object item)
+	{
+		Integer index = m_indices.get(item);
+		
+		return index == null ? -1 : index;
+	}
+	
+	@Override
+	public boolean contains(Object item)
+	{
+		return m_indices.containsKey(item);
+	}
+	
+	@Override
+	public boolean remove(Object item)
+	{
+		Integer index = m_indices.remove(item);
+		
+		if(index == null)
+			return false;
+		
+		m_items.remove((int)index);
+		
+		for(int i = index; i < m_items.size(); i++)
+			m_indices.put(m_items.get(i), i);
+		
+		return true;
+	}
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.worldbuilder.world;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+
+/*
+ * Writes indented JSON to a stream one token at a time. Values already serialized to JSON may be written
+ * whole with rawValue, and are indented to the depth they are written at.
+ */
+final class JsonStreamWriter
+{
+	private static final String INDENT = "\t";
+
+	private final Writer m_writer;
+	private final ArrayDeque<Scope> m_scopes = new ArrayDeque<>();
+
+	private boolean m_isNamed = false;
+
+	public JsonStreamWriter(Writer writer)
+	{
+		m_writer = writer;
+	}
+
+	public void beginObject() throws IOException
+	{
+		begin('{', false);
+	}
+
+	//Writes the object on a single line, as is done for each of the many locations of an artifact.
+	public void beginInlineObject() throws IOException
+	{
+		begin('{', true);
+	}
+
+	public void endObject() throws IOException
+	{
+		end('}');
+	}
+
+	public void beginArray() throws IOException
+	{
+		begin('[', false);
+	}
+
+	public void endArray() throws IOException
+	{
+		end(']');
+	}
+
+	public void name(String name) throws IOException
+	{
+		if(m_isNamed || m_scopes.isEmpty() || !m_scopes.peek().isObject)
+			throw new IllegalStateException("A name may only be written for a member of an object.");
+
+		beginElement();
+		writeString(name);
+		m_writer.write(": ");
+		m_isNamed = true;
+	}
+
+	public void value(String value) throws IOException
+	{
+		beginValue();
+		writeString(value);
+	}
+
+	public void value(float value) throws IOException
+	{
+		if(Float.isNaN(value) || Float.isInfinite(value))
+			throw new IllegalArgumentException("JSON cannot represent the value " + value);
+
+		beginValue();
+		m_writer.write(Float.toString(value));
+	}
+
+	public void rawValue(String json) throws IOException
+	{
+		beginValue();
+
+		String indent = getIndent();
+		String trimmed = json.trim();
+
+		//JSON strings cannot contain raw line breaks, so each one separates lines of the value's own layout.
+		for(int i = 0; i < trimmed.length(); i++)
+		{
+			char c = trimmed.charAt(i);
+
+			if(c == '\n')
+			{
+				m_writer.write('\n');
+				m_writer.write(indent);
+			} else if(c != '\r')
+				m_writer.write(c);
+		}
+	}
+
+	public void flush() throws IOException
+	{
+		m_writer.flush();
+	}
+
+	private void begin(char bracket, boolean isInline) throws IOException
+	{
+		beginValue();
+		m_writer.write(bracket);
+
+		boolean isParentInline = !m_scopes.isEmpty() && m_scopes.peek().isInline;
+		m_scopes.push(new Scope(bracket == '{', isInline || isParentInline));
+	}
+
+	private void end(char bracket) throws IOException
+	{
+		if(m_scopes.isEmpty() || m_scopes.peek().isObject != (bracket == '}') || m_isNamed)
+			throw new IllegalStateException("Mismatched end of JSON " + (bracket == '}' ? "object." : "array."));
+
+		Scope scope = m_scopes.pop();
+
+		if(scope.hasElements && !scope.isInline)
+			newLine();
+
+		m_writer.write(bracket);
+	}
+
+	private void beginValue() throws IOException
+	{
+		if(m_isNamed)
+			m_isNamed = false;
+		else if(!m_scopes.isEmpty())
+		{
+			if(m_scopes.peek().isObject)
+				throw new IllegalStateException("A member of an object must be named before its value is written.");
+
+			beginElement();
+		}
+	}
+
+	private void beginElement() throws IOException
+	{
+		Scope scope = m_scopes.peek();
+
+		if(scope.hasElements)
+			m_writer.write(',');
+
+		if(!scope.isInline)
+			newLine();
+		else if(scope.hasElements)
+			m_writer.write(' ');
+
+		scope.hasElements = true;
+	}
+
+	private void newLine() throws IOException
+	{
+		m_writer.write('\n');
+		m_writer.write(getIndent());
+	}
+
+	private String getIndent()
+	{
+		StringBuilder indent = new StringBuilder();
+
+		for(int i = 0; i < m_scopes.size(); i++)
+			indent.append(INDENT);
+
+		return indent.toString();
+	}
+
+	private void writeString(String value) throws IOException
+	{
+		m_writer.write('"');
+
+		for(int i = 0; i < value.length(); i++)
+		{
+			char c = value.charAt(i);
+
+			switch(c)
+			{
+				case '"':
+					m_writer.write("\\\"");
+					break;
+				case '\\':
+					m_writer.write("\\\\");
+					break;
+				case '\n':
+					m_writer.write("\\n");
+					break;
+				case '\r':
+					m_writer.write("\\r");
+					break;
+				case '\t':
+					m_writer.write("\\t");
+					break;
+				default:
+					if(c < 0x20)
+						m_writer.write(String.format("\\u%04x", (int)c));
+					else
+						m_writer.write(c);
+			}
+		}
+
+		m_writer.write('"');
+	}
+
+	private static final class Scope
+	{
+		public final boolean isObject;
+		public final boolean isInline;
+		public boolean hasElements = false;
+
+		public Scope(boolean isObject, boolean isInline)
+		{
+			this.isObject = isObject;
+			this.isInline = isInline;
+		}
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.worldbuilder.world;
+
+/**
+ * Open addressing (linear probing) hash map from primitive long keys to non-zero int values, laid out
+ * as LongObjectHashMap. A value of zero marks an empty slot, so it is never stored and get returns it
+ * for absent keys.
+ */
+final class LongIntHashMap
+{
+	private static final int MIN_CAPACITY = 8;
+
+	private long[] m_keys;
+	private int[] m_values;
+	private int m_size = 0;
+
+	public LongIntHashMap()
+	{
+		m_keys = new long[MIN_CAPACITY];
+		m_values = new int[MIN_CAPACITY];
+	}
+
+	public LongIntHashMap(LongIntHashMap source)
+	{
+		m_keys = source.m_keys.clone();
+		m_values = source.m_values.clone();
+		m_size = source.m_size;
+	}
+
+	private static int mix(long key)
+	{
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int)key;
+	}
+
+	private int findSlot(long key)
+	{
+		int mask = m_keys.length - 1;
+		int slot = mix(key) & mask;
+
+		while(m_values[slot] != 0 && m_keys[slot] != key)
+			slot = (slot + 1) & mask;
+
+		return slot;
+	}
+
+	public int size()
+	{
+		return m_size;
+	}
+
+	public boolean isEmpty()
+	{
+		return m_size == 0;
+	}
+
+	public int capacity()
+	{
+		return m_keys.length;
+	}
+
+	public long getKeyAt(int slot)
+	{
+		return m_keys[slot];
+	}
+
+	public int getValueAt(int slot)
+	{
+		return m_values[slot];
+	}
+
+	public int get(long key)
+	{
+		return m_values[findSlot(key)];
+	}
+
+	public int put(long key, int value)
+	{
+		if(value == 0)
+			throw new IllegalArgumentException();
+
+		int slot = findSlot(key);
+		int old = m_values[slot];
+
+		m_keys[slot] = key;
+		m_values[slot] = value;
+
+		if(old == 0)
+		{
+			m_size++;
+
+			if(m_size * 4 > m_keys.length * 3)
+				resize(m_keys.length * 2);
+		}
+
+		return old;
+	}
+
+	public int remove(long key)
+	{
+		int mask = m_keys.length - 1;
+		int slot = findSlot(key);
+		int old = m_values[slot];
+
+		if(old == 0)
+			return 0;
+
+		m_values[slot] = 0;
+		m_size--;
+
+		//Shift back any entries in the probe run that could otherwise no longer be reached.
+		int next = (slot + 1) & mask;
+		while(m_values[next] != 0)
+		{
+			int ideal = mix(m_keys[next]) & mask;
+
+			if(((next - ideal) & mask) >= ((next - slot) & mask))
+			{
+				m_keys[slot] = m_keys[next];
+				m_values[slot] = m_values[next];
+				m_values[next] = 0;
+				slot = next;
+			}
+
+			next = (next + 1) & mask;
+		}
+
+		return old;
+	}
+
+	public long estimateSize()
+	{
+		return EditorWorldStatistics.OBJECT_HEADER + EditorWorldStatistics.ARRAY_HEADER * 2 + (long)m_keys.length * (8 + 4);
+	}
+
+	private void resize(int capacity)
+	{
+		long[] keys = m_keys;
+		int[] values = m_values;
+
+		m_keys = new long[capacity];
+		m_values = new int[capacity];
+
+		for(int i = 0; i < keys.length; i++)
+		{
+			if(values[i] != 0)
+			{
+				int slot = findSlot(keys[i]);
+				m_keys[slot] = keys[i];
+				m_values[slot] = values[i];
+			}
+		}
+	}
+}
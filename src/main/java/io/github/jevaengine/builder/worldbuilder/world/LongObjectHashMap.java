@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.worldbuilder.world;
+
+import io.github.jevaengine.util.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing (linear probing) hash map from primitive long keys to non-null values.
+ *
+ * Entries are iterated by slot: every slot in [0, capacity()) either holds an entry, in which
+ * case getValueAt returns it, or is empty and getValueAt returns null.
+ */
+final class LongObjectHashMap<V>
+{
+	private static final int MIN_CAPACITY = 8;
+
+	private long[] m_keys;
+	private Object[] m_values;
+	private int m_size = 0;
+
+	public LongObjectHashMap()
+	{
+		this(MIN_CAPACITY);
+	}
+
+	public LongObjectHashMap(int expectedSize)
+	{
+		int capacity = MIN_CAPACITY;
+
+		while(capacity < expectedSize * 2)
+			capacity <<= 1;
+
+		m_keys = new long[capacity];
+		m_values = new Object[capacity];
+	}
+
+	//Shallow copy; values are shared with the source map.
+	public LongObjectHashMap(LongObjectHashMap<V> source)
+	{
+		m_keys = source.m_keys.clone();
+		m_values = source.m_values.clone();
+		m_size = source.m_size;
+	}
+
+	private static int mix(long key)
+	{
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int)key;
+	}
+
+	private int findSlot(long key)
+	{
+		int mask = m_keys.length - 1;
+		int slot = mix(key) & mask;
+
+		while(m_values[slot] != null && m_keys[slot] != key)
+			slot = (slot + 1) & mask;
+
+		return slot;
+	}
+
+	public int size()
+	{
+		return m_size;
+	}
+
+	public boolean isEmpty()
+	{
+		return m_size == 0;
+	}
+
+	public int capacity()
+	{
+		return m_keys.length;
+	}
+
+	public long getKeyAt(int slot)
+	{
+		return m_keys[slot];
+	}
+
+	@Nullable
+	@SuppressWarnings("unchecked")
+	public V getValueAt(int slot)
+	{
+		return (V)m_values[slot];
+	}
+
+	public boolean containsKey(long key)
+	{
+		return m_values[findSlot(key)] != null;
+	}
+
+	@Nullable
+	@SuppressWarnings("unchecked")
+	public V get(long key)
+	{
+		return (V)m_values[findSlot(key)];
+	}
+
+	@Nullable
+	@SuppressWarnings("unchecked")
+	public V put(long key, V value)
+	{
+		if(value == null)
+			throw new NullPointerException();
+
+		int slot = findSlot(key);
+		V old = (V)m_values[slot];
+
+		m_keys[slot] = key;
+		m_values[slot] = value;
+
+		if(old == null)
+		{
+			m_size++;
+
+			if(m_size * 4 > m_keys.length * 3)
+				resize(m_keys.length * 2);
+		}
+
+		return old;
+	}
+
+	@Nullable
+	@SuppressWarnings("unchecked")
+	public V remove(long key)
+	{
+		int mask = m_keys.length - 1;
+		int slot = findSlot(key);
+		V old = (V)m_values[slot];
+
+		if(old == null)
+			return null;
+
+		m_values[slot] = null;
+		m_size--;
+
+		//Shift back any entries in the probe run that could otherwise no longer be reached.
+		int next = (slot + 1) & mask;
+		while(m_values[next] != null)
+		{
+			int ideal = mix(m_keys[next]) & mask;
+
+			if(((next - ideal) & mask) >= ((next - slot) & mask))
+			{
+				m_keys[slot] = m_keys[next];
+				m_values[slot] = m_values[next];
+				m_values[next] = null;
+				slot = next;
+			}
+
+			next = (next + 1) & mask;
+		}
+
+		return old;
+	}
+
+	public long estimateSize()
+	{
+		return EditorWorldStatistics.OBJECT_HEADER + EditorWorldStatistics.ARRAY_HEADER * 2 +
+				(long)m_keys.length * (8 + EditorWorldStatistics.REFERENCE);
+	}
+
+	public void clear()
+	{
+		Arrays.fill(m_values, null);
+		m_size = 0;
+	}
+
+	private void resize(int capacity)
+	{
+		long[] keys = m_keys;
+		Object[] values = m_values;
+
+		m_keys = new long[capacity];
+		m_values = new Object[capacity];
+
+		for(int i = 0; i < keys.length; i++)
+		{
+			if(values[i] != null)
+			{
+				int slot = findSlot(keys[i]);
+				m_keys[slot] = keys[i];
+				m_values[slot] = values[i];
+			}
+		}
+	}
+}
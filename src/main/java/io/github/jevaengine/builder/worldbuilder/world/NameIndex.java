@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.worldbuilder.world;
+
+import io.github.jevaengine.util.Nullable;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.TreeSet;
+
+/*
+ * Counts the items using each name, so that conflicting names are found without walking every item. Unused
+ * names are allocated from the lowest unused index after UNNAMED_PREFIX. Indices below the watermark which
+ * have been freed are kept in order, and indices at or above it are only ever passed over once.
+ */
+final class NameIndex<T>
+{
+	public static final String UNNAMED_PREFIX = "Unnamed";
+	
+	private final IdentityHashMap<T, String> m_names = new IdentityHashMap<>();
+	private final HashMap<String, Integer> m_useCounts = new HashMap<>();
+	private final LinkedHashSet<String> m_conflicts = new LinkedHashSet<>();
+	
+	private final TreeSet<Integer> m_freeUnnamed = new TreeSet<>();
+	private int m_unnamedWatermark = 0;
+	
+	public void put(T item, String name)
+	{
+		String previous = m_names.put(item, name);
+		
+		if(previous != null)
+		{
+			if(previous.equals(name))
+				return;
+			
+			release(previous);
+		}
+		
+		acquire(name);
+	}
+	
+	public void remove(T item)
+	{
+		String name = m_names.remove(item);
+		
+		if(name != null)
+			release(name);
+	}
+	
+	public boolean isUsed(String name)
+	{
+		return m_useCounts.containsKey(name);
+	}
+	
+	//A name used by more than one item, if there is any.
+	@Nullable
+	public String getConflict()
+	{
+		return m_conflicts.isEmpty() ? null : m_conflicts.iterator().next();
+	}
+	
+	public String getUnusedName()
+	{
+		if(!m_freeUnnamed.isEmpty())
+			return UNNAMED_PREFIX + m_freeUnnamed.first();
+		
+		while(isUsed(UNNAMED_PREFIX + m_unnamedWatermark))
+			m_unnamedWatermark++;
+		
+		return UNNAMED_PREFIX + m_unnamedWatermark;
+	}
+	
+	private void acquire(String name)
+	{
+		Integer count = m_useCounts.get(name);
+		
+		if(count == null)
+		{
+			m_useCounts.put(name, 1);
+			
+			int index = getUnnamedIndex(name);
+			
+			if(index >= 0 && index < m_unnamedWatermark)
+				m_freeUnnamed.remove(index);
+		} else
+		{
+			m_useCounts.put(name, count + 1);
+			m_conflicts.add(name);
+		}
+	}
+	
+	private void release(String name)
+	{
+		int count = m_useCounts.get(name);
+		
+		if(count == 1)
+		{
+			m_useCounts.remove(name);
+			
+			int index = getUnnamedIndex(name);
+			
+			if(index >= 0 && index < m_unnamedWatermark)
+				m_freeUnnamed.add(index);
+		} else
+		{
+			m_useCounts.put(name, count - 1);
+			
+			if(count == 2)
+				m_conflicts.remove(name);
+		}
+	}
+	
+	//The index of a name as allocated by getUnusedName, or -1 if it could not have been.
+	private static int getUnnamedIndex(String name)
+	{
+		if(!name.startsWith(UNNAMED_PREFIX))
+			return -1;
+		
+		String index = name.substring(UNNAMED_PREFIX.length());
+		
+		if(index.isEmpty() || index.length() > 9 || (index.length() > 1 && index.charAt(0) == '0'))
+			return -1;
+		
+		for(int i = 0; i < index.length(); i++)
+		{
+			if(index.charAt(i) < '0' || index.charAt(i) > '9')
+				return -1;
+		}
+		
+		return Integer.parseInt(index);
+	}
+}
@@ -0,0 +1,459 @@
+/*
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.worldbuilder.world;
+
+import io.github.jevaengine.math.Rect3F;
+import io.github.jevaengine.math.Vector3F;
+import io.github.jevaengine.util.Nullable;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * R-tree (Guttman, quadratic split) of axis aligned boxes, used to find the items whose bounds
+ * contain a point or intersect a region without testing every item.
+ */
+final class RTree<T>
+{
+	private static final int MAX_ENTRIES = 8;
+	private static final int MIN_ENTRIES = 3;
+
+	private Node<T> m_root = new Node<>(true);
+	private final IdentityHashMap<T, Entry<T>> m_entries = new IdentityHashMap<>();
+
+	public int size()
+	{
+		return m_entries.size();
+	}
+
+	public boolean contains(T item)
+	{
+		return m_entries.containsKey(item);
+	}
+
+	@Nullable
+	public Rect3F getBounds(T item)
+	{
+		Entry<T> e = m_entries.get(item);
+
+		return e == null ? null : new Rect3F(e.minX, e.minY, e.minZ, e.maxX - e.minX, e.maxY - e.minY, e.maxZ - e.minZ);
+	}
+
+	public void put(T item, Rect3F bounds)
+	{
+		remove(item);
+
+		Entry<T> entry = new Entry<>(bounds);
+		entry.item = item;
+		m_entries.put(item, entry);
+
+		insert(entry, chooseLeaf(entry));
+	}
+
+	public boolean remove(T item)
+	{
+		Entry<T> entry = m_entries.remove(item);
+
+		if(entry == null)
+			return false;
+
+		Node<T> leaf = findLeaf(m_root, entry);
+
+		if(leaf == null)
+			return false;
+
+		leaf.entries.remove(entry);
+		condense(leaf);
+
+		return true;
+	}
+
+	public long estimateSize()
+	{
+		//Each item is held by one leaf entry, inner nodes add roughly a quarter as many entries again.
+		long entrySize = EditorWorldStatistics.OBJECT_HEADER + 24 + 2 * EditorWorldStatistics.REFERENCE;
+
+		return (long)m_entries.size() * (entrySize * 5 / 4 + 3 * EditorWorldStatistics.REFERENCE);
+	}
+
+	public void clear()
+	{
+		m_root = new Node<>(true);
+		m_entries.clear();
+	}
+
+	public void visitContaining(Vector3F point, IVisitor<T> visitor)
+	{
+		Entry<T> query = new Entry<>(point.x, point.y, point.z, point.x, point.y, point.z);
+		visitIntersecting(m_root, query, visitor);
+	}
+
+	public void visitIntersecting(Rect3F region, IVisitor<T> visitor)
+	{
+		visitIntersecting(m_root, new Entry<T>(region), visitor);
+	}
+
+	public void visitIntersecting(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, IVisitor<T> visitor)
+	{
+		visitIntersecting(m_root, new Entry<T>(minX, minY, minZ, maxX, maxY, maxZ), visitor);
+	}
+
+	private void visitIntersecting(Node<T> node, Entry<T> query, IVisitor<T> visitor)
+	{
+		for(Entry<T> e : node.entries)
+		{
+			if(!e.intersects(query))
+				continue;
+
+			if(node.isLeaf)
+				visitor.visit(e.item);
+			else
+				visitIntersecting(e.child, query, visitor);
+		}
+	}
+
+	private Node<T> chooseLeaf(Entry<T> entry)
+	{
+		Node<T> node = m_root;
+
+		while(!node.isLeaf)
+		{
+			Entry<T> best = null;
+			float bestEnlargement = 0;
+
+			for(Entry<T> e : node.entries)
+			{
+				float enlargement = e.getEnlargement(entry);
+
+				if(best == null || enlargement < bestEnlargement ||
+					(enlargement == bestEnlargement && e.getMeasure() < best.getMeasure()))
+				{
+					best = e;
+					bestEnlargement = enlargement;
+				}
+			}
+
+			node = best.child;
+		}
+
+		return node;
+	}
+
+	private void insert(Entry<T> entry, Node<T> node)
+	{
+		node.entries.add(entry);
+
+		if(entry.child != null)
+			entry.child.parent = node;
+
+		Node<T> split = node.entries.size() > MAX_ENTRIES ? split(node) : null;
+
+		while(node != m_root)
+		{
+			Node<T> parent = node.parent;
+			getParentEntry(node).fit(node);
+
+			if(split != null)
+			{
+				Entry<T> splitEntry = new Entry<>(split);
+				parent.entries.add(splitEntry);
+				split.parent = parent;
+				split = parent.entries.size() > MAX_ENTRIES ? split(parent) : null;
+			}
+
+			node = parent;
+		}
+
+		if(split != null)
+		{
+			Node<T> root = new Node<>(false);
+			root.entries.add(new Entry<>(m_root));
+			root.entries.add(new Entry<>(split));
+			m_root.parent = root;
+			split.parent = root;
+			m_root = root;
+		}
+	}
+
+	private Node<T> split(Node<T> node)
+	{
+		List<Entry<T>> remaining = new ArrayList<>(node.entries);
+		node.entries.clear();
+
+		Node<T> sibling = new Node<>(node.isLeaf);
+
+		//Pick the pair of entries which would waste the most space if grouped together.
+		int seedA = 0;
+		int seedB = 1;
+		float worstWaste = Float.NEGATIVE_INFINITY;
+
+		for(int a = 0; a < remaining.size(); a++)
+		{
+			for(int b = a + 1; b < remaining.size(); b++)
+			{
+				Entry<T> union = new Entry<>(remaining.get(a));
+				union.include(remaining.get(b));
+				float waste = union.getMeasure() - remaining.get(a).getMeasure() - remaining.get(b).getMeasure();
+
+				if(waste > worstWaste)
+				{
+					worstWaste = waste;
+					seedA = a;
+					seedB = b;
+				}
+			}
+		}
+
+		Entry<T> boundsA = new Entry<>(remaining.get(seedA));
+		Entry<T> boundsB = new Entry<>(remaining.get(seedB));
+		node.entries.add(remaining.get(seedA));
+		sibling.entries.add(remaining.get(seedB));
+		remaining.remove(seedB);
+		remaining.remove(seedA);
+
+		while(!remaining.isEmpty())
+		{
+			if(node.entries.size() + remaining.size() <= MIN_ENTRIES)
+			{
+				node.entries.addAll(remaining);
+				break;
+			}
+
+			if(sibling.entries.size() + remaining.size() <= MIN_ENTRIES)
+			{
+				sibling.entries.addAll(remaining);
+				break;
+			}
+
+			int next = 0;
+			float greatestPreference = -1;
+
+			for(int i = 0; i < remaining.size(); i++)
+			{
+				float preference = Math.abs(boundsA.getEnlargement(remaining.get(i)) - boundsB.getEnlargement(remaining.get(i)));
+
+				if(preference > greatestPreference)
+				{
+					greatestPreference = preference;
+					next = i;
+				}
+			}
+
+			Entry<T> e = remaining.remove(next);
+			float enlargementA = boundsA.getEnlargement(e);
+			float enlargementB = boundsB.getEnlargement(e);
+
+			if(enlargementA < enlargementB || (enlargementA == enlargementB && node.entries.size() <= sibling.entries.size()))
+			{
+				node.entries.add(e);
+				boundsA.include(e);
+			} else
+			{
+				sibling.entries.add(e);
+				boundsB.include(e);
+			}
+		}
+
+		for(Entry<T> e : sibling.entries)
+		{
+			if(e.child != null)
+				e.child.parent = sibling;
+		}
+
+		return sibling;
+	}
+
+	private Node<T> findLeaf(Node<T> node, Entry<T> entry)
+	{
+		if(node.isLeaf)
+			return node.entries.contains(entry) ? node : null;
+
+		for(Entry<T> e : node.entries)
+		{
+			if(!e.encloses(entry))
+				continue;
+
+			Node<T> leaf = findLeaf(e.child, entry);
+
+			if(leaf != null)
+				return leaf;
+		}
+
+		return null;
+	}
+
+	private void condense(Node<T> leaf)
+	{
+		List<Entry<T>> orphans = new ArrayList<>();
+		Node<T> node = leaf;
+
+		while(node != m_root)
+		{
+			Node<T> parent = node.parent;
+			Entry<T> parentEntry = getParentEntry(node);
+
+			if(node.entries.size() < MIN_ENTRIES)
+			{
+				parent.entries.remove(parentEntry);
+				collectItems(node, orphans);
+			} else
+				parentEntry.fit(node);
+
+			node = parent;
+		}
+
+		if(!m_root.isLeaf && m_root.entries.size() == 1)
+		{
+			m_root = m_root.entries.get(0).child;
+			m_root.parent = null;
+		} else if(!m_root.isLeaf && m_root.entries.isEmpty())
+			m_root = new Node<>(true);
+
+		for(Entry<T> e : orphans)
+			insert(e, chooseLeaf(e));
+	}
+
+	private void collectItems(Node<T> node, List<Entry<T>> items)
+	{
+		for(Entry<T> e : node.entries)
+		{
+			if(node.isLeaf)
+				items.add(e);
+			else
+				collectItems(e.child, items);
+		}
+	}
+
+	private Entry<T> getParentEntry(Node<T> node)
+	{
+		for(Entry<T> e : node.parent.entries)
+		{
+			if(e.child == node)
+				return e;
+		}
+
+		throw new IllegalStateException("R-tree node is not referenced by its parent.");
+	}
+
+	public interface IVisitor<T>
+	{
+		void visit(T item);
+	}
+
+	private static final class Node<T>
+	{
+		private final boolean isLeaf;
+		private final ArrayList<Entry<T>> entries = new ArrayList<>(MAX_ENTRIES + 1);
+		private Node<T> parent;
+
+		public Node(boolean isLeaf)
+		{
+			this.isLeaf = isLeaf;
+		}
+	}
+
+	private static final class Entry<T>
+	{
+		private float minX, minY, minZ;
+		private float maxX, maxY, maxZ;
+
+		private T item;
+		private Node<T> child;
+
+		public Entry(float minX, float minY, float minZ, float maxX, float maxY, float maxZ)
+		{
+			this.minX = minX;
+			this.minY = minY;
+			this.minZ = minZ;
+			this.maxX = maxX;
+			this.maxY = maxY;
+			this.maxZ = maxZ;
+		}
+
+		public Entry(Rect3F bounds)
+		{
+			this(bounds.x, bounds.y, bounds.z, bounds.x + bounds.width, bounds.y + bounds.height, bounds.z + bounds.depth);
+		}
+
+		public Entry(Entry<T> bounds)
+		{
+			this(bounds.minX, bounds.minY, bounds.minZ, bounds.maxX, bounds.maxY, bounds.maxZ);
+		}
+
+		public Entry(Node<T> child)
+		{
+			this(0, 0, 0, 0, 0, 0);
+			this.child = child;
+			fit(child);
+		}
+
+		public void fit(Node<T> node)
+		{
+			Entry<T> first = node.entries.get(0);
+			minX = first.minX; minY = first.minY; minZ = first.minZ;
+			maxX = first.maxX; maxY = first.maxY; maxZ = first.maxZ;
+
+			for(Entry<T> e : node.entries)
+				include(e);
+		}
+
+		public void include(Entry<T> e)
+		{
+			minX = Math.min(minX, e.minX);
+			minY = Math.min(minY, e.minY);
+			minZ = Math.min(minZ, e.minZ);
+			maxX = Math.max(maxX, e.maxX);
+			maxY = Math.max(maxY, e.maxY);
+			maxZ = Math.max(maxZ, e.maxZ);
+		}
+
+		//Half surface area plus edge lengths, so flat (zero depth) boxes still compare sensibly.
+		public float getMeasure()
+		{
+			float dx = maxX - minX;
+			float dy = maxY - minY;
+			float dz = maxZ - minZ;
+
+			return dx * dy + dx * dz + dy * dz + dx + dy + dz;
+		}
+
+		public float getEnlargement(Entry<T> e)
+		{
+			Entry<T> union = new Entry<>(this);
+			union.include(e);
+
+			return union.getMeasure() - getMeasure();
+		}
+
+		public boolean intersects(Entry<T> e)
+		{
+			return minX <= e.maxX && e.minX <= maxX &&
+					minY <= e.maxY && e.minY <= maxY &&
+					minZ <= e.maxZ && e.minZ <= maxZ;
+		}
+
+		public boolean encloses(Entry<T> e)
+		{
+			return minX <= e.minX && e.maxX <= maxX &&
+					minY <= e.minY && e.maxY <= maxY &&
+					minZ <= e.minZ && e.maxZ <= maxZ;
+		}
+	}
+}
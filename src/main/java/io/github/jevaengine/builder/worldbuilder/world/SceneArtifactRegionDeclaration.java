@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.worldbuilder.world;
+
+import io.github.jevaengine.config.IImmutableVariable;
+import io.github.jevaengine.config.ISerializable;
+import io.github.jevaengine.config.IVariable;
+import io.github.jevaengine.config.NoSuchChildVariableException;
+import io.github.jevaengine.config.ValueSerializationException;
+import io.github.jevaengine.math.Rect3F;
+
+/**
+ * Rectangles of cells, each holding the artifact at the given index of a world's artifact imports.
+ * Only written to worlds saved with EditorWorldJsonWriter.REGION_FILE_EXTENSION. A region covers the
+ * cells from x, y up to but excluding x + width, y + height, on layer z.
+ */
+public final class SceneArtifactRegionDeclaration implements ISerializable
+{
+	public int artifact;
+	public Rect3F[] regions;
+
+	@Override
+	public void serialize(IVariable target) throws ValueSerializationException
+	{
+		target.addChild("artifact").setValue(artifact);
+		target.addChild("regions").setValue(regions);
+	}
+
+	@Override
+	public void deserialize(IImmutableVariable source) throws ValueSerializationException
+	{
+		try
+		{
+			artifact = source.getChild("artifact").getValue(Integer.class);
+			regions = source.getChild("regions").getValues(Rect3F[].class);
+		} catch (NoSuchChildVariableException e)
+		{
+			throw new ValueSerializationException(e);
+		}
+	}
+}
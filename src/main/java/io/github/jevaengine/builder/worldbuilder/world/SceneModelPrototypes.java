@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.worldbuilder.world;
+
+import io.github.jevaengine.world.Direction;
+import io.github.jevaengine.world.scene.model.IImmutableSceneModel;
+import io.github.jevaengine.world.scene.model.ISceneModel;
+import io.github.jevaengine.world.scene.model.NullSceneModel;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Objects;
+
+/**
+ * Reference counted registry of scene models shared by the tiles of a world.
+ *
+ * All tiles using the same model in the same direction render through a single prototype.
+ * Tiles never animate independently in the editor, so each prototype acts as the animation
+ * clock for all of its tiles and is updated once per world update rather than once per tile.
+ * Models do not expose whether they animate, so every prototype is updated except those of
+ * null models, which have nothing to update.
+ */
+final class SceneModelPrototypes
+{
+	private final HashMap<Key, Prototype> m_prototypes = new HashMap<>();
+	private final ArrayList<Prototype> m_updated = new ArrayList<>();
+
+	//The source is only copied when there is no prototype for the model yet.
+	public ISceneModel acquire(URI modelName, Direction direction, IImmutableSceneModel source)
+	{
+		Key key = new Key(modelName, direction);
+		Prototype prototype = m_prototypes.get(key);
+
+		if(prototype == null)
+		{
+			ISceneModel model = source.clone();
+			prototype = new Prototype(model, !(model instanceof NullSceneModel));
+			m_prototypes.put(key, prototype);
+
+			if(prototype.needsUpdate)
+				m_updated.add(prototype);
+		}
+
+		prototype.references++;
+
+		return prototype.model;
+	}
+
+	public void release(URI modelName, Direction direction)
+	{
+		Key key = new Key(modelName, direction);
+		Prototype prototype = m_prototypes.get(key);
+
+		if(prototype != null && --prototype.references <= 0)
+		{
+			m_prototypes.remove(key);
+
+			if(prototype.needsUpdate)
+				m_updated.remove(prototype);
+		}
+	}
+
+	public int size()
+	{
+		return m_prototypes.size();
+	}
+
+	public int getUpdatedCount()
+	{
+		return m_updated.size();
+	}
+
+	public void update(int deltaTime)
+	{
+		for(Prototype p : m_updated)
+			p.model.update(deltaTime);
+	}
+
+	private static final class Prototype
+	{
+		private final ISceneModel model;
+		private final boolean needsUpdate;
+		private int references = 0;
+
+		public Prototype(ISceneModel model, boolean needsUpdate)
+		{
+			this.model = model;
+			this.needsUpdate = needsUpdate;
+		}
+	}
+
+	private static final class Key
+	{
+		private final URI m_modelName;
+		private final Direction m_direction;
+
+		public Key(URI modelName, Direction direction)
+		{
+			m_modelName = modelName;
+			m_direction = direction;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = 3;
+			hash = 53 * hash + Objects.hashCode(this.m_modelName);
+			hash = 53 * hash + Objects.hashCode(this.m_direction);
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == null) {
+				return false;
+			}
+			if (getClass() != obj.getClass()) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			if (!Objects.equals(this.m_modelName, other.m_modelName)) {
+				return false;
+			}
+			return this.m_direction == other.m_direction;
+		}
+	}
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.worldbuilder.world;
+
+import io.github.jevaengine.math.Vector3F;
+import io.github.jevaengine.util.Nullable;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+/**
+ * Uniform grid over the x/y plane used to answer point and radius queries about located items
+ * without scanning all of them. Items are bucketed by the cell containing their location; z is
+ * only considered when measuring distances.
+ */
+final class SpatialHash<T>
+{
+	private final float m_cellSize;
+
+	private final LongObjectHashMap<ArrayList<Entry<T>>> m_cells = new LongObjectHashMap<>();
+	private final IdentityHashMap<T, Entry<T>> m_entries = new IdentityHashMap<>();
+
+	public SpatialHash(float cellSize)
+	{
+		m_cellSize = cellSize;
+	}
+
+	private int getCell(float value)
+	{
+		return (int)Math.floor(value / m_cellSize);
+	}
+
+	private static long packCell(int cellX, int cellY)
+	{
+		return ((long)cellX << 32) | (cellY & 0xFFFFFFFFL);
+	}
+
+	public int size()
+	{
+		return m_entries.size();
+	}
+
+	public boolean contains(T item)
+	{
+		return m_entries.containsKey(item);
+	}
+
+	@Nullable
+	public Vector3F getLocation(T item)
+	{
+		Entry<T> entry = m_entries.get(item);
+
+		return entry == null ? null : new Vector3F(entry.x, entry.y, entry.z);
+	}
+
+	public void put(T item, Vector3F location)
+	{
+		Entry<T> entry = m_entries.get(item);
+
+		if(entry != null)
+		{
+			long cell = packCell(getCell(location.x), getCell(location.y));
+
+			if(cell != entry.cell)
+			{
+				removeFromCell(entry);
+				entry.cell = cell;
+				addToCell(entry);
+			}
+		} else
+		{
+			entry = new Entry<>(item, packCell(getCell(location.x), getCell(location.y)));
+			m_entries.put(item, entry);
+			addToCell(entry);
+		}
+
+		entry.x = location.x;
+		entry.y = location.y;
+		entry.z = location.z;
+	}
+
+	public boolean remove(T item)
+	{
+		Entry<T> entry = m_entries.remove(item);
+
+		if(entry == null)
+			return false;
+
+		removeFromCell(entry);
+		return true;
+	}
+
+	public long estimateSize()
+	{
+		//Identity map entry, bucket slot and the entry object per item, plus one bucket list per cell.
+		return m_cells.estimateSize() + (long)m_cells.size() * (EditorWorldStatistics.OBJECT_HEADER * 2 + 4 * EditorWorldStatistics.REFERENCE) +
+				(long)m_entries.size() * (EditorWorldStatistics.OBJECT_HEADER + 32 + 3 * EditorWorldStatistics.REFERENCE);
+	}
+
+	public void clear()
+	{
+		m_cells.clear();
+		m_entries.clear();
+	}
+
+	private void addToCell(Entry<T> entry)
+	{
+		ArrayList<Entry<T>> bucket = m_cells.get(entry.cell);
+
+		if(bucket == null)
+		{
+			bucket = new ArrayList<>(2);
+			m_cells.put(entry.cell, bucket);
+		}
+
+		bucket.add(entry);
+	}
+
+	private void removeFromCell(Entry<T> entry)
+	{
+		ArrayList<Entry<T>> bucket = m_cells.get(entry.cell);
+
+		if(bucket == null)
+			return;
+
+		bucket.remove(entry);
+
+		if(bucket.isEmpty())
+			m_cells.remove(entry.cell);
+	}
+
+	@Nullable
+	public T nearest(Vector3F location, float maxDistance)
+	{
+		T nearest = null;
+		float nearestDistance = maxDistance * maxDistance;
+
+		int minX = getCell(location.x - maxDistance);
+		int maxX = getCell(location.x + maxDistance);
+		int minY = getCell(location.y - maxDistance);
+		int maxY = getCell(location.y + maxDistance);
+
+		for(int y = minY; y <= maxY; y++)
+		{
+			for(int x = minX; x <= maxX; x++)
+			{
+				ArrayList<Entry<T>> bucket = m_cells.get(packCell(x, y));
+
+				if(bucket == null)
+					continue;
+
+				for(Entry<T> e : bucket)
+				{
+					float distance = e.getDistanceSquared(location);
+
+					if(distance < nearestDistance)
+					{
+						nearestDistance = distance;
+						nearest = e.item;
+					}
+				}
+			}
+		}
+
+		return nearest;
+	}
+
+	public void visitWithin(Vector3F location, float radius, IVisitor<T> visitor)
+	{
+		float radiusSquared = radius * radius;
+
+		int minX = getCell(location.x - radius);
+		int maxX = getCell(location.x + radius);
+		int minY = getCell(location.y - radius);
+		int maxY = getCell(location.y + radius);
+
+		for(int y = minY; y <= maxY; y++)
+		{
+			for(int x = minX; x <= maxX; x++)
+			{
+				ArrayList<Entry<T>> bucket = m_cells.get(packCell(x, y));
+
+				if(bucket == null)
+					continue;
+
+				for(Entry<T> e : bucket)
+				{
+					if(e.getDistanceSquared(location) <= radiusSquared)
+						visitor.visit(e.item);
+				}
+			}
+		}
+	}
+
+	//Bounds are inclusive on every axis.
+	public void visitRegion(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, IVisitor<T> visitor)
+	{
+		int cellX0 = getCell(minX);
+		int cellY0 = getCell(minY);
+		int cellX1 = getCell(maxX);
+		int cellY1 = getCell(maxY);
+
+		if(((long)cellX1 - cellX0 + 1) * ((long)cellY1 - cellY0 + 1) > m_cells.size())
+		{
+			for(Entry<T> e : m_entries.values())
+			{
+				if(e.isWithin(minX, minY, minZ, maxX, maxY, maxZ))
+					visitor.visit(e.item);
+			}
+
+			return;
+		}
+
+		for(int y = cellY0; y <= cellY1; y++)
+		{
+			for(int x = cellX0; x <= cellX1; x++)
+			{
+				ArrayList<Entry<T>> bucket = m_cells.get(packCell(x, y));
+
+				if(bucket == null)
+					continue;
+
+				for(Entry<T> e : bucket)
+				{
+					if(e.isWithin(minX, minY, minZ, maxX, maxY, maxZ))
+						visitor.visit(e.item);
+				}
+			}
+		}
+	}
+
+	public interface IVisitor<T>
+	{
+		void visit(T item);
+	}
+
+	private static final class Entry<T>
+	{
+		private final T item;
+		private long cell;
+		private float x;
+		private float y;
+		private float z;
+
+		public Entry(T item, long cell)
+		{
+			this.item = item;
+			this.cell = cell;
+		}
+
+		public float getDistanceSquared(Vector3F location)
+		{
+			float dx = location.x - x;
+			float dy = location.y - y;
+			float dz = location.z - z;
+
+			return dx * dx + dy * dy + dz * dz;
+		}
+
+		public boolean isWithin(float minX, float minY, float minZ, float maxX, float maxY, float maxZ)
+		{
+			return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+		}
+	}
+}
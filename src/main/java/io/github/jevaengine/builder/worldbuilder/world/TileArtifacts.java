@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.worldbuilder.world;
+
+import io.github.jevaengine.math.Vector3F;
+import io.github.jevaengine.util.Nullable;
+
+/**
+ * The tiles created for the cells of an EditorWorld which are registered with its World, keyed by their
+ * location quantized as in TileGrid. Only the cells near the visible bounds have a tile, every other cell
+ * is only held as a palette id by the world's TileGrid.
+ */
+final class TileArtifacts
+{
+	private final LongObjectHashMap<LongObjectHashMap<EditorSceneArtifact>> m_layers = new LongObjectHashMap<>();
+	private int m_size = 0;
+
+	private static long pack(Vector3F location)
+	{
+		return ((long)TileGrid.quantize(location.x) << 32) | (TileGrid.quantize(location.y) & 0xFFFFFFFFL);
+	}
+
+	public int size()
+	{
+		return m_size;
+	}
+
+	@Nullable
+	public EditorSceneArtifact get(Vector3F location)
+	{
+		LongObjectHashMap<EditorSceneArtifact> layer = m_layers.get(TileGrid.quantize(location.z));
+
+		return layer == null ? null : layer.get(pack(location));
+	}
+
+	@Nullable
+	public EditorSceneArtifact put(Vector3F location, EditorSceneArtifact tile)
+	{
+		long depth = TileGrid.quantize(location.z);
+		LongObjectHashMap<EditorSceneArtifact> layer = m_layers.get(depth);
+
+		if(layer == null)
+		{
+			layer = new LongObjectHashMap<>();
+			m_layers.put(depth, layer);
+		}
+
+		EditorSceneArtifact old = layer.put(pack(location), tile);
+
+		if(old == null)
+			m_size++;
+
+		return old;
+	}
+
+	@Nullable
+	public EditorSceneArtifact remove(Vector3F location)
+	{
+		long depth = TileGrid.quantize(location.z);
+		LongObjectHashMap<EditorSceneArtifact> layer = m_layers.get(depth);
+
+		if(layer == null)
+			return null;
+
+		EditorSceneArtifact old = layer.remove(pack(location));
+
+		if(old != null)
+		{
+			m_size--;
+
+			if(layer.isEmpty())
+				m_layers.remove(depth);
+		}
+
+		return old;
+	}
+}
@@ -0,0 +1,720 @@
+/*
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.worldbuilder.world;
+
+import io.github.jevaengine.math.Vector3F;
+import io.github.jevaengine.util.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores the tiles of an EditorWorld in square chunks per layer, each cell holding the palette id of
+ * its tile (see TilePalette) rather than the tile itself.
+ *
+ * Locations are quantized to TOLERANCE and keyed exactly by their quantized coordinates, so
+ * no two distinct cells ever share a key regardless of the snap grid in use. Cells that sit on
+ * the unit grid are kept in a dense array once a chunk is populated enough to justify it,
+ * everything else (sparsely populated chunks and cells placed with a finer snap grid) lives in
+ * an open addressing table keyed by the packed local cell coordinate.
+ *
+ * Layers are indexed by their quantized depth, so operations on a single layer only touch
+ * the chunks of that layer.
+ *
+ * Snapshots share chunks with the grid they were taken from. Every chunk records the generation
+ * it was created in, and the live grid copies a chunk from an older generation before writing to it.
+ */
+final class TileGrid
+{
+	public static final float TOLERANCE = 0.0001F;
+	public static final int CHUNK_SIZE = 32;
+
+	private static final int QUANTA_PER_UNIT = 10000;
+	private static final int QUANTA_PER_CHUNK = QUANTA_PER_UNIT * CHUNK_SIZE;
+	private static final int CELLS_PER_CHUNK = CHUNK_SIZE * CHUNK_SIZE;
+
+	private static final int DENSE_THRESHOLD = CELLS_PER_CHUNK / 4;
+	private static final int SPARSE_THRESHOLD = DENSE_THRESHOLD / 2;
+
+	private final LongObjectHashMap<Layer> m_layers;
+	private int m_size = 0;
+	private int m_generation = 0;
+
+	public TileGrid()
+	{
+		m_layers = new LongObjectHashMap<>();
+	}
+
+	private TileGrid(TileGrid source)
+	{
+		m_layers = new LongObjectHashMap<>(source.m_layers.size());
+		m_size = source.m_size;
+
+		for(int i = 0; i < source.m_layers.capacity(); i++)
+		{
+			Layer l = source.m_layers.getValueAt(i);
+
+			if(l != null)
+				m_layers.put(l.depth, new Layer(l));
+		}
+	}
+
+	public static int quantize(float value)
+	{
+		return (int)Math.round((double)value * QUANTA_PER_UNIT);
+	}
+
+	//Quantizes a query bound, saturating rather than overflowing for very large or infinite values.
+	private static int quantizeBound(float value)
+	{
+		return (int)Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, Math.round((double)value * QUANTA_PER_UNIT)));
+	}
+
+	public static float dequantize(int value)
+	{
+		return value / (float)QUANTA_PER_UNIT;
+	}
+
+	//Returns the chunk holding the given coordinate, as it is chunked by the grid.
+	public static int getChunk(float value)
+	{
+		return Math.floorDiv(quantizeBound(value), QUANTA_PER_CHUNK);
+	}
+
+	public static Vector3F snap(Vector3F location)
+	{
+		return new Vector3F(dequantize(quantize(location.x)), dequantize(quantize(location.y)), dequantize(quantize(location.z)));
+	}
+
+	private static long packChunk(int chunkX, int chunkY)
+	{
+		return ((long)chunkX << 32) | (chunkY & 0xFFFFFFFFL);
+	}
+
+	public int size()
+	{
+		return m_size;
+	}
+
+	/*
+	 * Creates a grid sharing the current chunks of this one. The snapshot must not be mutated,
+	 * but it remains valid while this grid continues to be edited.
+	 */
+	public TileGrid snapshot()
+	{
+		TileGrid snapshot = new TileGrid(this);
+		m_generation++;
+
+		return snapshot;
+	}
+
+	private Chunk getWritableChunk(Layer layer, long chunkKey)
+	{
+		Chunk chunk = layer.chunks.get(chunkKey);
+
+		if(chunk != null && chunk.m_generation != m_generation)
+		{
+			chunk = new Chunk(chunk, m_generation);
+			layer.chunks.put(chunkKey, chunk);
+		}
+
+		return chunk;
+	}
+
+	//Returns the palette id held by the cell at the given location, or -1 if it is empty.
+	public int get(Vector3F location)
+	{
+		Layer layer = m_layers.get(quantize(location.z));
+
+		if(layer == null)
+			return -1;
+
+		int x = quantize(location.x);
+		int y = quantize(location.y);
+		Chunk chunk = layer.chunks.get(packChunk(Math.floorDiv(x, QUANTA_PER_CHUNK), Math.floorDiv(y, QUANTA_PER_CHUNK)));
+
+		return chunk == null ? -1 : chunk.get(Math.floorMod(x, QUANTA_PER_CHUNK), Math.floorMod(y, QUANTA_PER_CHUNK));
+	}
+
+	//Returns the id replaced, or -1 if the cell was empty.
+	public int put(Vector3F location, int id)
+	{
+		int z = quantize(location.z);
+		Layer layer = m_layers.get(z);
+
+		if(layer == null)
+		{
+			layer = new Layer(z);
+			m_layers.put(z, layer);
+		}
+
+		int x = quantize(location.x);
+		int y = quantize(location.y);
+		long chunkKey = packChunk(Math.floorDiv(x, QUANTA_PER_CHUNK), Math.floorDiv(y, QUANTA_PER_CHUNK));
+		Chunk chunk = getWritableChunk(layer, chunkKey);
+
+		if(chunk == null)
+		{
+			chunk = new Chunk(Math.floorDiv(x, QUANTA_PER_CHUNK), Math.floorDiv(y, QUANTA_PER_CHUNK), m_generation);
+			layer.chunks.put(chunkKey, chunk);
+		}
+
+		int old = chunk.put(Math.floorMod(x, QUANTA_PER_CHUNK), Math.floorMod(y, QUANTA_PER_CHUNK), id);
+
+		if(old < 0)
+		{
+			m_size++;
+			layer.size++;
+		}
+
+		return old;
+	}
+
+	public int remove(Vector3F location)
+	{
+		int z = quantize(location.z);
+		Layer layer = m_layers.get(z);
+
+		if(layer == null)
+			return -1;
+
+		int x = quantize(location.x);
+		int y = quantize(location.y);
+		long chunkKey = packChunk(Math.floorDiv(x, QUANTA_PER_CHUNK), Math.floorDiv(y, QUANTA_PER_CHUNK));
+
+		if(!layer.chunks.containsKey(chunkKey))
+			return -1;
+
+		Chunk chunk = getWritableChunk(layer, chunkKey);
+		int old = chunk.remove(Math.floorMod(x, QUANTA_PER_CHUNK), Math.floorMod(y, QUANTA_PER_CHUNK));
+
+		if(old >= 0)
+		{
+			m_size--;
+			layer.size--;
+
+			if(chunk.isEmpty())
+				layer.chunks.remove(chunkKey);
+
+			if(layer.chunks.isEmpty())
+				m_layers.remove(z);
+		}
+
+		return old;
+	}
+
+	public List<Float> getLayers()
+	{
+		List<Float> depths = new ArrayList<>(m_layers.size());
+
+		for(int i = 0; i < m_layers.capacity(); i++)
+		{
+			Layer l = m_layers.getValueAt(i);
+
+			if(l != null)
+				depths.add(dequantize(l.depth));
+		}
+
+		return depths;
+	}
+
+	public int getChunkCount()
+	{
+		int count = 0;
+
+		for(int i = 0; i < m_layers.capacity(); i++)
+		{
+			Layer l = m_layers.getValueAt(i);
+
+			if(l != null)
+				count += l.chunks.size();
+		}
+
+		return count;
+	}
+
+	//Estimated size of the grid structure, which holds the ids of its cells rather than tiles.
+	public long estimateSize()
+	{
+		long size = EditorWorldStatistics.OBJECT_HEADER + m_layers.estimateSize();
+
+		for(int i = 0; i < m_layers.capacity(); i++)
+		{
+			Layer l = m_layers.getValueAt(i);
+
+			if(l == null)
+				continue;
+
+			size += EditorWorldStatistics.OBJECT_HEADER + l.chunks.estimateSize();
+
+			for(int c = 0; c < l.chunks.capacity(); c++)
+			{
+				Chunk chunk = l.chunks.getValueAt(c);
+
+				if(chunk != null)
+					size += chunk.estimateSize();
+			}
+		}
+
+		return size;
+	}
+
+	public int getLayerSize(float z)
+	{
+		Layer layer = m_layers.get(quantize(z));
+
+		return layer == null ? 0 : layer.size;
+	}
+
+	public void visit(ICellVisitor visitor)
+	{
+		for(int i = 0; i < m_layers.capacity(); i++)
+		{
+			Layer l = m_layers.getValueAt(i);
+
+			if(l != null)
+				l.visit(visitor);
+		}
+	}
+
+	public void visitLayer(float z, ICellVisitor visitor)
+	{
+		Layer layer = m_layers.get(quantize(z));
+
+		if(layer != null)
+			layer.visit(visitor);
+	}
+
+	/*
+	 * Visits the tiles whose location lies within the given bounds, inclusive on every axis. Only
+	 * the layers and chunks overlapping the bounds are inspected.
+	 */
+	public void visitRegion(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, ICellVisitor visitor)
+	{
+		int x0 = quantizeBound(minX);
+		int y0 = quantizeBound(minY);
+		int z0 = quantizeBound(minZ);
+		int x1 = quantizeBound(maxX);
+		int y1 = quantizeBound(maxY);
+		int z1 = quantizeBound(maxZ);
+
+		if(x0 > x1 || y0 > y1 || z0 > z1)
+			return;
+
+		int chunkX0 = Math.floorDiv(x0, QUANTA_PER_CHUNK);
+		int chunkY0 = Math.floorDiv(y0, QUANTA_PER_CHUNK);
+		int chunkX1 = Math.floorDiv(x1, QUANTA_PER_CHUNK);
+		int chunkY1 = Math.floorDiv(y1, QUANTA_PER_CHUNK);
+		long chunkCount = ((long)chunkX1 - chunkX0 + 1) * ((long)chunkY1 - chunkY0 + 1);
+
+		for(int i = 0; i < m_layers.capacity(); i++)
+		{
+			Layer l = m_layers.getValueAt(i);
+
+			if(l == null || l.depth < z0 || l.depth > z1)
+				continue;
+
+			//Probe the chunks under the region directly unless the layer holds fewer chunks than that.
+			if(chunkCount <= l.chunks.size())
+			{
+				for(int chunkY = chunkY0; chunkY <= chunkY1; chunkY++)
+				{
+					for(int chunkX = chunkX0; chunkX <= chunkX1; chunkX++)
+					{
+						Chunk chunk = l.chunks.get(packChunk(chunkX, chunkY));
+
+						if(chunk != null)
+							chunk.visitRegion(l.depth, x0, y0, x1, y1, visitor);
+					}
+				}
+			} else
+			{
+				for(int c = 0; c < l.chunks.capacity(); c++)
+				{
+					Chunk chunk = l.chunks.getValueAt(c);
+
+					if(chunk != null && chunk.m_chunkX >= chunkX0 && chunk.m_chunkX <= chunkX1 &&
+										chunk.m_chunkY >= chunkY0 && chunk.m_chunkY <= chunkY1)
+						chunk.visitRegion(l.depth, x0, y0, x1, y1, visitor);
+				}
+			}
+		}
+	}
+
+	public void visitChunk(float z, int chunkX, int chunkY, ICellVisitor visitor)
+	{
+		Layer layer = m_layers.get(quantize(z));
+		Chunk chunk = layer == null ? null : layer.chunks.get(packChunk(chunkX, chunkY));
+
+		if(chunk != null)
+			chunk.visit(layer.depth, visitor);
+	}
+
+	//Visits the given chunk of every layer.
+	public void visitColumn(int chunkX, int chunkY, ICellVisitor visitor)
+	{
+		long chunkKey = packChunk(chunkX, chunkY);
+
+		for(int i = 0; i < m_layers.capacity(); i++)
+		{
+			Layer l = m_layers.getValueAt(i);
+			Chunk chunk = l == null ? null : l.chunks.get(chunkKey);
+
+			if(chunk != null)
+				chunk.visit(l.depth, visitor);
+		}
+	}
+
+	/*
+	 * Visits the chunks which differ between this grid and an earlier snapshot of it. Chunks are
+	 * copied on write, so a chunk is unchanged exactly when both grids still share it. Chunks
+	 * present in only one of the grids are visited as well.
+	 */
+	public void visitChangedChunks(TileGrid previous, IChunkVisitor visitor)
+	{
+		for(int i = 0; i < m_layers.capacity(); i++)
+		{
+			Layer l = m_layers.getValueAt(i);
+
+			if(l == null)
+				continue;
+
+			Layer p = previous.m_layers.get(l.depth);
+
+			for(int c = 0; c < l.chunks.capacity(); c++)
+			{
+				Chunk chunk = l.chunks.getValueAt(c);
+
+				if(chunk != null && (p == null || p.chunks.get(l.chunks.getKeyAt(c)) != chunk))
+					visitor.visit(dequantize(l.depth), chunk.m_chunkX, chunk.m_chunkY);
+			}
+		}
+
+		for(int i = 0; i < previous.m_layers.capacity(); i++)
+		{
+			Layer p = previous.m_layers.getValueAt(i);
+
+			if(p == null)
+				continue;
+
+			Layer l = m_layers.get(p.depth);
+
+			for(int c = 0; c < p.chunks.capacity(); c++)
+			{
+				Chunk chunk = p.chunks.getValueAt(c);
+
+				if(chunk != null && (l == null || !l.chunks.containsKey(p.chunks.getKeyAt(c))))
+					visitor.visit(dequantize(p.depth), chunk.m_chunkX, chunk.m_chunkY);
+			}
+		}
+	}
+
+	/*
+	 * Detaches the entire layer at the given depth, passing each of its cells to the visitor
+	 * once it is no longer part of the grid.
+	 */
+	public void removeLayer(float z, ICellVisitor visitor)
+	{
+		Layer layer = m_layers.remove(quantize(z));
+
+		if(layer == null)
+			return;
+
+		m_size -= layer.size;
+		layer.visit(visitor);
+	}
+
+	private static final class Layer
+	{
+		private final int depth;
+		private final LongObjectHashMap<Chunk> chunks;
+		private int size = 0;
+
+		public Layer(int depth)
+		{
+			this.depth = depth;
+			this.chunks = new LongObjectHashMap<>();
+		}
+
+		public Layer(Layer source)
+		{
+			this.depth = source.depth;
+			this.chunks = new LongObjectHashMap<>(source.chunks);
+			this.size = source.size;
+		}
+
+		public void visit(ICellVisitor visitor)
+		{
+			for(int c = 0; c < chunks.capacity(); c++)
+			{
+				Chunk chunk = chunks.getValueAt(c);
+
+				if(chunk != null)
+					chunk.visit(depth, visitor);
+			}
+		}
+	}
+
+	/*
+	 * Cells hold their id plus one, so that zero, the default of both the dense array and the sparse
+	 * table, marks an empty cell.
+	 */
+	private static final class Chunk
+	{
+		private final int m_chunkX;
+		private final int m_chunkY;
+		private final int m_generation;
+
+		@Nullable
+		private int[] m_dense;
+		private int m_denseCount = 0;
+
+		private final LongIntHashMap m_sparse;
+		private int m_sparseAlignedCount = 0;
+
+		public Chunk(int chunkX, int chunkY, int generation)
+		{
+			m_chunkX = chunkX;
+			m_chunkY = chunkY;
+			m_generation = generation;
+			m_sparse = new LongIntHashMap();
+		}
+
+		public Chunk(Chunk source, int generation)
+		{
+			m_chunkX = source.m_chunkX;
+			m_chunkY = source.m_chunkY;
+			m_generation = generation;
+			m_dense = source.m_dense == null ? null : source.m_dense.clone();
+			m_denseCount = source.m_denseCount;
+			m_sparse = new LongIntHashMap(source.m_sparse);
+			m_sparseAlignedCount = source.m_sparseAlignedCount;
+		}
+
+		private static boolean isAligned(int localX, int localY)
+		{
+			return localX % QUANTA_PER_UNIT == 0 && localY % QUANTA_PER_UNIT == 0;
+		}
+
+		private static int denseIndex(int localX, int localY)
+		{
+			return (localY / QUANTA_PER_UNIT) * CHUNK_SIZE + localX / QUANTA_PER_UNIT;
+		}
+
+		private static long sparseKey(int localX, int localY)
+		{
+			return ((long)localY << 32) | localX;
+		}
+
+		public boolean isEmpty()
+		{
+			return m_denseCount == 0 && m_sparse.isEmpty();
+		}
+
+		public long estimateSize()
+		{
+			long size = EditorWorldStatistics.OBJECT_HEADER + m_sparse.estimateSize();
+
+			if(m_dense != null)
+				size += EditorWorldStatistics.ARRAY_HEADER + (long)m_dense.length * 4;
+
+			return size;
+		}
+
+		public int get(int localX, int localY)
+		{
+			if(m_dense != null && isAligned(localX, localY))
+				return m_dense[denseIndex(localX, localY)] - 1;
+
+			return m_sparse.get(sparseKey(localX, localY)) - 1;
+		}
+
+		public int put(int localX, int localY, int id)
+		{
+			boolean isAligned = isAligned(localX, localY);
+
+			if(m_dense != null && isAligned)
+			{
+				int index = denseIndex(localX, localY);
+				int old = m_dense[index];
+				m_dense[index] = id + 1;
+
+				if(old == 0)
+					m_denseCount++;
+
+				return old - 1;
+			}
+
+			int old = m_sparse.put(sparseKey(localX, localY), id + 1);
+
+			if(old == 0 && isAligned)
+			{
+				m_sparseAlignedCount++;
+
+				if(m_sparseAlignedCount >= DENSE_THRESHOLD)
+					promote();
+			}
+
+			return old - 1;
+		}
+
+		public int remove(int localX, int localY)
+		{
+			boolean isAligned = isAligned(localX, localY);
+
+			if(m_dense != null && isAligned)
+			{
+				int index = denseIndex(localX, localY);
+				int old = m_dense[index];
+
+				if(old != 0)
+				{
+					m_dense[index] = 0;
+					m_denseCount--;
+
+					if(m_denseCount < SPARSE_THRESHOLD)
+						demote();
+				}
+
+				return old - 1;
+			}
+
+			int old = m_sparse.remove(sparseKey(localX, localY));
+
+			if(old != 0 && isAligned)
+				m_sparseAlignedCount--;
+
+			return old - 1;
+		}
+
+		//Move all unit aligned cells out of the sparse table into a dense array.
+		private void promote()
+		{
+			m_dense = new int[CELLS_PER_CHUNK];
+
+			for(int localY = 0; localY < QUANTA_PER_CHUNK; localY += QUANTA_PER_UNIT)
+			{
+				for(int localX = 0; localX < QUANTA_PER_CHUNK; localX += QUANTA_PER_UNIT)
+				{
+					int cell = m_sparse.remove(sparseKey(localX, localY));
+
+					if(cell != 0)
+					{
+						m_dense[denseIndex(localX, localY)] = cell;
+						m_denseCount++;
+					}
+				}
+			}
+
+			m_sparseAlignedCount = 0;
+		}
+
+		//Fold the dense array back into the sparse table once it is mostly empty.
+		private void demote()
+		{
+			int[] dense = m_dense;
+			m_dense = null;
+			m_denseCount = 0;
+
+			for(int i = 0; i < dense.length; i++)
+			{
+				if(dense[i] != 0)
+					put((i % CHUNK_SIZE) * QUANTA_PER_UNIT, (i / CHUNK_SIZE) * QUANTA_PER_UNIT, dense[i] - 1);
+			}
+		}
+
+		public void visit(int depth, ICellVisitor visitor)
+		{
+			float originX = dequantize(m_chunkX * QUANTA_PER_CHUNK);
+			float originY = dequantize(m_chunkY * QUANTA_PER_CHUNK);
+			float z = dequantize(depth);
+
+			if(m_dense != null)
+			{
+				for(int i = 0; i < m_dense.length; i++)
+				{
+					if(m_dense[i] != 0)
+						visitor.visit(originX + (i % CHUNK_SIZE), originY + (i / CHUNK_SIZE), z, m_dense[i] - 1);
+				}
+			}
+
+			for(int i = 0; i < m_sparse.capacity(); i++)
+			{
+				int cell = m_sparse.getValueAt(i);
+
+				if(cell == 0)
+					continue;
+
+				long key = m_sparse.getKeyAt(i);
+				visitor.visit(dequantize(m_chunkX * QUANTA_PER_CHUNK + (int)key), dequantize(m_chunkY * QUANTA_PER_CHUNK + (int)(key >>> 32)), z, cell - 1);
+			}
+		}
+
+		//Bounds are absolute quantized coordinates, inclusive.
+		public void visitRegion(int depth, int minX, int minY, int maxX, int maxY, ICellVisitor visitor)
+		{
+			int originX = m_chunkX * QUANTA_PER_CHUNK;
+			int originY = m_chunkY * QUANTA_PER_CHUNK;
+			int localX0 = Math.max(0, minX - originX);
+			int localY0 = Math.max(0, minY - originY);
+			int localX1 = Math.min(QUANTA_PER_CHUNK - 1, maxX - originX);
+			int localY1 = Math.min(QUANTA_PER_CHUNK - 1, maxY - originY);
+			float z = dequantize(depth);
+
+			if(m_dense != null)
+			{
+				for(int cellY = (localY0 + QUANTA_PER_UNIT - 1) / QUANTA_PER_UNIT; cellY <= localY1 / QUANTA_PER_UNIT; cellY++)
+				{
+					for(int cellX = (localX0 + QUANTA_PER_UNIT - 1) / QUANTA_PER_UNIT; cellX <= localX1 / QUANTA_PER_UNIT; cellX++)
+					{
+						int cell = m_dense[cellY * CHUNK_SIZE + cellX];
+
+						if(cell != 0)
+							visitor.visit(dequantize(originX) + cellX, dequantize(originY) + cellY, z, cell - 1);
+					}
+				}
+			}
+
+			for(int i = 0; i < m_sparse.capacity(); i++)
+			{
+				int cell = m_sparse.getValueAt(i);
+
+				if(cell == 0)
+					continue;
+
+				long key = m_sparse.getKeyAt(i);
+				int localX = (int)key;
+				int localY = (int)(key >>> 32);
+
+				if(localX >= localX0 && localX <= localX1 && localY >= localY0 && localY <= localY1)
+					visitor.visit(dequantize(originX + localX), dequantize(originY + localY), z, cell - 1);
+			}
+		}
+	}
+
+	public interface ICellVisitor
+	{
+		void visit(float x, float y, float z, int id);
+	}
+
+	public interface IChunkVisitor
+	{
+		void visit(float z, int chunkX, int chunkY);
+	}
+}
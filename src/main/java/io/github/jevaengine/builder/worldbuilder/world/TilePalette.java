@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.worldbuilder.world;
+
+import io.github.jevaengine.util.Nullable;
+import io.github.jevaengine.world.Direction;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Objects;
+
+/**
+ * Interns the distinct tile descriptors (model, direction, traversable and static flags) of a world.
+ *
+ * Every tile placed into an EditorWorld shares the canonical entry for its descriptor, which carries
+ * a small integer id. Entries are reference counted and their ids are recycled once unused.
+ */
+final class TilePalette
+{
+	private final HashMap<Entry, Entry> m_entries = new HashMap<>();
+	private final ArrayList<Entry> m_ids = new ArrayList<>();
+	private final ArrayDeque<Integer> m_freeIds = new ArrayDeque<>();
+
+	public Entry intern(Entry descriptor)
+	{
+		Entry entry = m_entries.get(descriptor);
+
+		if(entry == null)
+		{
+			entry = new Entry(descriptor.getModelName(), descriptor.getDirection(), descriptor.isTraversable(), descriptor.isStatic());
+			entry.m_id = m_freeIds.isEmpty() ? m_ids.size() : m_freeIds.poll();
+
+			if(entry.m_id == m_ids.size())
+				m_ids.add(entry);
+			else
+				m_ids.set(entry.m_id, entry);
+
+			m_entries.put(entry, entry);
+		}
+
+		entry.m_references++;
+
+		return entry;
+	}
+
+	public void release(Entry entry)
+	{
+		if(entry.m_id < 0 || m_ids.get(entry.m_id) != entry)
+			return;
+
+		entry.m_references--;
+
+		if(entry.m_references <= 0)
+		{
+			m_entries.remove(entry);
+			m_ids.set(entry.m_id, null);
+			m_freeIds.add(entry.m_id);
+		}
+	}
+
+	@Nullable
+	public Entry get(int id)
+	{
+		return id < 0 || id >= m_ids.size() ? null : m_ids.get(id);
+	}
+
+	public int size()
+	{
+		return m_entries.size();
+	}
+
+	//Entries indexed by id, as they are at the time of the call. Unused ids hold null.
+	public Entry[] getEntries()
+	{
+		return m_ids.toArray(new Entry[m_ids.size()]);
+	}
+
+	public int getIdCapacity()
+	{
+		return m_ids.size();
+	}
+
+	public static final class Entry
+	{
+		private final URI m_modelName;
+		private final Direction m_direction;
+		private final boolean m_isTraversable;
+		private final boolean m_isStatic;
+
+		private int m_id = -1;
+		private int m_references = 0;
+
+		public Entry(URI modelName, Direction direction, boolean isTraversable, boolean isStatic)
+		{
+			m_modelName = modelName;
+			m_direction = direction;
+			m_isTraversable = isTraversable;
+			m_isStatic = isStatic;
+		}
+
+		public int getId()
+		{
+			return m_id;
+		}
+
+		public URI getModelName()
+		{
+			return m_modelName;
+		}
+
+		public Direction getDirection()
+		{
+			return m_direction;
+		}
+
+		public boolean isTraversable()
+		{
+			return m_isTraversable;
+		}
+
+		public boolean isStatic()
+		{
+			return m_isStatic;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = 5;
+			hash = 97 * hash + Objects.hashCode(this.m_modelName);
+			hash = 97 * hash + Objects.hashCode(this.m_direction);
+			hash = 97 * hash + (this.m_isTraversable ? 1 : 0);
+			hash = 97 * hash + (this.m_isStatic ? 1 : 0);
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == null) {
+				return false;
+			}
+			if (getClass() != obj.getClass()) {
+				return false;
+			}
+			final Entry other = (Entry) obj;
+			if (!Objects.equals(this.m_modelName, other.m_modelName)) {
+				return false;
+			}
+			if (this.m_direction != other.m_direction) {
+				return false;
+			}
+			if (this.m_isTraversable != other.m_isTraversable) {
+				return false;
+			}
+			if (this.m_isStatic != other.m_isStatic) {
+				return false;
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.worldbuilder.world;
+
+import io.github.jevaengine.builder.worldbuilder.world.EditorWeatherFactory.EditorWeather;
+import io.github.jevaengine.builder.worldbuilder.world.EditorWorld.ITileVisitor;
+import io.github.jevaengine.math.Vector3F;
+import io.github.jevaengine.util.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * The tiles, entities and zones of a world, read apart from the bounds and properties an EditorWorld is
+ * created with so that they may be read on a loader thread while the world is already being edited (see
+ * EditorWorld#beginLoad). Content is not modified once it has been handed to the world.
+ *
+ * Chunked tiles are deferred, cells which are not part of a chunk (the off grid cells of binary worlds)
+ * are placed as soon as the content is handed over. Those cells hold an index into the prototypes they
+ * were set to.
+ */
+final class WorldContent
+{
+	private final DeferredChunks m_chunks = new DeferredChunks();
+	private final TileGrid m_cells = new TileGrid();
+	private final ArrayList<EditorSceneArtifact> m_prototypes = new ArrayList<>();
+	private final IdentityHashMap<EditorSceneArtifact, Integer> m_prototypeIndices = new IdentityHashMap<>();
+	private final boolean m_isMapped;
+
+	private final ArrayList<EditorEntity> m_entities = new ArrayList<>();
+	private final ArrayList<EditorZone> m_zones = new ArrayList<>();
+
+	private boolean m_hasProperties = false;
+	private float m_friction;
+	private String m_script;
+
+	@Nullable
+	private EditorWeather m_weather;
+
+	/*
+	 * The chunks of mapped content are only placed as they are needed, those of any other content are
+	 * placed over the updates following the hand over.
+	 */
+	public WorldContent(boolean isMapped)
+	{
+		m_isMapped = isMapped;
+	}
+
+	public boolean isMapped()
+	{
+		return m_isMapped;
+	}
+
+	public DeferredChunks getChunks()
+	{
+		return m_chunks;
+	}
+
+	//Visits the cells as the prototypes they were set to.
+	public void visitCells(final ITileVisitor visitor)
+	{
+		m_cells.visit(new TileGrid.ICellVisitor() {
+			@Override
+			public void visit(float x, float y, float z, int index)
+			{
+				visitor.visit(x, y, z, m_prototypes.get(index));
+			}
+		});
+	}
+
+	public void setCell(Vector3F location, EditorSceneArtifact prototype)
+	{
+		Integer index = m_prototypeIndices.get(prototype);
+
+		if(index == null)
+		{
+			index = m_prototypes.size();
+			m_prototypes.add(prototype);
+			m_prototypeIndices.put(prototype, index);
+		}
+
+		m_cells.put(location, index);
+	}
+
+	//Clears a chunk of tiles read earlier, as a delta replacing it is read.
+	public void clearChunk(float z, int chunkX, int chunkY)
+	{
+		final ArrayList<Vector3F> cleared = new ArrayList<>();
+
+		m_chunks.remove(z, chunkX, chunkY);
+		m_cells.visitChunk(z, chunkX, chunkY, new TileGrid.ICellVisitor() {
+			@Override
+			public void visit(float x, float y, float z, int index)
+			{
+				cleared.add(new Vector3F(x, y, z));
+			}
+		});
+
+		for(Vector3F location : cleared)
+			m_cells.remove(location);
+	}
+
+	public List<EditorEntity> getEntities()
+	{
+		return Collections.unmodifiableList(m_entities);
+	}
+
+	public void setEntities(List<EditorEntity> entities)
+	{
+		m_entities.clear();
+		m_entities.addAll(entities);
+	}
+
+	public List<EditorZone> getZones()
+	{
+		return Collections.unmodifiableList(m_zones);
+	}
+
+	public void setZones(List<EditorZone> zones)
+	{
+		m_zones.clear();
+		m_zones.addAll(zones);
+	}
+
+	//Properties read after the world was created, from the deltas of a binary world.
+	public boolean hasProperties()
+	{
+		return m_hasProperties;
+	}
+
+	public void setProperties(float friction, String script, @Nullable EditorWeather weather)
+	{
+		m_hasProperties = true;
+		m_friction = friction;
+		m_script = script;
+
+		if(weather != null)
+			m_weather = weather;
+	}
+
+	public float getFriction()
+	{
+		return m_friction;
+	}
+
+	public String getScript()
+	{
+		return m_script;
+	}
+
+	@Nullable
+	public EditorWeather getWeather()
+	{
+		return m_weather;
+	}
+}
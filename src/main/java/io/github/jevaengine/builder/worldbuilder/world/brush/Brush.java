@@ -44,7 +44,16 @@ public final class Brush
 	public void apply(EditorWorld world)
 	{
 		Vector3F location = world.getEditCursor().getLocation();
-		m_behaviour.apply(world, location);
+		
+		world.beginBatch();
+		
+		try
+		{
+			m_behaviour.apply(world, location);
+		} finally
+		{
+			world.commitBatch();
+		}
 	}
 	
 	public void setDirection(Direction d)
@@ -27,6 +27,7 @@ import io.github.jevaengine.world.scene.model.NullSceneModel;
 
 public final class ClearTileBrushBehaviour implements IBrushBehaviour
 {
+	private static final float ENTITY_LOCATION_TOLERANCE = 0.0001F;
 
 	@Override
 	public ISceneModel getModel()
@@ -37,14 +38,12 @@ public final class ClearTileBrushBehaviour implements IBrushBehaviour
 	@Override
 	public void apply(EditorWorld world, Vector3F location)
 	{
-		for(EditorEntity e : world.getEntities()) {
-			if(e.getLocation().equals(location))
-			{
-				world.removeEntity(e);
-				return;
-			}
-		}
-		world.clearTile(location);
+		EditorEntity e = world.getNearestEntity(location, ENTITY_LOCATION_TOLERANCE);
+
+		if(e != null)
+			world.removeEntity(e);
+		else
+			world.clearTile(location);
 	}
 
 	@Override
@@ -20,6 +20,7 @@ package io.github.jevaengine.builder.worldbuilder.world.brush;
 
 import io.github.jevaengine.builder.worldbuilder.world.EditorEntity;
 import io.github.jevaengine.builder.worldbuilder.world.EditorWorld;
+import io.github.jevaengine.builder.worldbuilder.world.EditorZone;
 import io.github.jevaengine.math.Vector3F;
 import io.github.jevaengine.world.Direction;
 import io.github.jevaengine.world.entity.IEntity;
@@ -50,12 +51,16 @@ public class MoveEntityBrushBehaviour implements IBrushBehaviour
 	@Override
 	public void apply(EditorWorld world, Vector3F location)
 	{
-		for(EditorEntity e : world.getEntities()) {
-			Vector3F delta = e.getLocation().difference(location);
-			if(delta.getLength() < MIN_ENTITY_DISTANCE)
-				return;
-		}
-		m_entity.getBody().setLocation(location);
+		if(world.getNearestEntity(location, MIN_ENTITY_DISTANCE) != null)
+			return;
+
+		if(m_entity instanceof EditorEntity.DummyEntity)
+			((EditorEntity.DummyEntity)m_entity).getEditorEntity().setLocation(location);
+		else if(m_entity instanceof EditorZone.DummyZone)
+			((EditorZone.DummyZone)m_entity).getEditorEntity().setLocation(location);
+		else
+			m_entity.getBody().setLocation(location);
+
 		m_movementHandler.moved();
 	}
 
@@ -94,8 +94,7 @@ public final class PlaceSceneArtifactBrushBehaviour implements IBrushBehaviour
 	@Override
 	public void apply(EditorWorld world, Vector3F location)
 	{
-		ISceneModel model = m_model.clone();
-		world.setTile(new EditorSceneArtifact(model, m_modelName, model.getDirection(), m_isTraversable, m_isStatic), location);
+		world.setTile(new EditorSceneArtifact(m_model, m_modelName, m_model.getDirection(), m_isTraversable, m_isStatic), location);
 	}
 
 	@Override
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.worldbuilder.world;
+
+import io.github.jevaengine.builder.worldbuilder.world.IWorldWriteMonitor.NullWorldWriteMonitor;
+import io.github.jevaengine.math.Rect3F;
+import io.github.jevaengine.math.Vector3F;
+import io.github.jevaengine.world.DefaultWorldFactory.WorldConfiguration.EntityImportDeclaration;
+import io.github.jevaengine.world.DefaultWorldFactory.WorldConfiguration.ZoneDeclaration;
+import io.github.jevaengine.world.Direction;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EditorWorldBinaryWriterTest
+{
+	private final TestWorld m_world = new TestWorld();
+
+	@Test
+	public void worldIsReadBackAsWritten() throws IOException
+	{
+		m_world.paint();
+		m_world.addEntity("guard", new Vector3F(4.5F, 2.0F, 1.0F));
+		m_world.addZone("spawn", new Rect3F(1.0F, 2.0F, 0.0F, 3.0F, 4.0F, 1.0F));
+
+		EditorWorldSnapshot snapshot = m_world.createSnapshot();
+		EditorWorldBinaryReader reader = new EditorWorldBinaryReader(new ByteArrayInputStream(write(snapshot)));
+
+		EditorWorldBinaryReader.Header header = reader.readHeader();
+
+		assertEquals(100, header.worldWidth);
+		assertEquals(50, header.worldHeight);
+		assertEquals(0.5F, header.friction, 0.0F);
+		assertEquals(2.0F, header.metersPerUnit, 0.0F);
+		assertEquals(3.0F, header.logicPerUnit, 0.0F);
+		assertEquals("rain", header.weather);
+		assertEquals("world.js", header.script);
+
+		assertEquals(TestWorld.getTiles(snapshot), TestWorld.readTiles(reader));
+
+		List<EntityImportDeclaration> entities = reader.readEntities();
+
+		assertEquals(1, entities.size());
+		assertEquals("guard", entities.get(0).name);
+		assertEquals("npc", entities.get(0).type);
+		assertNull(entities.get(0).config);
+		assertEquals(Direction.XPlus, entities.get(0).direction);
+		assertEquals(4.5F, entities.get(0).location.x, 0.0F);
+		assertEquals(2.0F, entities.get(0).location.y, 0.0F);
+		assertEquals(1.0F, entities.get(0).location.z, 0.0F);
+		assertNull(entities.get(0).auxConfig);
+
+		List<ZoneDeclaration> zones = reader.readZones();
+
+		assertEquals(1, zones.size());
+		assertEquals("spawn", zones.get(0).name);
+		assertEquals(3.0F, zones.get(0).region.width, 0.0F);
+		assertEquals(1.0F, zones.get(0).region.depth, 0.0F);
+
+		assertFalse(reader.nextDelta());
+	}
+
+	@Test
+	public void deltaIsAppliedOverWorld() throws IOException
+	{
+		m_world.paint();
+		EditorWorldSnapshot previous = m_world.createSnapshot();
+
+		m_world.put(new Vector3F(40.0F, 3.0F, 0.0F), TestWorld.WALL);
+		m_world.put(new Vector3F(2.0F, 2.0F, 0.0F), TestWorld.WALL);
+		m_world.remove(new Vector3F(1.0F, 1.0F, 0.0F));
+		m_world.remove(new Vector3F(3.5F, 1.25F, 0.0F));
+		m_world.addEntity("guard", new Vector3F(1.0F, 1.0F, 0.0F));
+
+		EditorWorldSnapshot snapshot = m_world.createSnapshot();
+		EditorWorldBinaryWriter writer = new EditorWorldBinaryWriter();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		writer.write(previous, out);
+		writer.writeDelta(previous, snapshot, writer.encodeEntities(snapshot.getEntities()), null, out, new NullWorldWriteMonitor());
+
+		EditorWorldBinaryReader reader = new EditorWorldBinaryReader(new ByteArrayInputStream(out.toByteArray()));
+		reader.readHeader();
+
+		Map<List<Integer>, TilePalette.Entry> tiles = TestWorld.readTiles(reader);
+		assertTrue(reader.readEntities().isEmpty());
+		assertTrue(reader.readZones().isEmpty());
+
+		assertTrue(reader.nextDelta());
+		reader.readDeltaHeader();
+		TestWorld.readChangedTiles(reader, tiles);
+
+		List<EntityImportDeclaration> entities = reader.readChangedEntities();
+
+		assertNotNull(entities);
+		assertEquals(1, entities.size());
+		assertNull(reader.readChangedZones());
+		assertFalse(reader.nextDelta());
+
+		assertEquals(TestWorld.getTiles(snapshot), tiles);
+	}
+
+	@Test
+	public void truncatedDeltaIsDiscarded() throws IOException
+	{
+		m_world.paint();
+		EditorWorldSnapshot previous = m_world.createSnapshot();
+
+		m_world.put(new Vector3F(5.0F, 5.0F, 0.0F), TestWorld.WALL);
+
+		EditorWorldBinaryWriter writer = new EditorWorldBinaryWriter();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		writer.write(previous, out);
+		writer.writeDelta(previous, m_world.createSnapshot(), null, null, out, new NullWorldWriteMonitor());
+
+		byte[] world = Arrays.copyOf(out.toByteArray(), out.size() - 1);
+
+		EditorWorldBinaryReader streamReader = new EditorWorldBinaryReader(new ByteArrayInputStream(world));
+		EditorWorldBinaryReader mappedReader = new EditorWorldBinaryReader(ByteBuffer.wrap(world));
+
+		for(EditorWorldBinaryReader reader : Arrays.asList(streamReader, mappedReader))
+		{
+			HashMap<List<Integer>, TilePalette.Entry> tiles = new HashMap<>();
+
+			assertEquals(0, TestWorld.readWorld(reader, tiles));
+			assertEquals(TestWorld.getTiles(previous), tiles);
+		}
+	}
+
+	private static byte[] write(EditorWorldSnapshot snapshot) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new EditorWorldBinaryWriter().write(snapshot, out);
+
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.worldbuilder.world;
+
+import io.github.jevaengine.math.Vector3F;
+import io.github.jevaengine.world.DefaultWorldFactory.WorldConfiguration.EntityImportDeclaration;
+import io.github.jevaengine.world.DefaultWorldFactory.WorldConfiguration.ZoneDeclaration;
+import io.github.jevaengine.world.Direction;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EditorWorldJournalTest
+{
+	//The header and records as they are written by EditorWorldJournal.
+	private static final int MAGIC = 0x4A4D504A;
+	private static final int TILE_ENTRY = 1;
+	private static final int TILE_SET = 2;
+
+	private static final TilePalette.Entry GRASS = new TilePalette.Entry(URI.create("grass.jmf"), Direction.XPlus, true, true);
+
+	@Rule
+	public final TemporaryFolder m_folder = new TemporaryFolder();
+
+	@Test
+	public void truncatedRecordIsNotReplayed() throws IOException
+	{
+		File world = createWorld();
+		ByteArrayOutputStream journal = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(journal);
+
+		writeHeader(data, world);
+		writeEntry(data, 0, GRASS);
+		writeTile(data, new Vector3F(1.0F, 2.0F, 0.0F), 0);
+
+		data.writeByte(TILE_SET);
+		data.writeFloat(3.0F);
+
+		writeJournal(world, journal.toByteArray());
+
+		RecordingJournalVisitor visitor = new RecordingJournalVisitor();
+
+		assertTrue(EditorWorldJournal.replay(world, visitor));
+		assertEquals(1, visitor.locations.size());
+		assertEquals(1.0F, visitor.locations.get(0).x, 0.0F);
+		assertEquals(2.0F, visitor.locations.get(0).y, 0.0F);
+		assertEquals(GRASS, visitor.entries.get(0));
+	}
+
+	@Test
+	public void journalOfOnlyTruncatedRecordHasNoEdits() throws IOException
+	{
+		File world = createWorld();
+		ByteArrayOutputStream journal = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(journal);
+
+		writeHeader(data, world);
+		writeEntry(data, 0, GRASS);
+
+		byte[] contents = journal.toByteArray();
+		writeJournal(world, Arrays.copyOf(contents, contents.length - 1));
+
+		assertFalse(EditorWorldJournal.replay(world, new RecordingJournalVisitor()));
+	}
+
+	@Test
+	public void journalOfChangedWorldIsIgnored() throws IOException
+	{
+		File world = createWorld();
+		ByteArrayOutputStream journal = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(journal);
+
+		writeHeader(data, world);
+		writeEntry(data, 0, GRASS);
+		writeTile(data, new Vector3F(1.0F, 2.0F, 0.0F), 0);
+
+		writeJournal(world, journal.toByteArray());
+		Files.write(world.toPath(), new byte[] {1, 2, 3, 4});
+
+		assertFalse(EditorWorldJournal.replay(world, new RecordingJournalVisitor()));
+	}
+
+	private File createWorld() throws IOException
+	{
+		File world = m_folder.newFile("world" + EditorWorldBinaryWriter.FILE_EXTENSION);
+		Files.write(world.toPath(), new byte[] {1, 2, 3});
+
+		return world;
+	}
+
+	private static void writeJournal(File world, byte[] journal) throws IOException
+	{
+		Files.write(EditorWorldJournal.getJournalFile(world).toPath(), journal);
+	}
+
+	private static void writeHeader(DataOutputStream data, File world) throws IOException
+	{
+		data.writeInt(MAGIC);
+		data.writeLong(world.length());
+		data.writeLong(world.lastModified());
+	}
+
+	private static void writeEntry(DataOutputStream data, int id, TilePalette.Entry entry) throws IOException
+	{
+		data.writeByte(TILE_ENTRY);
+		EditorWorldBinaryWriter.writeVarInt(data, id);
+		data.writeUTF(entry.getModelName().toString());
+		data.writeByte(entry.getDirection().ordinal());
+		data.writeBoolean(entry.isTraversable());
+		data.writeBoolean(entry.isStatic());
+	}
+
+	private static void writeTile(DataOutputStream data, Vector3F location, int id) throws IOException
+	{
+		data.writeByte(TILE_SET);
+		data.writeFloat(location.x);
+		data.writeFloat(location.y);
+		data.writeFloat(location.z);
+		EditorWorldBinaryWriter.writeVarInt(data, id);
+	}
+
+	private static final class RecordingJournalVisitor implements EditorWorldJournal.IJournalVisitor
+	{
+		public final List<Vector3F> locations = new ArrayList<>();
+		public final List<TilePalette.Entry> entries = new ArrayList<>();
+
+		@Override
+		public void tileSet(Vector3F location, TilePalette.Entry entry)
+		{
+			locations.add(location);
+			entries.add(entry);
+		}
+
+		@Override
+		public void tileCleared(Vector3F location)
+		{
+			fail("Unexpected record.");
+		}
+
+		@Override
+		public void layerCleared(float z)
+		{
+			fail("Unexpected record.");
+		}
+
+		@Override
+		public void layerShifted(float fromZ, float toZ)
+		{
+			fail("Unexpected record.");
+		}
+
+		@Override
+		public void entityAdded(EntityImportDeclaration entity)
+		{
+			fail("Unexpected record.");
+		}
+
+		@Override
+		public void entityChanged(int index, EntityImportDeclaration entity)
+		{
+			fail("Unexpected record.");
+		}
+
+		@Override
+		public void entityRemoved(int index)
+		{
+			fail("Unexpected record.");
+		}
+
+		@Override
+		public void zoneAdded(ZoneDeclaration zone)
+		{
+			fail("Unexpected record.");
+		}
+
+		@Override
+		public void zoneChanged(int index, ZoneDeclaration zone)
+		{
+			fail("Unexpected record.");
+		}
+
+		@Override
+		public void zoneRemoved(int index)
+		{
+			fail("Unexpected record.");
+		}
+	}
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.worldbuilder.world;
+
+import io.github.jevaengine.math.Vector3F;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalWorldWriterTest
+{
+	@Rule
+	public final TemporaryFolder m_folder = new TemporaryFolder();
+
+	private final TestWorld m_world = new TestWorld();
+
+	@Test
+	public void firstSaveWritesWholeWorld() throws IOException
+	{
+		File file = m_folder.newFile("world" + EditorWorldBinaryWriter.FILE_EXTENSION);
+		IncrementalWorldWriter writer = new IncrementalWorldWriter(file);
+
+		m_world.paint();
+		EditorWorldSnapshot snapshot = m_world.createSnapshot();
+		writer.save(snapshot);
+
+		HashMap<List<Integer>, TilePalette.Entry> tiles = new HashMap<>();
+
+		assertEquals(0, readWorld(file, tiles));
+		assertEquals(TestWorld.getTiles(snapshot), tiles);
+	}
+
+	@Test
+	public void laterSavesAppendDeltas() throws IOException
+	{
+		File file = m_folder.newFile("world" + EditorWorldBinaryWriter.FILE_EXTENSION);
+		IncrementalWorldWriter writer = new IncrementalWorldWriter(file);
+
+		m_world.paint();
+		writer.save(m_world.createSnapshot());
+
+		m_world.put(new Vector3F(40.0F, 3.0F, 0.0F), TestWorld.WALL);
+		writer.save(m_world.createSnapshot());
+
+		m_world.remove(new Vector3F(1.0F, 1.0F, 0.0F));
+		EditorWorldSnapshot snapshot = m_world.createSnapshot();
+		writer.save(snapshot);
+
+		HashMap<List<Integer>, TilePalette.Entry> tiles = new HashMap<>();
+
+		assertEquals(2, readWorld(file, tiles));
+		assertEquals(TestWorld.getTiles(snapshot), tiles);
+	}
+
+	@Test
+	public void worldIsCompactedAfterManyDeltas() throws IOException
+	{
+		File file = m_folder.newFile("world" + EditorWorldBinaryWriter.FILE_EXTENSION);
+		IncrementalWorldWriter writer = new IncrementalWorldWriter(file);
+
+		m_world.paint();
+		writer.save(m_world.createSnapshot());
+
+		int previousDeltas = 0;
+		boolean isCompacted = false;
+
+		for(int i = 0; i < 40; i++)
+		{
+			m_world.put(new Vector3F(i, 20.0F, 0.0F), TestWorld.WALL);
+			EditorWorldSnapshot snapshot = m_world.createSnapshot();
+			writer.save(snapshot);
+
+			HashMap<List<Integer>, TilePalette.Entry> tiles = new HashMap<>();
+			int deltas = readWorld(file, tiles);
+
+			assertEquals(TestWorld.getTiles(snapshot), tiles);
+			assertTrue(deltas <= 16);
+
+			isCompacted |= deltas < previousDeltas;
+			previousDeltas = deltas;
+		}
+
+		assertTrue(isCompacted);
+	}
+
+	@Test
+	public void worldWrittenByAnotherWriterIsCompacted() throws IOException
+	{
+		File file = m_folder.newFile("world" + EditorWorldBinaryWriter.FILE_EXTENSION);
+		IncrementalWorldWriter writer = new IncrementalWorldWriter(file);
+
+		m_world.paint();
+		writer.save(m_world.createSnapshot());
+
+		try (FileOutputStream out = new FileOutputStream(file, true))
+		{
+			out.write(0);
+		}
+
+		m_world.put(new Vector3F(40.0F, 3.0F, 0.0F), TestWorld.WALL);
+		EditorWorldSnapshot snapshot = m_world.createSnapshot();
+		writer.save(snapshot);
+
+		HashMap<List<Integer>, TilePalette.Entry> tiles = new HashMap<>();
+
+		assertEquals(0, readWorld(file, tiles));
+		assertEquals(TestWorld.getTiles(snapshot), tiles);
+	}
+
+	@Test
+	public void worldMovedAsideByCompactionIsRecovered() throws IOException
+	{
+		File file = m_folder.newFile("world" + EditorWorldBinaryWriter.FILE_EXTENSION);
+		IncrementalWorldWriter writer = new IncrementalWorldWriter(file);
+
+		m_world.paint();
+		EditorWorldSnapshot snapshot = m_world.createSnapshot();
+		writer.save(snapshot);
+
+		long length = file.length();
+		long lastModified = file.lastModified();
+
+		//As left by a crash after the world was moved aside, but before the compacted world was moved into its place.
+		File retired = new File(file.getPath() + ".1234.old");
+		File replacement = new File(file.getPath() + ".tmp");
+		assertTrue(file.renameTo(retired));
+		assertTrue(replacement.createNewFile());
+
+		IncrementalWorldWriter.recover(file);
+
+		HashMap<List<Integer>, TilePalette.Entry> tiles = new HashMap<>();
+
+		assertEquals(0, readWorld(file, tiles));
+		assertEquals(TestWorld.getTiles(snapshot), tiles);
+		assertEquals(length, file.length());
+		assertEquals(lastModified, file.lastModified());
+		assertFalse(retired.exists());
+		assertFalse(replacement.exists());
+	}
+
+	private static int readWorld(File file, Map<List<Integer>, TilePalette.Entry> tiles) throws IOException
+	{
+		try (InputStream in = new FileInputStream(file))
+		{
+			return TestWorld.readWorld(new EditorWorldBinaryReader(in), tiles);
+		}
+	}
+}
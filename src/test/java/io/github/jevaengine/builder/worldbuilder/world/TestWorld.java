@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2015 Jeremy Wildsmith.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package io.github.jevaengine.builder.worldbuilder.world;
+
+import io.github.jevaengine.builder.worldbuilder.world.EditorWorldBinaryReader.IChangedChunkVisitor;
+import io.github.jevaengine.builder.worldbuilder.world.EditorWorldBinaryReader.ICellVisitor;
+import io.github.jevaengine.math.Rect3F;
+import io.github.jevaengine.math.Vector3F;
+import io.github.jevaengine.world.DefaultWorldFactory.WorldConfiguration.EntityImportDeclaration;
+import io.github.jevaengine.world.DefaultWorldFactory.WorldConfiguration.ZoneDeclaration;
+import io.github.jevaengine.world.Direction;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * The tiles, entities and zones of a world under test, from which snapshots are taken to be written. Tiles
+ * are compared by their palette entries, keyed by their quantized location.
+ */
+final class TestWorld
+{
+	public static final TilePalette.Entry GRASS = new TilePalette.Entry(URI.create("grass.jmf"), Direction.XPlus, true, true);
+	public static final TilePalette.Entry WALL = new TilePalette.Entry(URI.create("wall.jmf"), Direction.YMinus, false, true);
+
+	private final TilePalette m_palette = new TilePalette();
+	private final TileGrid m_tiles = new TileGrid();
+	private final ArrayList<EntityImportDeclaration> m_entities = new ArrayList<>();
+	private final ArrayList<ZoneDeclaration> m_zones = new ArrayList<>();
+
+	//Paints two layers, with a tile off of the unit grid and one in a chunk of negative coordinates.
+	public void paint()
+	{
+		for(int x = 0; x < 10; x++)
+		{
+			for(int y = 0; y < 5; y++)
+				put(new Vector3F(x, y, 0.0F), (x + y) % 3 == 0 ? WALL : GRASS);
+		}
+
+		put(new Vector3F(3.5F, 1.25F, 0.0F), WALL);
+		put(new Vector3F(-3.0F, -2.0F, 0.0F), GRASS);
+		put(new Vector3F(2.0F, 2.0F, 1.0F), WALL);
+	}
+
+	public void put(Vector3F location, TilePalette.Entry entry)
+	{
+		int replaced = m_tiles.put(location, m_palette.intern(entry).getId());
+
+		if(replaced >= 0)
+			m_palette.release(m_palette.get(replaced));
+	}
+
+	public void remove(Vector3F location)
+	{
+		int removed = m_tiles.remove(location);
+
+		if(removed >= 0)
+			m_palette.release(m_palette.get(removed));
+	}
+
+	public void addEntity(String name, Vector3F location)
+	{
+		EntityImportDeclaration entity = new EntityImportDeclaration();
+		entity.name = name;
+		entity.type = "npc";
+		entity.direction = Direction.XPlus;
+		entity.location = location;
+
+		m_entities.add(entity);
+	}
+
+	public void addZone(String name, Rect3F region)
+	{
+		ZoneDeclaration zone = new ZoneDeclaration();
+		zone.name = name;
+		zone.region = region;
+
+		m_zones.add(zone);
+	}
+
+	public EditorWorldSnapshot createSnapshot()
+	{
+		return new EditorWorldSnapshot(m_tiles.snapshot(), new DeferredChunks(), m_palette, new ArrayList<>(m_entities), new ArrayList<>(m_zones),
+										"rain", 0.5F, 2.0F, 3.0F, 100, 50, "world.js");
+	}
+
+	public static List<Integer> getKey(float x, float y, float z)
+	{
+		return Arrays.asList(TileGrid.quantize(x), TileGrid.quantize(y), TileGrid.quantize(z));
+	}
+
+	public static Map<List<Integer>, TilePalette.Entry> getTiles(EditorWorldSnapshot snapshot)
+	{
+		final HashMap<List<Integer>, TilePalette.Entry> tiles = new HashMap<>();
+		final TilePalette.Entry[] palette = snapshot.getPaletteEntries();
+
+		snapshot.visitTiles(new TileGrid.ICellVisitor() {
+			@Override
+			public void visit(float x, float y, float z, int id)
+			{
+				tiles.put(getKey(x, y, z), palette[id]);
+			}
+		});
+
+		return tiles;
+	}
+
+	//Reads the palette and layers sections of a world.
+	public static Map<List<Integer>, TilePalette.Entry> readTiles(EditorWorldBinaryReader reader) throws IOException
+	{
+		final HashMap<List<Integer>, TilePalette.Entry> tiles = new HashMap<>();
+		final List<TilePalette.Entry> palette = reader.readPalette();
+
+		reader.readLayers(new ICellVisitor() {
+			@Override
+			public void visit(float x, float y, float z, int paletteIndex)
+			{
+				tiles.put(getKey(x, y, z), palette.get(paletteIndex));
+			}
+		});
+
+		return tiles;
+	}
+
+	//Reads the palette and changed chunks sections of a delta record over the given tiles.
+	public static void readChangedTiles(EditorWorldBinaryReader reader, final Map<List<Integer>, TilePalette.Entry> tiles) throws IOException
+	{
+		final List<TilePalette.Entry> palette = reader.readPalette();
+
+		reader.readChangedChunks(new IChangedChunkVisitor() {
+			@Override
+			public void clear(float z, int chunkX, int chunkY)
+			{
+				for(Iterator<List<Integer>> it = tiles.keySet().iterator(); it.hasNext();)
+				{
+					List<Integer> key = it.next();
+
+					if(key.get(2) == TileGrid.quantize(z) &&
+						Math.floor(TileGrid.dequantize(key.get(0)) / TileGrid.CHUNK_SIZE) == chunkX &&
+						Math.floor(TileGrid.dequantize(key.get(1)) / TileGrid.CHUNK_SIZE) == chunkY)
+						it.remove();
+				}
+			}
+
+			@Override
+			public void visit(float x, float y, float z, int paletteIndex)
+			{
+				tiles.put(getKey(x, y, z), palette.get(paletteIndex));
+			}
+		});
+	}
+
+	//Reads the tiles of a world with each of its delta records applied, returning the number of records.
+	public static int readWorld(EditorWorldBinaryReader reader, Map<List<Integer>, TilePalette.Entry> tiles) throws IOException
+	{
+		reader.readHeader();
+		tiles.putAll(readTiles(reader));
+		reader.readEntities();
+		reader.readZones();
+
+		int deltas = 0;
+
+		for(; reader.nextDelta(); deltas++)
+		{
+			reader.readDeltaHeader();
+			readChangedTiles(reader, tiles);
+			reader.readChangedEntities();
+			reader.readChangedZones();
+		}
+
+		return deltas;
+	}
+}